@@ -0,0 +1,128 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR events of {@link SimulatorMetrics}. Built from src/jfr/java for Java 11+, and only reached reflectively so the
+ * rest of the simulator still builds and runs on Java 8, see {@link SimulatorMetrics#isJfrAvailable()}.
+ */
+final class SimulatorEvents {
+    private SimulatorEvents() {
+    }
+
+    /**
+     * Commits the run's event, then the totals of its metrics, each when enabled.
+     */
+    static void commitProcess(SimulatorMetrics metrics, long lines, long nanos) {
+        ProcessEvent process = new ProcessEvent();
+        if (process.isEnabled()) {
+            process.lines = lines;
+            process.processTime = nanos;
+            process.commit();
+        }
+
+        MetricsEvent totals = new MetricsEvent();
+        if (!totals.isEnabled()) return;
+
+        totals.deployLines = metrics.getCommandCount(Command.DEPLOY);
+        totals.pitLines = metrics.getCommandCount(Command.PIT);
+        totals.moveLines = metrics.getCommandCount(Command.MOVE);
+        totals.leftLines = metrics.getCommandCount(Command.LEFT);
+        totals.rightLines = metrics.getCommandCount(Command.RIGHT);
+        totals.reportLines = metrics.getCommandCount(Command.REPORT);
+        totals.unparseableLines = metrics.getUnparseableLines();
+        totals.outsideZoneErrors = metrics.getOutsideZoneErrors();
+        totals.pitDetectedErrors = metrics.getPitDetectedErrors();
+        totals.robotDetectedErrors = metrics.getRobotDetectedErrors();
+        totals.pitsAdded = metrics.getPitsAdded();
+        totals.bytesRead = metrics.getBytesRead();
+        totals.runs = metrics.getRuns();
+        totals.parseLatencyP50 = metrics.getParseLatencyP50Nanos();
+        totals.parseLatencyP99 = metrics.getParseLatencyP99Nanos();
+        totals.executeLatencyP50 = metrics.getExecuteLatencyP50Nanos();
+        totals.executeLatencyP99 = metrics.getExecuteLatencyP99Nanos();
+        totals.commit();
+    }
+
+    @Name("robot.Process")
+    @Label("Robot Simulator Run")
+    @Category("Robot Simulator")
+    static class ProcessEvent extends Event {
+        @Label("Lines")
+        long lines;
+
+        @Label("Process Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long processTime;
+    }
+
+    /**
+     * Like the JMX attributes, the counts are totals since the metrics were created, over every simulator sharing
+     * them, so a run's share is the difference with the event before it when the metrics aren't shared.
+     */
+    @Name("robot.Metrics")
+    @Label("Robot Simulator Metrics")
+    @Description("Totals of a SimulatorMetrics, committed at the end of every run")
+    @Category("Robot Simulator")
+    static class MetricsEvent extends Event {
+        @Label("DEPLOY Lines")
+        long deployLines;
+
+        @Label("PIT Lines")
+        long pitLines;
+
+        @Label("MOVE Lines")
+        long moveLines;
+
+        @Label("LEFT Lines")
+        long leftLines;
+
+        @Label("RIGHT Lines")
+        long rightLines;
+
+        @Label("REPORT Lines")
+        long reportLines;
+
+        @Label("Unparseable Lines")
+        long unparseableLines;
+
+        @Label("Outside Zone Errors")
+        long outsideZoneErrors;
+
+        @Label("PIT Detected Errors")
+        long pitDetectedErrors;
+
+        @Label("Robot Detected Errors")
+        long robotDetectedErrors;
+
+        @Label("Pits Added")
+        long pitsAdded;
+
+        @Label("Bytes Read")
+        @DataAmount(DataAmount.BYTES)
+        long bytesRead;
+
+        @Label("Runs")
+        long runs;
+
+        @Label("Parse Latency P50")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseLatencyP50;
+
+        @Label("Parse Latency P99")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseLatencyP99;
+
+        @Label("Execute Latency P50")
+        @Timespan(Timespan.NANOSECONDS)
+        long executeLatencyP50;
+
+        @Label("Execute Latency P99")
+        @Timespan(Timespan.NANOSECONDS)
+        long executeLatencyP99;
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.Assert.*;
+
+public class TestSimulatorEvents {
+    private static final String SCRIPT = "DEPLOY 0,0,NORTH\nPIT 0,1\nMOVE\nRIGHT\nMOVE\nREPORT\n";
+
+    @Test
+    public void testSimulatorEvents_CommitsProcessEvents() throws Exception {
+        Assume.assumeTrue(SimulatorMetrics.isJfrAvailable());
+
+        SimulatorMetrics metrics = new SimulatorMetrics(SimulatorMetrics.DEFAULT_SAMPLE_INTERVAL, true);
+        Path dump = Files.createTempFile("robot", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("robot.Process");
+            recording.start();
+            new RobotSimulator(10, 10, ParserEngine.BYTE, metrics, DiagnosticLog.discarding()).process(new ByteArrayInputStream(SCRIPT.getBytes(StandardCharsets.US_ASCII)));
+            recording.stop();
+            recording.dump(dump);
+
+            long events = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals("robot.Process"))
+                    .filter(event -> event.getLong("lines") == 6)
+                    .count();
+            assertEquals(1, events);
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    @Test
+    public void testSimulatorEvents_CommitsMetricsTotals() throws Exception {
+        Assume.assumeTrue(SimulatorMetrics.isJfrAvailable());
+
+        SimulatorMetrics metrics = new SimulatorMetrics(1, true);
+        Path dump = Files.createTempFile("robot", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("robot.Metrics");
+            recording.start();
+            RobotSimulator simulator = new RobotSimulator(10, 10, ParserEngine.BYTE, metrics, DiagnosticLog.discarding());
+            simulator.process(new ByteArrayInputStream(SCRIPT.getBytes(StandardCharsets.US_ASCII)));
+            simulator.process(new ByteArrayInputStream("FOO\nDEPLOY 10,0,NORTH\nPIT 1,0\n".getBytes(StandardCharsets.US_ASCII)));
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals("robot.Metrics"))
+                    .collect(Collectors.toList());
+            assertEquals(2, events.size());
+            RecordedEvent first = events.get(0);
+            assertEquals(1, first.getLong("runs"));
+            assertEquals(1, first.getLong("deployLines"));
+            assertEquals(1, first.getLong("pitLines"));
+            assertEquals(2, first.getLong("moveLines"));
+            assertEquals(0, first.getLong("leftLines"));
+            assertEquals(1, first.getLong("rightLines"));
+            assertEquals(1, first.getLong("reportLines"));
+            assertEquals(0, first.getLong("unparseableLines"));
+            assertEquals(1, first.getLong("pitDetectedErrors"));
+            assertEquals(1, first.getLong("pitsAdded"));
+            assertEquals(SCRIPT.length(), first.getLong("bytesRead"));
+            assertTrue(first.getLong("parseLatencyP99") >= first.getLong("parseLatencyP50"));
+            assertTrue(first.getLong("executeLatencyP50") > 0);
+
+            //Totals, the second run adds to the first
+            RecordedEvent second = events.get(1);
+            assertEquals(2, second.getLong("runs"));
+            assertEquals(2, second.getLong("deployLines"));
+            assertEquals(2, second.getLong("pitLines"));
+            assertEquals(1, second.getLong("unparseableLines"));
+            assertEquals(1, second.getLong("outsideZoneErrors"));
+            assertEquals(1, second.getLong("robotDetectedErrors"));
+        } finally {
+            Files.delete(dump);
+        }
+    }
+}
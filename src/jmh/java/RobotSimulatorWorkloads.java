@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * The code measured by the JMH benchmarks of the benchmark package.
+ * <p>
+ * JMH refuses benchmark classes in the default package, and classes of a named package can't see the default
+ * package, so the benchmarks look the workloads up once through {@link #create(String, String...)} and then only call
+ * {@link LongSupplier#getAsLong()}. Each call runs a fixed number of commands and returns a checksum.
+ */
+public class RobotSimulatorWorkloads {
+    public static final int LINES_PER_CALL = 16 * 1024;
+
+    private static final String[] PARSED_LINES = {
+            "DEPLOY 3,4,NORTH", "PIT 5,5", "PIT 12,7", "MOVE", "MOVE", "LEFT", "RIGHT", "REPORT",
+            "MOVE", "DEPLOY 10,9,EAST", "MOVE", "RIHT", "REPORT", "MOVE", "PIT 1", "LEFT"};
+    //16 lines each, see LINES_PER_CALL
+    private static final String MOVE_HEAVY = "DEPLOY 0,0,NORTH\nPIT 5,5\n"
+            + "MOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nRIGHT\nMOVE\nMOVE\nMOVE\nREPORT\n";
+    private static final String REPORT_HEAVY = "DEPLOY 0,0,NORTH\nMOVE\n"
+            + "REPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\nREPORT\n";
+
+    private RobotSimulatorWorkloads() {
+    }
+
+    /**
+     * @param workload one of "parse" (engine), "move" (pit density in percent), "process" (script, engine, output) or
+     *                 "replay" (script).
+     */
+    public static LongSupplier create(String workload, String... parameters) {
+        switch (workload) {
+            case "parse":
+                return parse(ParserEngine.valueOf(parameters[0]));
+            case "move":
+                return move(Integer.parseInt(parameters[0]));
+            case "process":
+                return process(parameters[0], ParserEngine.valueOf(parameters[1]), parameters[2]);
+            case "replay":
+                return replay(parameters[0]);
+            default:
+                throw new IllegalArgumentException("Unknown workload " + workload);
+        }
+    }
+
+    /**
+     * Parses LINES_PER_CALL lines, no execution.
+     */
+    private static LongSupplier parse(ParserEngine engine) {
+        String[] lines = new String[LINES_PER_CALL];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LINES_PER_CALL; i++) {
+            lines[i] = PARSED_LINES[i % PARSED_LINES.length];
+            text.append(lines[i]).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII));
+        int[] lineStarts = new int[LINES_PER_CALL + 1];
+        for (int i = 0; i < LINES_PER_CALL; i++) {
+            lineStarts[i + 1] = lineStarts[i] + lines[i].length() + 1;
+        }
+        CommandRecord command = new CommandRecord();
+
+        if (engine == ParserEngine.STRING) {
+            return () -> {
+                long checksum = 0;
+                for (String line : lines) {
+                    LineCommandReader.parse(line, command);
+                    checksum += command.x + (command.hasValidArgs ? 1 : 0);
+                }
+                return checksum;
+            };
+        }
+        return () -> {
+            long checksum = 0;
+            for (int i = 0; i < LINES_PER_CALL; i++) {
+                ByteCommandParser.parse(bytes, lineStarts[i], lineStarts[i + 1] - 1, command);
+                checksum += command.x + (command.hasValidArgs ? 1 : 0);
+            }
+            return checksum;
+        };
+    }
+
+    /**
+     * Runs LINES_PER_CALL already parsed MOVE/RIGHT commands on a 1024x1024 board with the given share of pits.
+     */
+    private static LongSupplier move(int pitDensityPercent) {
+        int size = 1024;
+        RobotSimulator simulator = new RobotSimulator(size, size);
+        CountingReportSink sink = new CountingReportSink();
+        CommandRecord command = new CommandRecord();
+        command.set(Command.DEPLOY, true, size / 2, size / 2, 0);
+        simulator.execute(command, sink);
+        Random random = new Random(42);
+        for (long pits = (long) size * size * pitDensityPercent / 100; pits > 0; pits--) {
+            command.set(Command.PIT, true, random.nextInt(size), random.nextInt(size), 0);
+            simulator.execute(command, sink);
+        }
+
+        CommandRecord move = new CommandRecord();
+        move.set(Command.MOVE, true, 0, 0, 0);
+        CommandRecord right = new CommandRecord();
+        right.set(Command.RIGHT, true, 0, 0, 0);
+        return () -> {
+            for (int i = 0; i < LINES_PER_CALL; i++) {
+                simulator.execute((i & 7) == 7 ? right : move, sink);
+            }
+            return sink.events;
+        };
+    }
+
+    /**
+     * Runs the whole process() on LINES_PER_CALL lines of a MOVE_HEAVY or REPORT_HEAVY script, to a SINK, a LIST or
+     * TEXT encoded to a discarding stream.
+     */
+    private static LongSupplier process(String script, ParserEngine engine, String output) {
+        byte[] block = ("MOVE_HEAVY".equals(script) ? MOVE_HEAVY : REPORT_HEAVY).getBytes(StandardCharsets.US_ASCII);
+        int size = block.length * (LINES_PER_CALL / 16);
+        RobotSimulator simulator = new RobotSimulator(engine);
+        CountingReportSink sink = new CountingReportSink();
+        boolean isList = "LIST".equals(output);
+        boolean isText = "TEXT".equals(output);
+        CountingOutputStream bytes = new CountingOutputStream();
+        return () -> {
+            simulator.reset();
+            InputStream input = new RepeatingInputStream(block, size);
+            if (isList) return simulator.process(input).size();
+            if (isText) {
+                simulator.process(input, bytes, ReportFormat.TEXT);
+                return bytes.count;
+            }
+
+            simulator.process(input, sink);
+            return sink.events;
+        };
+    }
+
+    /**
+     * Replays LINES_PER_CALL lines of a MOVE_HEAVY or REPORT_HEAVY script, compiled once with BinaryScript.
+     */
+    private static LongSupplier replay(String script) {
+        byte[] block = ("MOVE_HEAVY".equals(script) ? MOVE_HEAVY : REPORT_HEAVY).getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer binary = BinaryScript.compile(new RepeatingInputStream(block, block.length * (LINES_PER_CALL / 16)));
+        RobotSimulator simulator = new RobotSimulator();
+        CountingReportSink sink = new CountingReportSink();
+        return () -> {
+            simulator.reset();
+            simulator.replay(binary, sink);
+            return sink.events;
+        };
+    }
+
+    /**
+     * The repeating input of TestRobotSimulator.getImpossibleIS, with bulk reads so the generator isn't what's measured.
+     */
+    static class RepeatingInputStream extends InputStream {
+        private final byte[] repeatingBytes;
+        private int position;
+        private long remaining;
+
+        RepeatingInputStream(byte[] repeatingBytes, long size) {
+            this.repeatingBytes = repeatingBytes;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+
+            remaining--;
+            byte value = repeatingBytes[position++];
+            if (position == repeatingBytes.length) position = 0;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (remaining <= 0) return -1;
+
+            int read = (int) Math.min(length, remaining);
+            for (int copied = 0; copied < read; ) {
+                int chunk = Math.min(read - copied, repeatingBytes.length - position);
+                System.arraycopy(repeatingBytes, position, buffer, offset + copied, chunk);
+                copied += chunk;
+                position = (position + chunk) % repeatingBytes.length;
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+
+    static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int value) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            count += length;
+        }
+    }
+}
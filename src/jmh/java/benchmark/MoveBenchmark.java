@@ -0,0 +1,33 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * MOVE validation against the pit storage, for increasingly dense pit fields. Scores are commands per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoveBenchmark {
+    @Param({"0", "10", "50", "90"})
+    public String pitDensityPercent;
+
+    private LongSupplier workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("move", pitDensityPercent);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16 * 1024)
+    public long move() {
+        return workload.getAsLong();
+    }
+}
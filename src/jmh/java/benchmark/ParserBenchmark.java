@@ -0,0 +1,33 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Command parsing only, String based versus byte based parser. Scores are lines per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParserBenchmark {
+    @Param({"STRING", "BYTE"})
+    public String engine;
+
+    private LongSupplier workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("parse", engine);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16 * 1024)
+    public long parse() {
+        return workload.getAsLong();
+    }
+}
@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * End to end RobotSimulator.process on synthetic scripts, MOVE heavy versus REPORT heavy, reporting to a sink, to
+ * the List of the original API or as encoded text. Scores are input lines per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProcessBenchmark {
+    @Param({"MOVE_HEAVY", "REPORT_HEAVY"})
+    public String script;
+
+    @Param({"STRING", "BYTE"})
+    public String engine;
+
+    @Param({"SINK", "LIST", "TEXT"})
+    public String output;
+
+    private LongSupplier workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("process", script, engine, output);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16 * 1024)
+    public long process() {
+        return workload.getAsLong();
+    }
+}
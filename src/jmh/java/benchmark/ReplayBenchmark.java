@@ -0,0 +1,34 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * RobotSimulator.replay of a precompiled binary script, to compare with the same scripts in ProcessBenchmark.
+ * Scores are input lines per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReplayBenchmark {
+    @Param({"MOVE_HEAVY", "REPORT_HEAVY"})
+    public String script;
+
+    private LongSupplier workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("replay", script);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16 * 1024)
+    public long replay() {
+        return workload.getAsLong();
+    }
+}
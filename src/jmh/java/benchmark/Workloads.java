@@ -0,0 +1,21 @@
+package benchmark;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Looks up the workloads of the default package RobotSimulatorWorkloads, which can't be referenced from here.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    static LongSupplier create(String workload, String... parameters) {
+        try {
+            return (LongSupplier) Class.forName("RobotSimulatorWorkloads")
+                    .getMethod("create", String.class, String[].class)
+                    .invoke(null, workload, parameters);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create workload " + workload, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Starts sparse and switches to a bitset once the sparse table would take more memory than the bitset.
+ */
+class AdaptivePitMap implements PitMap {
+    private final int width, height;
+    private final long denseBytes;
+    private PitMap pits;
+    private boolean isDense;
+
+    AdaptivePitMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.denseBytes = BitSetPitMap.bytesFor((long) width * height);
+        this.pits = new SparsePitMap();
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        return pits.contains(x, y);
+    }
+
+    @Override
+    public void add(int x, int y) {
+        pits.add(x, y);
+        if (!isDense && ((SparsePitMap) pits).bytes() > denseBytes) {
+            BitSetPitMap dense = new BitSetPitMap(width, height);
+            pits.forEach(dense::add);
+            pits = dense;
+            isDense = true;
+        }
+    }
+
+    @Override
+    public int size() {
+        return pits.size();
+    }
+
+    @Override
+    public int freeSteps(int x, int y, int dx, int dy, int maxSteps) {
+        return pits.freeSteps(x, y, dx, dy, maxSteps);
+    }
+
+    @Override
+    public void forEach(Visitor visitor) {
+        pits.forEach(visitor);
+    }
+
+    @Override
+    public void clear() {
+        //Whatever the storage turned into is kept, ready for the next run
+        pits.clear();
+    }
+
+    boolean isDense() {
+        return isDense;
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * One tag byte per result: OUTSIDE_ZONE, PIT_DETECTED, ROBOT_DETECTED, or POSITION | Direction.ordinal() followed by
+ * X and Y as zigzag varints. {@link #decode(ByteBuffer, ReportSink)} reads it back.
+ */
+class BinaryReportEncoder extends ReportEncoder {
+    static final int OUTSIDE_ZONE = 0x01;
+    static final int PIT_DETECTED = 0x02;
+    static final int ROBOT_DETECTED = 0x03;
+    //POSITION | Direction.ordinal()
+    static final int POSITION = 0x10;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    BinaryReportEncoder(OutputStream output) {
+        this(output, BUFFER_SIZE);
+    }
+
+    BinaryReportEncoder(OutputStream output, int bufferSize) {
+        super(output, bufferSize);
+    }
+
+    @Override
+    public void onPosition(int x, int y, Direction direction) {
+        reserve();
+        put((byte) (POSITION | direction.ordinal()));
+        putVarint((x << 1) ^ (x >> 31));
+        putVarint((y << 1) ^ (y >> 31));
+    }
+
+    @Override
+    public void onOutsideZone() {
+        reserve();
+        put((byte) OUTSIDE_ZONE);
+    }
+
+    @Override
+    public void onPitDetected() {
+        reserve();
+        put((byte) PIT_DETECTED);
+    }
+
+    @Override
+    public void onRobotDetected() {
+        reserve();
+        put((byte) ROBOT_DETECTED);
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        put((byte) value);
+    }
+
+    /**
+     * Hands every result encoded in [position, limit) of the buffer to the sink, in order. The buffer position is
+     * left untouched.
+     */
+    static void decode(ByteBuffer encoded, ReportSink outputs) {
+        int position = encoded.position();
+        int limit = encoded.limit();
+        int[] coordinates = new int[2];
+        while (position < limit) {
+            int tag = encoded.get(position++);
+            switch (tag) {
+                case OUTSIDE_ZONE:
+                    outputs.onOutsideZone();
+                    break;
+                case PIT_DETECTED:
+                    outputs.onPitDetected();
+                    break;
+                case ROBOT_DETECTED:
+                    outputs.onRobotDetected();
+                    break;
+                default:
+                    if ((tag & ~3) != POSITION) {
+                        throw new IllegalArgumentException("Corrupt binary report: tag " + tag + " at " + (position - 1));
+                    }
+                    for (int i = 0; i < 2; i++) {
+                        int zigzag = 0;
+                        for (int shift = 0; ; shift += 7) {
+                            if (position >= limit || shift > 28) {
+                                throw new IllegalArgumentException("Corrupt binary report: bad number at " + position);
+                            }
+                            byte value = encoded.get(position++);
+                            zigzag |= (value & 0x7F) << shift;
+                            if (value >= 0) break;
+                        }
+                        coordinates[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                    }
+                    outputs.onPosition(coordinates[0], coordinates[1], DIRECTIONS[tag & 3]);
+                    break;
+            }
+        }
+    }
+}
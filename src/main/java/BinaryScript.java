@@ -0,0 +1,366 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Precompiled binary form of a command script, to replay the same script many times without parsing text again.
+ * <p>
+ * The script starts with the 4 bytes "RBS" + version, followed by one record per command:
+ * - MOVE, LEFT, RIGHT, REPORT : 1 byte
+ * - Run of MOVEs              : 1 byte, then the number of MOVEs as a varint
+ * - Run of LEFTs/RIGHTs       : 1 byte holding the net number of right quarter turns, mod 4
+ * - DEPLOY X,Y,F              : 1 byte holding F, then X and Y as zigzag varints
+ * - PIT X,Y                   : 1 byte, then X and Y as zigzag varints
+ * - DEPLOY with bad arguments : 1 byte, it still allows the PITs that follow
+ * - Unrecognised line         : 1 byte, only written where it makes a difference, i.e. right after DEPLOY/PIT
+ * PIT lines with bad arguments or out of place have no effect at all and are dropped. Runs of MOVEs and of rotations are merged, so
+ * the replay runs each run in one step, see {@link RobotSimulator#executeMoves(ReportSink, int)}.
+ * <p>
+ * The lines dropped are logged to a {@link DiagnosticLog} when compiling, with their line numbers, as a replay can't
+ * know about them. The lines that are kept are logged by every replay, without line numbers.
+ * <p>
+ * Replaying a compiled script gives exactly the results of processing its text.
+ */
+final class BinaryScript {
+    static final byte[] MAGIC = {'R', 'B', 'S', 1};
+
+    static final int MOVE = 0x01;
+    static final int LEFT = 0x02;
+    static final int RIGHT = 0x03;
+    static final int REPORT = 0x04;
+    static final int UNRECOGNISED = 0x05;
+    static final int DEPLOY_INVALID = 0x06;
+    static final int PIT = 0x07;
+    static final int MOVE_RUN = 0x08;
+    //TURN | (quarter turns right & 3)
+    static final int TURN = 0x0C;
+    //DEPLOY | directionIndex
+    static final int DEPLOY = 0x10;
+
+    //Opcode plus two 5 byte varints
+    static final int MAX_RECORD_SIZE = 11;
+    static final int WINDOW_SIZE = MappedCommandReader.WINDOW_SIZE;
+
+    private BinaryScript() {
+    }
+
+    /**
+     * Compiles a text script into a heap buffer, ready for {@link RobotSimulator#replay(ByteBuffer, ReportSink)}.
+     */
+    static ByteBuffer compile(InputStream text) {
+        return compile(text, DiagnosticLog.standardError());
+    }
+
+    /**
+     * Same as {@link #compile(InputStream)}, logging the dropped lines to diagnostics.
+     */
+    static ByteBuffer compile(InputStream text, DiagnosticLog diagnostics) {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        try (CommandReader reader = new ByteCommandReader(text)) {
+            compile(reader, binary, diagnostics);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return ByteBuffer.wrap(binary.toByteArray());
+    }
+
+    /**
+     * Compiles a text script file into a binary script file, see {@link RobotSimulator#replay(Path, ReportSink)}.
+     */
+    static void compile(Path text, Path binary) throws IOException {
+        compile(text, binary, DiagnosticLog.standardError());
+    }
+
+    /**
+     * Same as {@link #compile(Path, Path)}, logging the dropped lines to diagnostics.
+     */
+    static void compile(Path text, Path binary, DiagnosticLog diagnostics) throws IOException {
+        try (CommandReader reader = new MappedCommandReader(text);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(binary), 1 << 16)) {
+            compile(reader, output, diagnostics);
+        }
+    }
+
+    static void compile(CommandReader reader, OutputStream output, DiagnosticLog diagnostics) throws IOException {
+        output.write(MAGIC);
+        Encoder encoder = new Encoder(output, diagnostics);
+        CommandRecord command = new CommandRecord();
+        while (reader.next(command)) {
+            encoder.write(command);
+        }
+        encoder.finish();
+    }
+
+    /**
+     * Writes records into a reusable buffer.
+     */
+    static class Encoder {
+        private final OutputStream output;
+        private final DiagnosticLog diagnostics;
+        //Number of the line being written, from 1
+        private long line;
+        private final byte[] buffer = new byte[1 << 16];
+        private int size;
+        //Tracks the simulator's PIT rule: PITs are only kept, and unrecognised lines only matter, while it is true.
+        //Starts true as the script may be replayed on a simulator whose previous input left PITs allowed.
+        private boolean isPitAllowed = true;
+        //The run being merged, at most one of the two is pending
+        private int pendingMoves;
+        private int pendingTurns;
+        private boolean isTurnPending;
+
+        Encoder(OutputStream output) {
+            this(output, DiagnosticLog.discarding());
+        }
+
+        /**
+         * @param diagnostics where the lines dropped are logged, numbered in the order they are written.
+         */
+        Encoder(OutputStream output, DiagnosticLog diagnostics) {
+            this.output = output;
+            this.diagnostics = diagnostics;
+        }
+
+        void write(CommandRecord command) throws IOException {
+            line++;
+            //Room for the pending run and the record
+            if (size > buffer.length - 2 * MAX_RECORD_SIZE) flush();
+
+            if (command.command == Command.MOVE) {
+                writeTurns();
+                isPitAllowed = false;
+                if (++pendingMoves == Integer.MAX_VALUE) writeMoves();
+                return;
+            }
+            if (command.command == Command.LEFT || command.command == Command.RIGHT) {
+                writeMoves();
+                isPitAllowed = false;
+                pendingTurns += command.command == Command.RIGHT ? 1 : 3;
+                isTurnPending = true;
+                return;
+            }
+            writeMoves();
+            writeTurns();
+
+            if (command.command == null) {
+                if (isPitAllowed) {
+                    buffer[size++] = UNRECOGNISED;
+                } else {
+                    diagnostics.report(DiagnosticLog.Kind.UNRECOGNISED_LINE, line);
+                }
+                isPitAllowed = false;
+                return;
+            }
+            switch (command.command) {
+                case DEPLOY:
+                    isPitAllowed = true;
+                    if (!command.hasValidArgs) {
+                        buffer[size++] = DEPLOY_INVALID;
+                        return;
+                    }
+                    buffer[size++] = (byte) (DEPLOY | command.directionIndex);
+                    writeInt(command.x);
+                    writeInt(command.y);
+                    break;
+                case PIT:
+                    if (!command.hasValidArgs) {
+                        diagnostics.report(DiagnosticLog.Kind.INVALID_PIT_ARGUMENTS, line);
+                        return;
+                    }
+                    if (!isPitAllowed) {
+                        diagnostics.report(DiagnosticLog.Kind.PIT_NOT_ALLOWED, line);
+                        return;
+                    }
+
+                    buffer[size++] = PIT;
+                    writeInt(command.x);
+                    writeInt(command.y);
+                    break;
+                case REPORT:
+                    isPitAllowed = false;
+                    buffer[size++] = REPORT;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void writeMoves() {
+            if (pendingMoves == 0) return;
+
+            if (pendingMoves == 1) {
+                buffer[size++] = MOVE;
+            } else {
+                buffer[size++] = MOVE_RUN;
+                writeVarint(pendingMoves);
+            }
+            pendingMoves = 0;
+        }
+
+        private void writeTurns() {
+            if (!isTurnPending) return;
+
+            //Even a net zero turn is kept: it still closes the PIT window
+            buffer[size++] = (byte) (TURN | (pendingTurns & 3));
+            pendingTurns = 0;
+            isTurnPending = false;
+        }
+
+        private void writeInt(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void finish() throws IOException {
+            writeMoves();
+            writeTurns();
+            flush();
+        }
+
+        void flush() throws IOException {
+            output.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    /**
+     * Runs a whole binary script held in [position, limit) of the buffer. The buffer position is left untouched.
+     */
+    static void run(ByteBuffer script, RobotSimulator simulator, ReportSink outputs) {
+        int start = checkMagic(script, script.position(), script.limit());
+        new Interpreter(script, start).run(script.limit(), true, simulator, outputs);
+    }
+
+    /**
+     * Runs a binary script file through memory mapped windows, so it can be bigger than 2 GB.
+     */
+    static void run(Path script, RobotSimulator simulator, ReportSink outputs) throws IOException {
+        try (FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            boolean isFirst = true;
+            while (true) {
+                int windowSize = (int) Math.min(WINDOW_SIZE, size - windowStart);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                boolean isLast = windowStart + windowSize == size;
+                int start = isFirst ? checkMagic(window, 0, windowSize) : 0;
+                isFirst = false;
+
+                //Records never straddle the end of a window: stop short and remap from the first unfinished one
+                int end = new Interpreter(window, start).run(windowSize, isLast, simulator, outputs);
+                if (isLast) return;
+                windowStart += end;
+            }
+        }
+    }
+
+    private static int checkMagic(ByteBuffer script, int start, int limit) {
+        if (limit - start < MAGIC.length) {
+            throw new IllegalArgumentException("Not a binary script: too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (script.get(start + i) != MAGIC[i]) {
+                throw new IllegalArgumentException("Not a binary script, or unsupported version");
+            }
+        }
+        return start + MAGIC.length;
+    }
+
+    /**
+     * Decodes records straight from the buffer and runs them on the simulator's per command entry points.
+     */
+    static class Interpreter {
+        private final ByteBuffer script;
+        private int position;
+
+        Interpreter(ByteBuffer script, int position) {
+            this.script = script;
+            this.position = position;
+        }
+
+        /**
+         * @param isLast false when more of the script follows limit, then it stops before any record that might be cut.
+         * @return where it stopped.
+         */
+        int run(int limit, boolean isLast, RobotSimulator simulator, ReportSink outputs) {
+            int safeLimit = isLast ? limit : limit - MAX_RECORD_SIZE;
+            while (position < safeLimit) {
+                int opcode = script.get(position++);
+                switch (opcode) {
+                    case MOVE:
+                        simulator.executeMove(outputs);
+                        break;
+                    case LEFT:
+                        simulator.executeLeft();
+                        break;
+                    case RIGHT:
+                        simulator.executeRight();
+                        break;
+                    case REPORT:
+                        simulator.executeReport(outputs);
+                        break;
+                    case UNRECOGNISED:
+                        simulator.executeUnrecognised();
+                        break;
+                    case DEPLOY_INVALID:
+                        simulator.executeDeploy(outputs, false, 0, 0, 0);
+                        break;
+                    case PIT:
+                        int pitX = readInt(limit);
+                        simulator.executePit(outputs, true, pitX, readInt(limit));
+                        break;
+                    case MOVE_RUN:
+                        simulator.executeMoves(outputs, readVarint(limit));
+                        break;
+                    case TURN:
+                    case TURN | 1:
+                    case TURN | 2:
+                    case TURN | 3:
+                        simulator.executeTurn(opcode & 3);
+                        break;
+                    case DEPLOY:
+                    case DEPLOY | 1:
+                    case DEPLOY | 2:
+                    case DEPLOY | 3:
+                        int deployX = readInt(limit);
+                        simulator.executeDeploy(outputs, true, deployX, readInt(limit), opcode & 3);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Corrupt binary script: opcode " + opcode + " at " + (position - 1));
+                }
+            }
+            return position;
+        }
+
+        private int readInt(int limit) {
+            int zigzag = readVarint(limit);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private int readVarint(int limit) {
+            int varint = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= limit) break;
+
+                byte value = script.get(position++);
+                varint |= (value & 0x7F) << shift;
+                if (value >= 0) return varint;
+            }
+            throw new IllegalArgumentException("Corrupt binary script: bad number at " + position);
+        }
+    }
+}
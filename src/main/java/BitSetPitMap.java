@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+/**
+ * One bit per cell of a width x height board, indexed by y * width + x, so a lookup is a single bit test.
+ * <p>
+ * PIT does not check the zone limits, so pits can be placed off the board. Those are kept aside and only looked at
+ * for coordinates that are off the board themselves, to keep reporting "PIT Detected" ahead of "Outside Zone".
+ */
+class BitSetPitMap implements PitMap {
+    private final int width, height;
+    private final long[] words;
+    //Indexes of the non zero words, so clear() doesn't have to walk the whole board
+    private int[] usedWords = new int[16];
+    private int usedWordCount;
+    private final SparsePitMap outsidePits = new SparsePitMap();
+    private int size;
+
+    BitSetPitMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = new long[(int) (((long) width * height + 63) >>> 6)];
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        if (isOnBoard(x, y)) {
+            int index = y * width + x;
+            return (words[index >>> 6] & (1L << index)) != 0;
+        }
+        return outsidePits.size() != 0 && outsidePits.contains(x, y);
+    }
+
+    @Override
+    public void add(int x, int y) {
+        if (isOnBoard(x, y)) {
+            int index = y * width + x;
+            long mask = 1L << index;
+            int word = index >>> 6;
+            if ((words[word] & mask) == 0) {
+                if (words[word] == 0) {
+                    if (usedWordCount == usedWords.length) usedWords = Arrays.copyOf(usedWords, usedWordCount * 2);
+                    usedWords[usedWordCount++] = word;
+                }
+                words[word] |= mask;
+                size++;
+            }
+        } else {
+            int outsideSize = outsidePits.size();
+            outsidePits.add(x, y);
+            size += outsidePits.size() - outsideSize;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Visitor visitor) {
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                visitor.visit(index % width, index / width);
+                bits &= bits - 1;
+            }
+        }
+        outsidePits.forEach(visitor);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < usedWordCount; i++) {
+            words[usedWords[i]] = 0;
+        }
+        usedWordCount = 0;
+        outsidePits.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the bytes held by the bitset.
+     */
+    static long bytesFor(long cells) {
+        return ((cells + 63) >>> 6) * 8;
+    }
+
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
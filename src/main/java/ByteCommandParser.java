@@ -0,0 +1,184 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand written command parser working directly on a window of raw (ASCII) bytes.
+ * <p>
+ * It accepts exactly what the String based {@link LineCommandReader} accepts, without building a String per line
+ * and without using exceptions for invalid input:
+ * - The command is everything up to the first space and must match a {@link Command} name exactly.
+ * - The arguments are everything between the first and the second space, separated by commas.
+ * - DEPLOY needs X,Y,F and PIT needs X,Y (extra PIT arguments are ignored, as before).
+ * - Numbers follow Integer.parseInt: an optional sign, at least one digit and no overflow.
+ */
+class ByteCommandParser {
+    private static final byte[] DEPLOY = bytes(Command.DEPLOY.name());
+    private static final byte[] PIT = bytes(Command.PIT.name());
+    private static final byte[] MOVE = bytes(Command.MOVE.name());
+    private static final byte[] LEFT = bytes(Command.LEFT.name());
+    private static final byte[] RIGHT = bytes(Command.RIGHT.name());
+    private static final byte[] REPORT = bytes(Command.REPORT.name());
+    private static final byte[][] DIRECTION_NAMES = new byte[RobotSimulator.DIRECTION_SEQUENCE.length][];
+    private static final long INVALID_NUMBER = Long.MIN_VALUE;
+
+    static {
+        for (int i = 0; i < DIRECTION_NAMES.length; i++) {
+            DIRECTION_NAMES[i] = bytes(RobotSimulator.DIRECTION_SEQUENCE[i].name());
+        }
+    }
+
+    private ByteCommandParser() {
+    }
+
+    /**
+     * Parses the line held in [start, end) of the buffer, without its line terminator.
+     */
+    static void parse(ByteBuffer buffer, int start, int end, CommandRecord command) {
+        int commandEnd = indexOf(buffer, start, end, (byte) ' ');
+        Command mainCommand = matchCommand(buffer, start, commandEnd);
+        if (mainCommand == null) {
+            command.set(null, false, 0, 0, 0);
+            return;
+        }
+        if (mainCommand != Command.DEPLOY && mainCommand != Command.PIT) {
+            command.set(mainCommand, true, 0, 0, 0);
+            return;
+        }
+
+        if (commandEnd == end) {
+            command.set(mainCommand, false, 0, 0, 0);
+            return;
+        }
+        int argsStart = commandEnd + 1;
+        int argsEnd = indexOf(buffer, argsStart, end, (byte) ' ');
+
+        int xEnd = indexOf(buffer, argsStart, argsEnd, (byte) ',');
+        long x = parseInt(buffer, argsStart, xEnd);
+        if (x == INVALID_NUMBER || xEnd == argsEnd) {
+            command.set(mainCommand, false, 0, 0, 0);
+            return;
+        }
+        int yEnd = indexOf(buffer, xEnd + 1, argsEnd, (byte) ',');
+        long y = parseInt(buffer, xEnd + 1, yEnd);
+        if (y == INVALID_NUMBER) {
+            command.set(mainCommand, false, 0, 0, 0);
+            return;
+        }
+        if (mainCommand == Command.PIT) {
+            command.set(mainCommand, true, (int) x, (int) y, 0);
+            return;
+        }
+
+        if (yEnd == argsEnd) {
+            command.set(mainCommand, false, 0, 0, 0);
+            return;
+        }
+        int directionEnd = indexOf(buffer, yEnd + 1, argsEnd, (byte) ',');
+        int directionIndex = matchDirection(buffer, yEnd + 1, directionEnd);
+        //Trailing commas are dropped by String.split, anything else makes a fourth argument
+        for (int i = directionEnd; i < argsEnd; i++) {
+            if (buffer.get(i) != ',') {
+                directionIndex = -1;
+                break;
+            }
+        }
+        if (directionIndex < 0) {
+            command.set(mainCommand, false, 0, 0, 0);
+            return;
+        }
+        command.set(mainCommand, true, (int) x, (int) y, directionIndex);
+    }
+
+    /**
+     * Parses a fleet line "R&lt;id&gt; COMMAND ...", see {@link FleetSimulator}. Lines without a valid robot id up to
+     * maxRobots - 1 are unrecognised commands.
+     */
+    static void parseAddressed(ByteBuffer buffer, int start, int end, int maxRobots, CommandRecord command) {
+        int idEnd = indexOf(buffer, start, end, (byte) ' ');
+        long robot = INVALID_NUMBER;
+        if (idEnd - start > 1 && buffer.get(start) == 'R' && isDigit(buffer.get(start + 1))) {
+            robot = parseInt(buffer, start + 1, idEnd);
+        }
+        if (robot == INVALID_NUMBER || robot >= maxRobots || idEnd == end) {
+            command.set(null, false, 0, 0, 0);
+            command.robot = -1;
+            return;
+        }
+        parse(buffer, idEnd + 1, end, command);
+        command.robot = (int) robot;
+    }
+
+    private static Command matchCommand(ByteBuffer buffer, int start, int end) {
+        switch (end - start) {
+            case 3:
+                return matches(buffer, start, PIT) ? Command.PIT : null;
+            case 4:
+                if (matches(buffer, start, MOVE)) return Command.MOVE;
+                return matches(buffer, start, LEFT) ? Command.LEFT : null;
+            case 5:
+                return matches(buffer, start, RIGHT) ? Command.RIGHT : null;
+            case 6:
+                if (matches(buffer, start, DEPLOY)) return Command.DEPLOY;
+                return matches(buffer, start, REPORT) ? Command.REPORT : null;
+            default:
+                return null;
+        }
+    }
+
+    private static int matchDirection(ByteBuffer buffer, int start, int end) {
+        for (int i = 0; i < DIRECTION_NAMES.length; i++) {
+            if (DIRECTION_NAMES[i].length == end - start && matches(buffer, start, DIRECTION_NAMES[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the int value of [start, end), widened to long, or INVALID_NUMBER.
+     */
+    private static long parseInt(ByteBuffer buffer, int start, int end) {
+        if (start == end) return INVALID_NUMBER;
+
+        boolean isNegative = false;
+        byte first = buffer.get(start);
+        if (first == '-' || first == '+') {
+            isNegative = first == '-';
+            if (++start == end) return INVALID_NUMBER;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) return INVALID_NUMBER;
+
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) return INVALID_NUMBER;
+        }
+        if (isNegative) return -value;
+
+        return value > Integer.MAX_VALUE ? INVALID_NUMBER : value;
+    }
+
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    private static boolean matches(ByteBuffer buffer, int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) return i;
+        }
+        return end;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the input through one reusable byte buffer and hands each line to {@link ByteCommandParser}.
+ * Lines end in \n, \r or \r\n, like BufferedReader.readLine. A line longer than the buffer is parsed from its first
+ * buffer full of bytes and the rest of it is skipped, so memory stays constant whatever the input looks like.
+ */
+class ByteCommandReader implements CommandReader {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private InputStream input;
+    //Parse "R<id> " prefixed fleet lines for robot ids below this, 0 for plain lines
+    private final int maxRobots;
+    private final byte[] buffer;
+    private final ByteBuffer window;
+    //Input offset of buffer[0]
+    private long bufferStart;
+    private int lineStart, scanPosition, limit;
+    private boolean isEndOfInput;
+    private boolean isAfterCarriageReturn;
+    private boolean isSkippingOverlongLine;
+
+    ByteCommandReader(InputStream input) {
+        this(input, BUFFER_SIZE);
+    }
+
+    ByteCommandReader(InputStream input, int bufferSize) {
+        this(input, bufferSize, 0);
+    }
+
+    ByteCommandReader(InputStream input, int bufferSize, int maxRobots) {
+        this.input = input;
+        this.maxRobots = maxRobots;
+        this.buffer = new byte[bufferSize];
+        this.window = ByteBuffer.wrap(buffer);
+    }
+
+    @Override
+    public boolean next(CommandRecord command) throws IOException {
+        scan:
+        while (true) {
+            //A \n right after a \r terminator belongs to the same line break
+            if (isAfterCarriageReturn && lineStart < limit) {
+                isAfterCarriageReturn = false;
+                if (buffer[lineStart] == '\n') {
+                    lineStart++;
+                    scanPosition = Math.max(scanPosition, lineStart);
+                }
+            }
+
+            for (int i = scanPosition; i < limit; i++) {
+                byte value = buffer[i];
+                if (value == '\n' || value == '\r') {
+                    int start = lineStart;
+                    isAfterCarriageReturn = value == '\r';
+                    lineStart = scanPosition = i + 1;
+                    if (isSkippingOverlongLine) {
+                        isSkippingOverlongLine = false;
+                        continue scan;
+                    }
+                    parse(start, i, command);
+                    return true;
+                }
+            }
+            scanPosition = limit;
+
+            if (isEndOfInput) {
+                if (lineStart < limit && !isSkippingOverlongLine) {
+                    parse(lineStart, limit, command);
+                    lineStart = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            if (lineStart == 0 && limit == buffer.length) {
+                //No line break in a full buffer: keep the head of the line, drop the rest
+                boolean shouldParse = !isSkippingOverlongLine;
+                if (shouldParse) {
+                    parse(0, limit, command);
+                }
+                isSkippingOverlongLine = true;
+                bufferStart += limit;
+                lineStart = scanPosition = limit = 0;
+                if (shouldParse) return true;
+            } else if (lineStart > 0) {
+                bufferStart += lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+                limit -= lineStart;
+                scanPosition -= lineStart;
+                lineStart = 0;
+            }
+
+            int read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                isEndOfInput = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    @Override
+    public long resumeOffset() {
+        if (isSkippingOverlongLine) return -1;
+        if (!isAfterCarriageReturn) return bufferStart + lineStart;
+
+        //The line break may be a \r\n whose \n isn't read yet
+        if (lineStart < limit) return bufferStart + lineStart + (buffer[lineStart] == '\n' ? 1 : 0);
+        return isEndOfInput ? bufferStart + lineStart : -1;
+    }
+
+    /**
+     * Starts over on another input, reusing the buffer.
+     */
+    void reset(InputStream input) {
+        this.input = input;
+        bufferStart = 0;
+        lineStart = scanPosition = limit = 0;
+        isEndOfInput = isAfterCarriageReturn = isSkippingOverlongLine = false;
+    }
+
+    private void parse(int start, int end, CommandRecord command) {
+        if (maxRobots > 0) {
+            ByteCommandParser.parseAddressed(window, start, end, maxRobots, command);
+        } else {
+            ByteCommandParser.parse(window, start, end, command);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Board cells packed into a primitive long, x in the high half and y in the low half, and the hashing of such keys
+ * shared by the open addressing tables, see {@link SparsePitMap} and {@link LongIntMap}.
+ */
+final class Cells {
+    private Cells() {
+    }
+
+    static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int y(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Murmur3 finalizer: every bit of the value affects every bit of the result.
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * @return the home slot of the key in a table of mask + 1 slots, a power of two. Neighbouring cells are spread
+     * over the whole table.
+     */
+    static int slot(long key, int mask) {
+        return (int) mix(key) & mask;
+    }
+}
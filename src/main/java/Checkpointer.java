@@ -0,0 +1,262 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Periodic snapshots of a {@link RobotSimulator} into a journal file, so a long run restarted after a crash resumes
+ * from its last snapshot instead of replaying the whole input, see {@link RobotSimulator#process(Path, ReportSink,
+ * Checkpointer)}.
+ * <p>
+ * The journal is a sequence of records, each one [int length][int CRC32 of the body][body] with the body:
+ * long input offset, int x, int y, byte directionIndex, byte flags (activated, PIT allowed), int pit count and the
+ * x, y of every pit added since the previous record. Snapshots are incremental: restoring replays the pits of every
+ * record and keeps the state of the last one. A record cut short by a crash fails its length or CRC check and is
+ * dropped, along with anything after it.
+ * <p>
+ * Records are encoded and written, and the file forced to disk, by a background thread. The processing thread only
+ * copies the new pits into a queue and never waits for the disk: when the queue is full the snapshot is skipped and
+ * its pits go into the next one.
+ * <p>
+ * Results reported between the last snapshot and a crash are reported again after resuming.
+ */
+class Checkpointer implements Closeable {
+    static final int QUEUE_SIZE = 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int STATE_SIZE = 8 + 4 + 4 + 1 + 1 + 4;
+    private static final int ACTIVATED = 1;
+    private static final int PIT_ALLOWED = 2;
+    //Tells the writer thread to stop
+    private static final Snapshot END = new Snapshot();
+
+    final int interval;
+    private final Snapshot restored;
+    private final FileChannel channel;
+    private final BlockingQueue<Snapshot> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread writer;
+    private volatile IOException writeFailure;
+    //Pits added since the last queued snapshot, as x, y pairs
+    private int[] newPits = new int[64];
+    private int newPitCount;
+    //Last snapshot the queue had no room for, written on close
+    private Snapshot skipped;
+    //Only the writer thread updates it, read from any thread
+    private volatile long written;
+    private boolean isClosed;
+
+    /**
+     * Opens the journal, creating it if needed, restores the last snapshot and drops any damaged tail.
+     *
+     * @param journal  the journal file.
+     * @param interval number of input lines between snapshots.
+     */
+    Checkpointer(Path journal, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid interval " + interval);
+        }
+        this.interval = interval;
+        this.channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Snapshot state = new Snapshot();
+            long validSize = read(channel, state);
+            this.restored = validSize == 0 ? null : state;
+            channel.truncate(validSize);
+            channel.position(validSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        writer = new Thread(this::write, "robot-checkpoint-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the state saved by the last complete snapshot of the journal, null for a new journal.
+     */
+    Snapshot restored() {
+        return restored;
+    }
+
+    /**
+     * @return the input offset to resume from: that of the last snapshot, 0 for a new journal.
+     */
+    long resumeOffset() {
+        return restored == null ? 0 : restored.inputOffset;
+    }
+
+    /**
+     * @return number of snapshots written so far, for tests.
+     */
+    long written() {
+        return written;
+    }
+
+    /**
+     * Records a pit new to the simulator, to go into the next snapshot.
+     */
+    void onPit(int x, int y) {
+        if (newPitCount * 2 == newPits.length) newPits = Arrays.copyOf(newPits, newPits.length * 2);
+        newPits[newPitCount * 2] = x;
+        newPits[newPitCount * 2 + 1] = y;
+        newPitCount++;
+    }
+
+    /**
+     * Queues a snapshot of the state after the line ending at inputOffset, unless the writer is behind.
+     */
+    void checkpoint(long inputOffset, int x, int y, int directionIndex, boolean isActivated, boolean isPitAllowed) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.set(inputOffset, x, y, directionIndex, isActivated, isPitAllowed);
+        snapshot.pits = Arrays.copyOf(newPits, newPitCount * 2);
+        snapshot.pitCount = newPitCount;
+        if (queue.offer(snapshot)) {
+            newPitCount = 0;
+            skipped = null;
+        } else {
+            skipped = snapshot;
+        }
+    }
+
+    /**
+     * Writes any skipped snapshot, waits for the writer thread and closes the journal.
+     *
+     * @throws IOException the first write failure, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) return;
+        isClosed = true;
+        try {
+            if (skipped != null) queue.put(skipped);
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (writeFailure != null) throw writeFailure;
+    }
+
+    private void write() {
+        ByteBuffer record = ByteBuffer.allocate(1024);
+        CRC32 crc = new CRC32();
+        try {
+            for (Snapshot snapshot = queue.take(); snapshot != END; snapshot = queue.take()) {
+                if (writeFailure != null) continue;
+
+                int bodySize = STATE_SIZE + snapshot.pitCount * 8;
+                if (record.capacity() < HEADER_SIZE + bodySize) record = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+                record.clear();
+                record.position(HEADER_SIZE);
+                record.putLong(snapshot.inputOffset).putInt(snapshot.x).putInt(snapshot.y);
+                record.put((byte) snapshot.directionIndex);
+                record.put((byte) ((snapshot.isActivated ? ACTIVATED : 0) | (snapshot.isPitAllowed ? PIT_ALLOWED : 0)));
+                record.putInt(snapshot.pitCount);
+                for (int i = 0; i < snapshot.pitCount * 2; i++) record.putInt(snapshot.pits[i]);
+                crc.reset();
+                crc.update(record.array(), HEADER_SIZE, bodySize);
+                record.putInt(0, bodySize).putInt(4, (int) crc.getValue());
+                record.flip();
+
+                try {
+                    while (record.hasRemaining()) channel.write(record);
+                    channel.force(false);
+                    written++;
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replays every complete record of the journal into state.
+     *
+     * @return the size of the complete records, i.e. where the damaged tail if any starts.
+     */
+    private static long read(FileChannel channel, Snapshot state) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer body = ByteBuffer.allocate(1024);
+        CRC32 crc = new CRC32();
+        int[] pits = new int[0];
+        int pitCount = 0;
+        long position = 0;
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int bodySize = header.getInt(0);
+            if (bodySize < STATE_SIZE || (bodySize - STATE_SIZE) % 8 != 0 || position + HEADER_SIZE + bodySize > size) break;
+
+            if (body.capacity() < bodySize) body = ByteBuffer.allocate(bodySize);
+            body.clear().limit(bodySize);
+            readFully(channel, body, position + HEADER_SIZE);
+            crc.reset();
+            crc.update(body.array(), 0, bodySize);
+            if ((int) crc.getValue() != header.getInt(4)) break;
+
+            body.flip();
+            long inputOffset = body.getLong();
+            int x = body.getInt();
+            int y = body.getInt();
+            int directionIndex = body.get() & 3;
+            int flags = body.get();
+            int recordPits = body.getInt();
+            if (recordPits != (bodySize - STATE_SIZE) / 8) break;
+
+            state.set(inputOffset, x, y, directionIndex, (flags & ACTIVATED) != 0, (flags & PIT_ALLOWED) != 0);
+            if ((pitCount + recordPits) * 2 > pits.length) {
+                pits = Arrays.copyOf(pits, Math.max((pitCount + recordPits) * 2, pits.length * 2));
+            }
+            for (int i = 0; i < recordPits * 2; i++) pits[pitCount * 2 + i] = body.getInt();
+            pitCount += recordPits;
+            position += HEADER_SIZE + bodySize;
+        }
+        state.pits = pits;
+        state.pitCount = pitCount;
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Journal shrank while reading it");
+            position += read;
+        }
+    }
+
+    /**
+     * The simulator state after the line ending at inputOffset. When restored from a journal, pits holds every pit,
+     * otherwise only those added since the previous snapshot.
+     */
+    static class Snapshot {
+        long inputOffset;
+        int x, y;
+        int directionIndex;
+        boolean isActivated;
+        boolean isPitAllowed;
+        //x, y pairs
+        int[] pits;
+        int pitCount;
+
+        void set(long inputOffset, int x, int y, int directionIndex, boolean isActivated, boolean isPitAllowed) {
+            this.inputOffset = inputOffset;
+            this.x = x;
+            this.y = y;
+            this.directionIndex = directionIndex;
+            this.isActivated = isActivated;
+            this.isPitAllowed = isPitAllowed;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pulls commands off an input one line at a time, decoding each line into a reusable {@link CommandRecord}.
+ */
+interface CommandReader extends Closeable {
+    /**
+     * Decodes the next line into the record.
+     *
+     * @param command the record to overwrite.
+     * @return false once the input is exhausted.
+     */
+    boolean next(CommandRecord command) throws IOException;
+
+    /**
+     * Where to restart reading to get the lines after the last one returned, see {@link Checkpointer}.
+     *
+     * @return the input byte offset, or -1 when it is unknown right now or not tracked by this reader.
+     */
+    default long resumeOffset() {
+        return -1;
+    }
+}
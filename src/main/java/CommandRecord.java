@@ -0,0 +1,22 @@
+/**
+ * One decoded input line. Instances are mutable and reused for every line, so nothing is allocated per command.
+ */
+class CommandRecord {
+    //null when the line is not a known command
+    Command command;
+    //Only meaningful for DEPLOY and PIT, false when X,Y(,F) could not be parsed
+    boolean hasValidArgs;
+    int x, y;
+    //Index into RobotSimulator.DIRECTION_SEQUENCE
+    int directionIndex;
+    //Robot named by an "R<id> " prefix, only parsed for FleetSimulator, -1 when missing or invalid
+    int robot = -1;
+
+    void set(Command command, boolean hasValidArgs, int x, int y, int directionIndex) {
+        this.command = command;
+        this.hasValidArgs = hasValidArgs;
+        this.x = x;
+        this.y = y;
+        this.directionIndex = directionIndex;
+    }
+}
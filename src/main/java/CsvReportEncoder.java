@@ -0,0 +1,52 @@
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One CSV row per result under an "event,x,y,direction" header, e.g. "POSITION,1,0,EAST" or "PIT_DETECTED,,,".
+ */
+class CsvReportEncoder extends ReportEncoder {
+    private static final byte[] HEADER = "event,x,y,direction\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] POSITION = "POSITION,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OUTSIDE_ZONE = "OUTSIDE_ZONE,,,\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PIT_DETECTED = "PIT_DETECTED,,,\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROBOT_DETECTED = "ROBOT_DETECTED,,,\n".getBytes(StandardCharsets.US_ASCII);
+
+    CsvReportEncoder(OutputStream output) {
+        this(output, BUFFER_SIZE);
+    }
+
+    CsvReportEncoder(OutputStream output, int bufferSize) {
+        super(output, bufferSize);
+        put(HEADER);
+    }
+
+    @Override
+    public void onPosition(int x, int y, Direction direction) {
+        reserve();
+        put(POSITION);
+        putInt(x);
+        put((byte) ',');
+        putInt(y);
+        put((byte) ',');
+        putDirection(direction);
+        put((byte) '\n');
+    }
+
+    @Override
+    public void onOutsideZone() {
+        reserve();
+        put(OUTSIDE_ZONE);
+    }
+
+    @Override
+    public void onPitDetected() {
+        reserve();
+        put(PIT_DETECTED);
+    }
+
+    @Override
+    public void onRobotDetected() {
+        reserve();
+        put(ROBOT_DETECTED);
+    }
+}
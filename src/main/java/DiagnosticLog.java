@@ -0,0 +1,299 @@
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where {@link RobotSimulator} logs the lines it can't parse or has to ignore, as its contract asks, without letting a
+ * corrupt input turn into a flood of synchronized System.err writes.
+ * <p>
+ * {@link #report(Kind, long)} only bumps counters on the processing thread. Of each kind the first messages are logged,
+ * then about one in sampleEvery, drawn at random, and no more than messagesPerSecond overall; those go through a
+ * bounded queue to a background thread that does the writing. Everything else is only counted, and summed up per kind,
+ * with the first and last line numbers seen and a uniform sample of LINE_SAMPLES of them, every few seconds while
+ * messages are being suppressed and on {@link #close()}.
+ * <p>
+ * Line numbers are those of the stream being processed, so a summary's line numbers only mean something for a
+ * log that serves one stream at a time. The {@link #standardError()} and {@link #discarding()} logs are shared by
+ * simulators on any number of threads, so their summaries leave them out, and they don't track them. Their counters
+ * are LongAdders, like SimulatorMetrics', so threads on corrupt input don't contend on them. Where the line isn't
+ * known, e.g. for binary scripts, whose compilation drops and merges lines, messages go without one and the line
+ * ranges are left as they were.
+ */
+class DiagnosticLog implements Closeable {
+    static final int DEFAULT_MESSAGES_PER_SECOND = 100;
+    static final int DEFAULT_SAMPLE_EVERY = 1000;
+    //Messages of a kind always logged before sampling starts
+    static final int BURST = 10;
+    static final int QUEUE_SIZE = 1024;
+    //Line numbers of a kind kept for its summary
+    static final int LINE_SAMPLES = 8;
+    static final long SUMMARY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Message END = new Message(null, 0);
+
+    enum Kind {
+        UNRECOGNISED_LINE("Unrecognised command"),
+        INVALID_DEPLOY_ARGUMENTS("DEPLOY arguments are not X,Y,F"),
+        INVALID_PIT_ARGUMENTS("PIT arguments are not X,Y"),
+        PIT_NOT_ALLOWED("PIT ignored, it does not follow a DEPLOY or another PIT");
+
+        final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final PrintStream output;
+    private final int messagesPerSecond;
+    private final int sampleEvery;
+    //Whether the lines reported may come from different streams, so line ranges don't mean anything
+    private final boolean isShared;
+    private final LongAdder[] counts = new LongAdder[KINDS.length];
+    //Only written by logs that aren't shared, first line -1 until a kind is first seen
+    private final AtomicLongArray firstLines = new AtomicLongArray(KINDS.length);
+    private final AtomicLongArray lastLines = new AtomicLongArray(KINDS.length);
+    //Reservoir of LINE_SAMPLES line numbers per kind, out of the tracked ones
+    private final AtomicLongArray tracked = new AtomicLongArray(KINDS.length);
+    private final AtomicLongArray sampledLines = new AtomicLongArray(KINDS.length * LINE_SAMPLES);
+    private final AtomicLongArray logged = new AtomicLongArray(KINDS.length);
+    //Rate limit: messages left in the current one second window
+    private final AtomicLong tokens = new AtomicLong();
+    private volatile long windowStart;
+    private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread writer;
+    private volatile boolean isClosed;
+
+    DiagnosticLog(PrintStream output) {
+        this(output, DEFAULT_MESSAGES_PER_SECOND, DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * @param output            where messages and summaries are written, by a background thread.
+     * @param messagesPerSecond most messages logged per second, all kinds together.
+     * @param sampleEvery       after the first BURST messages of a kind, about one in this many is logged.
+     */
+    DiagnosticLog(PrintStream output, int messagesPerSecond, int sampleEvery) {
+        this(output, messagesPerSecond, sampleEvery, false);
+    }
+
+    /**
+     * @param output            where messages and summaries are written, by a background thread.
+     * @param messagesPerSecond most messages logged per second, all kinds together.
+     * @param sampleEvery       after the first BURST messages of a kind, about one in this many is logged.
+     * @param isShared          whether simulators on different streams report to it, which leaves the first and last
+     *                          lines out of the summaries.
+     */
+    DiagnosticLog(PrintStream output, int messagesPerSecond, int sampleEvery, boolean isShared) {
+        if (messagesPerSecond <= 0 || sampleEvery <= 0) {
+            throw new IllegalArgumentException("Invalid rate " + messagesPerSecond + " or sampling " + sampleEvery);
+        }
+        this.output = output;
+        this.messagesPerSecond = messagesPerSecond;
+        this.sampleEvery = sampleEvery;
+        this.isShared = isShared;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            firstLines.set(i, -1);
+        }
+        this.windowStart = System.nanoTime();
+        this.tokens.set(messagesPerSecond);
+        writer = new Thread(this::write, "robot-diagnostic-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the log to System.err shared by every simulator that isn't given one, summed up at JVM exit.
+     */
+    static DiagnosticLog standardError() {
+        return StandardError.LOG;
+    }
+
+    /**
+     * @return a shared log that counts but writes nothing, for runs whose lines are accounted for elsewhere.
+     */
+    static DiagnosticLog discarding() {
+        return Discarding.LOG;
+    }
+
+    private static class Discarding {
+        static final DiagnosticLog LOG = new DiagnosticLog(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int value) {
+            }
+        }), DEFAULT_MESSAGES_PER_SECOND, DEFAULT_SAMPLE_EVERY, true);
+    }
+
+    private static class StandardError {
+        static final DiagnosticLog LOG = new DiagnosticLog(System.err, DEFAULT_MESSAGES_PER_SECOND, DEFAULT_SAMPLE_EVERY, true);
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(LOG::close, "robot-diagnostic-log-summary"));
+        }
+    }
+
+    /**
+     * Counts one occurrence, and queues a message for it if sampling, rate and queue allow. Never blocks.
+     *
+     * @param line the input line number, from 1, or 0 when unknown.
+     */
+    void report(Kind kind, long line) {
+        int index = kind.ordinal();
+        counts[index].increment();
+        if (!isShared && line > 0) {
+            if (firstLines.get(index) < 0) firstLines.lazySet(index, line);
+            lastLines.lazySet(index, line);
+            sampleLine(index, line);
+        }
+
+        //logged only changes when a message goes out, so reading it is cheap from any number of threads
+        if (logged.get(index) >= BURST && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) return;
+        if (!acquire()) return;
+        if (queue.offer(new Message(kind, line))) logged.incrementAndGet(index);
+    }
+
+    /**
+     * Keeps the line with probability LINE_SAMPLES out of the lines of its kind so far, in place of a random one, so
+     * that every line is equally likely to be in the sample. Only called for a log that isn't shared, by one thread at
+     * a time.
+     */
+    private void sampleLine(int index, long line) {
+        long seen = tracked.get(index);
+        tracked.lazySet(index, seen + 1);
+        long slot = seen < LINE_SAMPLES ? seen : ThreadLocalRandom.current().nextLong(seen + 1);
+        if (slot < LINE_SAMPLES) sampledLines.lazySet(index * LINE_SAMPLES + (int) slot, line);
+    }
+
+    private boolean acquire() {
+        //Once they have run out, tokens is only read until the next window
+        if (tokens.get() > 0 && tokens.decrementAndGet() >= 0) return true;
+
+        long now = System.nanoTime();
+        long start = windowStart;
+        if (now - start < SECOND_NANOS) return false;
+
+        //First one past the window opens the next one, the others keep racing for its tokens
+        synchronized (tokens) {
+            if (windowStart == start) {
+                windowStart = now;
+                tokens.set(messagesPerSecond);
+            }
+        }
+        return tokens.decrementAndGet() >= 0;
+    }
+
+    long count(Kind kind) {
+        return counts[kind.ordinal()].sum();
+    }
+
+    /**
+     * @return how many messages of that kind were queued to be written.
+     */
+    long logged(Kind kind) {
+        return logged.get(kind.ordinal());
+    }
+
+    /**
+     * Writes the queued messages and a summary of every kind seen, then stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (isClosed) return;
+        isClosed = true;
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        long lastSummary = System.nanoTime();
+        long[] summarised = new long[KINDS.length];
+        try {
+            while (true) {
+                Message message = queue.poll(1, TimeUnit.SECONDS);
+                if (message == END) break;
+                if (message != null) {
+                    output.println((message.line > 0 ? "line " + message.line + ": " : "")
+                            + message.kind.description + " (" + message.kind + ")");
+                }
+
+                if (System.nanoTime() - lastSummary >= SUMMARY_INTERVAL_NANOS) {
+                    lastSummary = System.nanoTime();
+                    if (isSuppressing(summarised)) summarise();
+                }
+            }
+            summarise();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        output.flush();
+    }
+
+    /**
+     * @return whether more was counted than logged since the last call.
+     */
+    private boolean isSuppressing(long[] summarised) {
+        boolean isSuppressing = false;
+        for (int i = 0; i < KINDS.length; i++) {
+            long suppressed = counts[i].sum() - logged.get(i);
+            if (suppressed != summarised[i]) isSuppressing = true;
+            summarised[i] = suppressed;
+        }
+        return isSuppressing;
+    }
+
+    private void summarise() {
+        for (Kind kind : KINDS) {
+            int index = kind.ordinal();
+            long count = counts[index].sum();
+            if (count == 0) continue;
+
+            String summary = kind + ": " + count + " lines, " + (count - logged.get(index)) + " not logged";
+            long first = firstLines.get(index), last = lastLines.get(index);
+            if (!isShared && first > 0 && last > 0) {
+                summary += ", first at line " + first + ", last at line " + last + ", at lines " + sampledLines(index);
+            }
+            output.println(summary);
+        }
+    }
+
+    /**
+     * @return the sampled line numbers of a kind, in order, comma separated.
+     */
+    private String sampledLines(int index) {
+        long[] lines = new long[(int) Math.min(tracked.get(index), LINE_SAMPLES)];
+        for (int i = 0; i < lines.length; i++) lines[i] = sampledLines.get(index * LINE_SAMPLES + i);
+        Arrays.sort(lines);
+
+        StringBuilder sample = new StringBuilder();
+        for (long line : lines) {
+            if (sample.length() > 0) sample.append(", ");
+            sample.append(line);
+        }
+        return sample.toString();
+    }
+
+    private static class Message {
+        final Kind kind;
+        final long line;
+
+        Message(Kind kind, long line) {
+            this.kind = kind;
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Receives the results of {@link FleetSimulator#process(java.io.InputStream, FleetReportSink)}, like
+ * {@link ReportSink} but for the robot each line was addressed to.
+ */
+public interface FleetReportSink {
+    void onPosition(int robot, int x, int y, Direction direction);
+
+    void onOutsideZone(int robot);
+
+    void onPitDetected(int robot);
+
+    /**
+     * "ROBOT Detected: Ignored" -> When trying to deploy/move onto another robot, or to add a pit under any robot.
+     */
+    void onRobotDetected(int robot);
+}
@@ -0,0 +1,546 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Simulation of a fleet of robots sharing one board, following the same rules as {@link RobotSimulator} except that
+ * every line is addressed to a robot by an "R&lt;id&gt; " prefix:
+ * <p>
+ * R0 DEPLOY 0,0,NORTH
+ * R1 DEPLOY 1,0,NORTH
+ * R1 PIT 5,5
+ * R0 RIGHT
+ * R0 MOVE
+ * R0 REPORT
+ * <p>
+ * - Each robot has its own position, direction and activation, and its own DEPLOY/PIT ordering rule.
+ * - Pits are shared by the whole fleet.
+ * - A robot can't be deployed or moved onto another robot, which reports "ROBOT Detected: Ignored".
+ * - A pit can't be added on top of any robot, which reports "ROBOT Detected: Ignored".
+ * - Lines without a valid robot id are ignored.
+ * <p>
+ * The output is exactly the one of running every line in order. The state of the fleet is kept as primitive arrays
+ * indexed by robot id. Lines are read in batches; DEPLOY and PIT lines of a batch are run one at a time, while the
+ * MOVE/LEFT/RIGHT/REPORT lines between them are run in parallel for groups of robots that are too far apart to meet,
+ * each robot's lines still in order. Close it to stop those threads.
+ */
+public class FleetSimulator implements AutoCloseable {
+    static final int DEFAULT_MAX_ROBOTS = 1 << 20;
+    static final int BATCH_SIZE = 1 << 16;
+    //Below this many robots in a run of lines, splitting them into groups costs more than it saves
+    private static final int PARALLEL_MIN_ROBOTS = 64;
+
+    private static final byte NO_EVENT = 0, POSITION = 1, OUTSIDE_ZONE = 2, PIT_DETECTED = 3, ROBOT_DETECTED = 4;
+    private static final byte ACTIVATED = 1, PIT_ALLOWED = 2;
+    private static final long NO_CELL = Long.MIN_VALUE;
+
+    private final int boardWidth, boardHeight;
+    private final int maxRobots;
+    private final ForkJoinPool pool;
+    private final PitMap pits;
+    //Cell of every activated robot -> robot id
+    private final LongIntMap occupancy = new LongIntMap();
+    private final SharedOccupancy sharedOccupancy = new SharedOccupancy();
+
+    //Robot state, struct of arrays indexed by robot id
+    private int[] xCoordinates = new int[0], yCoordinates = new int[0];
+    private byte[] directionIndexes = new byte[0], flags = new byte[0];
+
+    //The current batch of lines, struct of arrays indexed by line
+    private final int[] lineRobots = new int[BATCH_SIZE];
+    private final Command[] lineCommands = new Command[BATCH_SIZE];
+    private final boolean[] lineValidArgs = new boolean[BATCH_SIZE];
+    private final int[] lineXs = new int[BATCH_SIZE], lineYs = new int[BATCH_SIZE];
+    private final byte[] lineDirectionIndexes = new byte[BATCH_SIZE];
+    //What each line of the batch reported, emitted in line order once the batch is done
+    private final byte[] events = new byte[BATCH_SIZE];
+    private final int[] eventXs = new int[BATCH_SIZE], eventYs = new int[BATCH_SIZE];
+    private final byte[] eventDirectionIndexes = new byte[BATCH_SIZE];
+
+    //Scratch space for splitting a run of lines into independent groups of robots, indexed by robot id
+    private int[] phaseStamps = new int[0], moveCounts = new int[0], parents = new int[0], nextInBucket = new int[0];
+    private long[] startCells = new long[0];
+    private int phase;
+
+    FleetSimulator() {
+        this(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parallelism number of threads running independent robots, 1 runs everything on the calling thread.
+     */
+    FleetSimulator(int boardWidth, int boardHeight, int parallelism) {
+        this(boardWidth, boardHeight, parallelism, DEFAULT_MAX_ROBOTS);
+    }
+
+    FleetSimulator(int boardWidth, int boardHeight, int parallelism, int maxRobots) {
+        if (boardWidth <= 0 || boardHeight <= 0) {
+            throw new IllegalArgumentException("Invalid board dimensions " + boardWidth + "x" + boardHeight);
+        }
+        if (parallelism <= 0 || maxRobots <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism + " or fleet size " + maxRobots);
+        }
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.maxRobots = maxRobots;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.pits = PitMap.forBoard(boardWidth, boardHeight);
+    }
+
+    /**
+     * Should process the input and return the report lines, each prefixed by its robot ("R42 1,0,EAST").
+     *
+     * @param input the input.
+     * @return the reported lines, as an immutable list.
+     */
+    public List<String> process(InputStream input) {
+        List<String> outputs = new ArrayList<>();
+        process(input, new FleetReportSink() {
+            @Override
+            public void onPosition(int robot, int x, int y, Direction direction) {
+                outputs.add("R" + robot + " " + x + "," + y + "," + direction.name());
+            }
+
+            @Override
+            public void onOutsideZone(int robot) {
+                outputs.add("R" + robot + " " + ListReportSink.OUTSIDE_ZONE);
+            }
+
+            @Override
+            public void onPitDetected(int robot) {
+                outputs.add("R" + robot + " " + ListReportSink.PIT_DETECTED);
+            }
+
+            @Override
+            public void onRobotDetected(int robot) {
+                outputs.add("R" + robot + " " + ListReportSink.ROBOT_DETECTED);
+            }
+        });
+        return Collections.unmodifiableList(outputs);
+    }
+
+    /**
+     * Processes the input and hands every REPORT and error to the sink, in input order.
+     *
+     * @param input the input.
+     * @param outputs receives the reported positions and errors.
+     */
+    public void process(InputStream input, FleetReportSink outputs) {
+        CommandRecord command = new CommandRecord();
+        try (CommandReader reader = new ByteCommandReader(input, ByteCommandReader.BUFFER_SIZE, maxRobots)) {
+            int lines = 0;
+            while (reader.next(command)) {
+                if (command.robot < 0) continue;
+
+                ensureRobot(command.robot);
+                lineRobots[lines] = command.robot;
+                lineCommands[lines] = command.command;
+                lineValidArgs[lines] = command.hasValidArgs;
+                lineXs[lines] = command.x;
+                lineYs[lines] = command.y;
+                lineDirectionIndexes[lines] = (byte) command.directionIndex;
+                if (++lines == BATCH_SIZE) {
+                    runBatch(lines, outputs);
+                    lines = 0;
+                }
+            }
+            runBatch(lines, outputs);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Stops the threads running independent robots, once the tasks already submitted are done.
+     */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    private void runBatch(int lines, FleetReportSink outputs) {
+        Arrays.fill(events, 0, lines, NO_EVENT);
+
+        //DEPLOY and PIT change what other robots see, everything in between only moves its own robot
+        int phaseStart = 0;
+        for (int line = 0; line < lines; line++) {
+            if (lineCommands[line] == Command.DEPLOY || lineCommands[line] == Command.PIT) {
+                runPhase(phaseStart, line);
+                execute(line, sharedOccupancy);
+                phaseStart = line + 1;
+            }
+        }
+        runPhase(phaseStart, lines);
+
+        for (int line = 0; line < lines; line++) {
+            int robot = lineRobots[line];
+            switch (events[line]) {
+                case POSITION:
+                    outputs.onPosition(robot, eventXs[line], eventYs[line],
+                            RobotSimulator.DIRECTION_SEQUENCE[eventDirectionIndexes[line]]);
+                    break;
+                case OUTSIDE_ZONE:
+                    outputs.onOutsideZone(robot);
+                    break;
+                case PIT_DETECTED:
+                    outputs.onPitDetected(robot);
+                    break;
+                case ROBOT_DETECTED:
+                    outputs.onRobotDetected(robot);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Runs lines [from, to), none of which is a DEPLOY or a PIT.
+     * <p>
+     * In that stretch a robot can only get as far from where it started as its number of MOVEs, so two robots with
+     * fewer MOVEs between them than the distance separating them can't meet. Robots that might meet are grouped with
+     * union-find over a grid of buckets as wide as twice the longest reach, then groups run in parallel.
+     */
+    private void runPhase(int from, int to) {
+        if (from == to) return;
+
+        int stamp = ++phase;
+        int[] robots = new int[Math.min(to - from, 1 << 12)];
+        int robotCount = 0, maxReach = 0;
+        for (int line = from; line < to; line++) {
+            int robot = lineRobots[line];
+            if (phaseStamps[robot] != stamp) {
+                phaseStamps[robot] = stamp;
+                moveCounts[robot] = 0;
+                parents[robot] = robot;
+                if (robotCount == robots.length) robots = Arrays.copyOf(robots, robotCount * 2);
+                robots[robotCount++] = robot;
+            }
+            if (lineCommands[line] == Command.MOVE && (flags[robot] & ACTIVATED) != 0) {
+                maxReach = Math.max(maxReach, ++moveCounts[robot]);
+            }
+        }
+
+        if (pool == null || robotCount < PARALLEL_MIN_ROBOTS) {
+            for (int line = from; line < to; line++) {
+                execute(line, sharedOccupancy);
+            }
+            return;
+        }
+
+        for (int i = 0; i < robotCount; i++) {
+            startCells[robots[i]] = cell(robots[i]);
+        }
+        groupRobots(robots, robotCount, maxReach);
+
+        //Number the groups and lay their robots and lines out contiguously, keeping the line order within each group
+        int[] groupOfRobot = new int[robotCount];
+        int groups = 0;
+        LongIntMap groupIds = new LongIntMap(robotCount);
+        for (int i = 0; i < robotCount; i++) {
+            int root = find(robots[i]);
+            int group = groupIds.get(root);
+            if (group == LongIntMap.MISSING) {
+                group = groups++;
+                groupIds.put(root, group);
+            }
+            groupOfRobot[i] = group;
+            //moveCounts is not needed anymore, reuse it to find the group of a robot
+            moveCounts[robots[i]] = group;
+        }
+        int groupCount = groups;
+        int[] robotStarts = new int[groupCount + 1];
+        int[] groupRobots = new int[robotCount];
+        for (int i = 0; i < robotCount; i++) {
+            robotStarts[groupOfRobot[i] + 1]++;
+        }
+        int[] lineStarts = new int[groupCount + 1];
+        int[] groupLines = new int[to - from];
+        for (int line = from; line < to; line++) {
+            lineStarts[moveCounts[lineRobots[line]] + 1]++;
+        }
+        for (int group = 0; group < groupCount; group++) {
+            robotStarts[group + 1] += robotStarts[group];
+            lineStarts[group + 1] += lineStarts[group];
+        }
+        int[] fill = Arrays.copyOf(robotStarts, groupCount);
+        for (int i = 0; i < robotCount; i++) {
+            groupRobots[fill[groupOfRobot[i]]++] = robots[i];
+        }
+        fill = Arrays.copyOf(lineStarts, groupCount);
+        for (int line = from; line < to; line++) {
+            groupLines[fill[moveCounts[lineRobots[line]]]++] = line;
+        }
+
+        try {
+            pool.submit(() -> IntStream.range(0, groupCount).parallel().forEach(group -> {
+                GroupOccupancy groupOccupancy = new GroupOccupancy(stamp);
+                for (int i = robotStarts[group]; i < robotStarts[group + 1]; i++) {
+                    int robot = groupRobots[i];
+                    if ((flags[robot] & ACTIVATED) != 0) groupOccupancy.local.put(cell(robot), robot);
+                }
+                for (int i = lineStarts[group]; i < lineStarts[group + 1]; i++) {
+                    execute(groupLines[i], groupOccupancy);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        //Move the robots of this phase in the shared occupancy, all removals first so no one is overwritten
+        for (int i = 0; i < robotCount; i++) {
+            if (occupancy.get(startCells[robots[i]]) == robots[i]) occupancy.remove(startCells[robots[i]]);
+        }
+        for (int i = 0; i < robotCount; i++) {
+            if ((flags[robots[i]] & ACTIVATED) != 0) occupancy.put(cell(robots[i]), robots[i]);
+        }
+    }
+
+    private void groupRobots(int[] robots, int robotCount, int maxReach) {
+        if (maxReach == 0) return;
+
+        long bucketSize = 2L * maxReach + 1;
+        LongIntMap buckets = new LongIntMap(robotCount);
+        for (int i = 0; i < robotCount; i++) {
+            int robot = robots[i];
+            if ((flags[robot] & ACTIVATED) == 0) continue;
+
+            long bucket = bucket(xCoordinates[robot], yCoordinates[robot], bucketSize, 0, 0);
+            int head = buckets.get(bucket);
+            nextInBucket[robot] = head;
+            buckets.put(bucket, robot);
+        }
+        for (int i = 0; i < robotCount; i++) {
+            int robot = robots[i];
+            if ((flags[robot] & ACTIVATED) == 0) continue;
+
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    long bucket = bucket(xCoordinates[robot], yCoordinates[robot], bucketSize, dx, dy);
+                    for (int other = buckets.get(bucket); other != LongIntMap.MISSING; other = nextInBucket[other]) {
+                        long distance = Math.abs((long) xCoordinates[robot] - xCoordinates[other])
+                                + Math.abs((long) yCoordinates[robot] - yCoordinates[other]);
+                        if (other != robot && distance <= (long) moveCounts[robot] + moveCounts[other]) {
+                            union(robot, other);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long bucket(int x, int y, long bucketSize, int dx, int dy) {
+        return ((Math.floorDiv(x, bucketSize) + dx) << 32) ^ ((Math.floorDiv(y, bucketSize) + dy) & 0xFFFFFFFFL);
+    }
+
+    private int find(int robot) {
+        while (parents[robot] != robot) {
+            parents[robot] = parents[parents[robot]];
+            robot = parents[robot];
+        }
+        return robot;
+    }
+
+    private void union(int robot, int other) {
+        int root = find(robot), otherRoot = find(other);
+        if (root != otherRoot) parents[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+    }
+
+    private void execute(int line, Occupancy occupancy) {
+        int robot = lineRobots[line];
+        Command command = lineCommands[line];
+        if (command == null) {
+            flags[robot] &= ~PIT_ALLOWED;
+            return;
+        }
+
+        boolean isActivated = (flags[robot] & ACTIVATED) != 0;
+        switch (command) {
+            case DEPLOY:
+                //A DEPLOY line opens the PIT window even when the deploy itself is rejected
+                flags[robot] |= PIT_ALLOWED;
+                if (!lineValidArgs[line]) return;
+
+                deploy(line, robot, occupancy);
+                break;
+            case PIT:
+                if (!isActivated || (flags[robot] & PIT_ALLOWED) == 0 || !lineValidArgs[line]) return;
+
+                if (isOnBoard(lineXs[line], lineYs[line])
+                        && occupancy.robotAt(Cells.key(lineXs[line], lineYs[line])) != LongIntMap.MISSING) {
+                    events[line] = ROBOT_DETECTED;
+                    return;
+                }
+                pits.add(lineXs[line], lineYs[line]);
+                break;
+            case MOVE:
+                flags[robot] &= ~PIT_ALLOWED;
+                if (!isActivated) return;
+
+                move(line, robot, occupancy);
+                break;
+            case LEFT:
+                flags[robot] &= ~PIT_ALLOWED;
+                if (!isActivated) return;
+
+                directionIndexes[robot] = (byte) ((directionIndexes[robot] + 3) % 4);
+                break;
+            case RIGHT:
+                flags[robot] &= ~PIT_ALLOWED;
+                if (!isActivated) return;
+
+                directionIndexes[robot] = (byte) ((directionIndexes[robot] + 1) % 4);
+                break;
+            case REPORT:
+                flags[robot] &= ~PIT_ALLOWED;
+                if (!isActivated) return;
+
+                events[line] = POSITION;
+                eventXs[line] = xCoordinates[robot];
+                eventYs[line] = yCoordinates[robot];
+                eventDirectionIndexes[line] = directionIndexes[robot];
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void deploy(int line, int robot, Occupancy occupancy) {
+        int x = lineXs[line], y = lineYs[line];
+        if (isInvalidMove(line, robot, x, y, occupancy)) return;
+
+        boolean isActivated = (flags[robot] & ACTIVATED) != 0;
+        occupancy.move(robot, isActivated ? cell(robot) : NO_CELL, Cells.key(x, y));
+        xCoordinates[robot] = x;
+        yCoordinates[robot] = y;
+        directionIndexes[robot] = lineDirectionIndexes[line];
+        flags[robot] |= ACTIVATED;
+    }
+
+    private void move(int line, int robot, Occupancy occupancy) {
+        int x = xCoordinates[robot], y = yCoordinates[robot];
+        switch (RobotSimulator.DIRECTION_SEQUENCE[directionIndexes[robot]]) {
+            case NORTH:
+                y++;
+                break;
+            case SOUTH:
+                y--;
+                break;
+            case EAST:
+                x++;
+                break;
+            case WEST:
+                x--;
+                break;
+            default:
+                break;
+        }
+        if (isInvalidMove(line, robot, x, y, occupancy)) return;
+
+        occupancy.move(robot, cell(robot), Cells.key(x, y));
+        xCoordinates[robot] = x;
+        yCoordinates[robot] = y;
+    }
+
+    private boolean isInvalidMove(int line, int robot, int x, int y, Occupancy occupancy) {
+        if (pits.contains(x, y)) {
+            events[line] = PIT_DETECTED;
+            return true;
+        }
+        if (!isOnBoard(x, y)) {
+            events[line] = OUTSIDE_ZONE;
+            return true;
+        }
+        int occupant = occupancy.robotAt(Cells.key(x, y));
+        if (occupant != LongIntMap.MISSING && occupant != robot) {
+            events[line] = ROBOT_DETECTED;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < boardWidth && y >= 0 && y < boardHeight;
+    }
+
+    private long cell(int robot) {
+        return Cells.key(xCoordinates[robot], yCoordinates[robot]);
+    }
+
+    private void ensureRobot(int robot) {
+        if (robot < xCoordinates.length) return;
+
+        int capacity = (int) Math.min(maxRobots, Math.max(16L, Integer.highestOneBit(robot) * 2L));
+        xCoordinates = Arrays.copyOf(xCoordinates, capacity);
+        yCoordinates = Arrays.copyOf(yCoordinates, capacity);
+        directionIndexes = Arrays.copyOf(directionIndexes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        phaseStamps = Arrays.copyOf(phaseStamps, capacity);
+        moveCounts = Arrays.copyOf(moveCounts, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        nextInBucket = Arrays.copyOf(nextInBucket, capacity);
+        startCells = Arrays.copyOf(startCells, capacity);
+    }
+
+    /**
+     * Which robot stands on a cell, as seen by the lines being executed.
+     */
+    private interface Occupancy {
+        int robotAt(long cell);
+
+        void move(int robot, long from, long to);
+    }
+
+    private class SharedOccupancy implements Occupancy {
+        @Override
+        public int robotAt(long cell) {
+            return occupancy.get(cell);
+        }
+
+        @Override
+        public void move(int robot, long from, long to) {
+            if (from != NO_CELL) occupancy.remove(from);
+            occupancy.put(to, robot);
+        }
+    }
+
+    /**
+     * Occupancy for one group of a parallel phase. Robots of the group are tracked locally; the shared map is only
+     * read, for robots that have no line in the phase. Robots of other groups are out of reach by construction.
+     */
+    private class GroupOccupancy implements Occupancy {
+        private final int stamp;
+        private final LongIntMap local = new LongIntMap();
+
+        GroupOccupancy(int stamp) {
+            this.stamp = stamp;
+        }
+
+        @Override
+        public int robotAt(long cell) {
+            int robot = local.get(cell);
+            if (robot != LongIntMap.MISSING) return robot;
+
+            robot = occupancy.get(cell);
+            return robot != LongIntMap.MISSING && phaseStamps[robot] != stamp ? robot : LongIntMap.MISSING;
+        }
+
+        @Override
+        public void move(int robot, long from, long to) {
+            if (from != NO_CELL) local.remove(from);
+            local.put(to, robot);
+        }
+    }
+}
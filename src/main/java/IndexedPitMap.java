@@ -0,0 +1,55 @@
+/**
+ * Any pit storage plus a {@link PitIndex} of its rows and columns, kept up to date by {@link #add(int, int)}, so the
+ * free cells along a ray are found with a binary search whatever the distance.
+ */
+class IndexedPitMap implements PitMap {
+    private final PitMap pits;
+    private final PitIndex index = new PitIndex();
+
+    IndexedPitMap(PitMap pits) {
+        this.pits = pits;
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        return pits.contains(x, y);
+    }
+
+    @Override
+    public void add(int x, int y) {
+        int size = pits.size();
+        pits.add(x, y);
+        if (pits.size() != size) index.add(x, y);
+    }
+
+    @Override
+    public int size() {
+        return pits.size();
+    }
+
+    @Override
+    public void forEach(Visitor visitor) {
+        pits.forEach(visitor);
+    }
+
+    @Override
+    public int freeSteps(int x, int y, int dx, int dy, int maxSteps) {
+        if (pits.size() == 0) return maxSteps;
+
+        int distance = distance(x, y, dx > 0 ? Direction.EAST : dx < 0 ? Direction.WEST : dy > 0 ? Direction.NORTH : Direction.SOUTH);
+        return distance == PitIndex.NONE ? maxSteps : Math.min(maxSteps, distance - 1);
+    }
+
+    /**
+     * @return how many steps from x,y heading that way the nearest pit is, 1 for the next cell, or PitIndex.NONE.
+     */
+    int distance(int x, int y, Direction direction) {
+        return index.distance(x, y, direction);
+    }
+
+    @Override
+    public void clear() {
+        pits.clear();
+        index.clear();
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of durations in power of two buckets of nanoseconds, safe to record into from many threads at once.
+ */
+class LatencyHistogram {
+    //Bucket i holds durations in [2^(i-1), 2^i), bucket 0 holds 0
+    static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    void record(long nanos) {
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)))].increment();
+    }
+
+    long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) counts[i] = buckets[i].sum();
+        return counts;
+    }
+
+    /**
+     * @return the upper bound in nanoseconds of the bucket holding that quantile, 0 when nothing was recorded.
+     */
+    long percentile(double quantile) {
+        long[] counts = counts();
+        long total = 0;
+        for (long count : counts) total += count;
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] != 0) return i == 0 ? 0 : (1L << Math.min(i, 62)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * The original String based parser.
+ */
+class LineCommandReader implements CommandReader {
+    private final BufferedReader reader;
+
+    LineCommandReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input));
+    }
+
+    @Override
+    public boolean next(CommandRecord command) throws IOException {
+        String line = reader.readLine();
+        if (line == null) return false;
+
+        parse(line, command);
+        return true;
+    }
+
+    static void parse(String line, CommandRecord command) {
+        Command mainCommand;
+        String[] commandArgsArray = null;
+
+        String[] commandTokens = line.split(" ");
+        try {
+            mainCommand = Command.valueOf(commandTokens.length == 0 ? "" : commandTokens[0]);
+        } catch (IllegalArgumentException e) {
+            command.set(null, false, 0, 0, 0);
+            return;
+        }
+        if (commandTokens.length > 1) {
+            commandArgsArray = commandTokens[1].split(",");
+        }
+
+        try {
+            switch (mainCommand) {
+                case DEPLOY:
+                    if (commandArgsArray == null || commandArgsArray.length != 3) {
+                        throw new IllegalArgumentException("Invalid command arguments");
+                    }
+                    Direction inputDirection = Direction.valueOf(commandArgsArray[2]);
+                    command.set(mainCommand, true, Integer.parseInt(commandArgsArray[0]),
+                            Integer.parseInt(commandArgsArray[1]),
+                            Arrays.asList(RobotSimulator.DIRECTION_SEQUENCE).indexOf(inputDirection));
+                    break;
+                case PIT:
+                    if (commandArgsArray == null || commandArgsArray.length < 2) {
+                        throw new IllegalArgumentException("Invalid command arguments");
+                    }
+                    command.set(mainCommand, true, Integer.parseInt(commandArgsArray[0]),
+                            Integer.parseInt(commandArgsArray[1]), 0);
+                    break;
+                default:
+                    command.set(mainCommand, true, 0, 0, 0);
+            }
+        } catch (IllegalArgumentException e) {
+            command.set(mainCommand, false, 0, 0, 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
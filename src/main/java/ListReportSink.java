@@ -0,0 +1,47 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the results as the report lines of the original {@link RobotSimulator#process(java.io.InputStream)}.
+ */
+class ListReportSink implements ReportSink {
+    static final String OUTSIDE_ZONE = "Outside Zone: Ignored";
+    static final String PIT_DETECTED = "PIT Detected: Ignored";
+    static final String ROBOT_DETECTED = "ROBOT Detected: Ignored";
+
+    private final List<String> lines = new ArrayList<>();
+    //Reused for every position line, see ReportEncoder
+    private final byte[] line = new byte[ReportEncoder.MAX_RECORD_SIZE];
+
+    @Override
+    public void onPosition(int x, int y, Direction direction) {
+        int size = ReportEncoder.putInt(line, 0, x);
+        line[size++] = ',';
+        size = ReportEncoder.putInt(line, size, y);
+        line[size++] = ',';
+        byte[] name = ReportEncoder.DIRECTION_NAMES[direction.ordinal()];
+        System.arraycopy(name, 0, line, size, name.length);
+        lines.add(new String(line, 0, size + name.length, StandardCharsets.ISO_8859_1));
+    }
+
+    @Override
+    public void onOutsideZone() {
+        lines.add(OUTSIDE_ZONE);
+    }
+
+    @Override
+    public void onPitDetected() {
+        lines.add(PIT_DETECTED);
+    }
+
+    @Override
+    public void onRobotDetected() {
+        lines.add(ROBOT_DETECTED);
+    }
+
+    List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing map from primitive long keys to int values, with linear probing and backward shift deletion.
+ * <p>
+ * Like {@link SparsePitMap}, every slot carries the generation it was written in and only slots of the current
+ * generation are live, so {@link #clear()} is a single increment and the table is reused as is, however large it grew.
+ */
+class LongIntMap {
+    static final int MISSING = -1;
+    //Never current: marks a slot freed by remove()
+    private static final int FREE = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int[] generations;
+    private int generation = 1;
+    private int size;
+
+    LongIntMap() {
+        this(16);
+    }
+
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) * 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        generations = new int[capacity];
+    }
+
+    /**
+     * @return the value for the key, or MISSING.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = Cells.slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (generations[slot] != generation) return MISSING;
+            if (keys[slot] == key) return values[slot];
+        }
+    }
+
+    void put(long key, int value) {
+        int mask = keys.length - 1;
+        for (int slot = Cells.slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (generations[slot] != generation) {
+                keys[slot] = key;
+                values[slot] = value;
+                generations[slot] = generation;
+                if (++size * 2 > keys.length) rehash(keys.length * 2);
+                return;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = Cells.slot(key, mask);
+        while (true) {
+            if (generations[slot] != generation) return;
+            if (keys[slot] == key) break;
+            slot = (slot + 1) & mask;
+        }
+        size--;
+
+        //Shift back the following entries of the cluster that would no longer be reachable
+        int free = slot;
+        for (int next = (free + 1) & mask; generations[next] == generation; next = (next + 1) & mask) {
+            int home = Cells.slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        generations[free] = FREE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        size = 0;
+        if (++generation == FREE) {
+            //Wrapped around after 2^32 clears, old stamps could look current again
+            Arrays.fill(generations, FREE);
+            generation = 1;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldGenerations = generations;
+        keys = new long[capacity];
+        values = new int[capacity];
+        generations = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldGenerations[i] == generation) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
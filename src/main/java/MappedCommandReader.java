@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a command file through read-only memory mapped windows and parses the mapped bytes in place with
+ * {@link ByteCommandParser}, so the data is neither copied into a heap buffer nor decoded to characters.
+ * <p>
+ * A single mapping is limited to 2 GB, so bigger files are walked by remapping the window from the start of the
+ * first unfinished line. Line handling is the same as {@link ByteCommandReader}: a line longer than the window is
+ * parsed from its head and the rest of it is skipped.
+ */
+class MappedCommandReader implements CommandReader {
+    static final int WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int lineStart, scanPosition, limit;
+    private boolean isAfterCarriageReturn;
+    private boolean isSkippingOverlongLine;
+
+    MappedCommandReader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    MappedCommandReader(Path path, int windowSize) throws IOException {
+        this(path, windowSize, 0);
+    }
+
+    /**
+     * @param startOffset where to start reading, e.g. a {@link #resumeOffset()} saved by an earlier run.
+     */
+    MappedCommandReader(Path path, int windowSize, long startOffset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        if (startOffset < 0 || startOffset > fileSize) {
+            channel.close();
+            throw new IllegalArgumentException("Invalid start offset " + startOffset + " for a file of " + fileSize + " bytes");
+        }
+        map(startOffset);
+    }
+
+    @Override
+    public boolean next(CommandRecord command) throws IOException {
+        scan:
+        while (true) {
+            //A \n right after a \r terminator belongs to the same line break
+            if (isAfterCarriageReturn && lineStart < limit) {
+                isAfterCarriageReturn = false;
+                if (window.get(lineStart) == '\n') {
+                    lineStart++;
+                    scanPosition = Math.max(scanPosition, lineStart);
+                }
+            }
+
+            for (int i = scanPosition; i < limit; i++) {
+                byte value = window.get(i);
+                if (value == '\n' || value == '\r') {
+                    int start = lineStart;
+                    isAfterCarriageReturn = value == '\r';
+                    lineStart = scanPosition = i + 1;
+                    if (isSkippingOverlongLine) {
+                        isSkippingOverlongLine = false;
+                        continue scan;
+                    }
+                    ByteCommandParser.parse(window, start, i, command);
+                    return true;
+                }
+            }
+            scanPosition = limit;
+
+            if (windowStart + limit >= fileSize) {
+                if (lineStart < limit && !isSkippingOverlongLine) {
+                    ByteCommandParser.parse(window, lineStart, limit, command);
+                    lineStart = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            if (lineStart == 0 && limit == windowSize) {
+                //No line break in a whole window: keep the head of the line, drop the rest
+                boolean shouldParse = !isSkippingOverlongLine;
+                if (shouldParse) {
+                    ByteCommandParser.parse(window, 0, limit, command);
+                }
+                isSkippingOverlongLine = true;
+                map(windowStart + limit);
+                if (shouldParse) return true;
+            } else {
+                int scanned = scanPosition - lineStart;
+                map(windowStart + lineStart);
+                scanPosition = scanned;
+            }
+        }
+    }
+
+    @Override
+    public long resumeOffset() {
+        if (isSkippingOverlongLine) return -1;
+        if (!isAfterCarriageReturn) return windowStart + lineStart;
+
+        //The line break may be a \r\n whose \n isn't mapped yet
+        if (lineStart < limit) return windowStart + lineStart + (window.get(lineStart) == '\n' ? 1 : 0);
+        return windowStart + limit >= fileSize ? windowStart + lineStart : -1;
+    }
+
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, fileSize - offset));
+        lineStart = scanPosition = 0;
+        limit = window.limit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,38 @@
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parsing engine used by {@link RobotSimulator#process(InputStream, ReportSink)}.
+ */
+enum ParserEngine {
+    /**
+     * Decodes characters and tokenizes with String.split, Enum.valueOf and Integer.parseInt.
+     */
+    STRING {
+        @Override
+        CommandReader open(InputStream input) {
+            return new LineCommandReader(input);
+        }
+    },
+    /**
+     * Tokenizes straight from the raw bytes, see {@link ByteCommandParser}.
+     */
+    BYTE {
+        @Override
+        CommandReader open(InputStream input) {
+            return new ByteCommandReader(input);
+        }
+    },
+    /**
+     * BYTE parsing on other threads, chunks of lines at a time, ahead of the simulator, see
+     * {@link PipelinedCommandReader}. For big inputs, on more than one core.
+     */
+    PIPELINED {
+        @Override
+        CommandReader open(InputStream input) {
+            return new PipelinedCommandReader(input, ForkJoinPool.commonPool());
+        }
+    };
+
+    abstract CommandReader open(InputStream input);
+}
@@ -0,0 +1,523 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "how does the robot get to X,Y from here, in as few commands as possible" on the board of a
+ * {@link RobotSimulator}: its bounds and its pits, the cells {@link RobotSimulator} refuses to move onto.
+ * <p>
+ * A search state is a cell and a direction, and MOVE, LEFT and RIGHT each cost one command. A query is an A* search
+ * from the start, with the Manhattan distance plus the turns it needs at least as heuristic, over int arrays used as
+ * bucket queues, a visited bitset and the command that reached each state packed in 2 bits. Since every pit lies
+ * inside the bounding box of the pits, cutting corners around that box is never longer, so the search is kept to the
+ * box of the pits, the start and the target, plus a margin of one cell.
+ * <p>
+ * A target asked for a second time gets a distance field: the number of commands from every state to the target,
+ * from a breadth first search backwards from it. Later queries for that target just walk down the field, in time
+ * proportional to the answer. The last CACHED_TARGETS targets are kept, and their fields are dropped when pits
+ * are added.
+ * <p>
+ * On boards too large for a bitset, the search keeps its states in a hash map, so a target walled off from the start
+ * would have it close every state around the start before it ends. So first, both cells are flooded at once, a cell at
+ * a time each: the fill that runs out of cells first, without meeting the other, proves the target out of reach. A
+ * fill that leaves the box of the pits has reached the open board around it, where every cell is connected.
+ */
+class PathPlanner {
+    static final int CACHED_TARGETS = 8;
+    //Searches over more states than this keep track of them in a hash map rather than a bitset
+    static final long MAX_DENSE_STATES = 1L << 26;
+    //Larger distance fields aren't built, 16 MB each
+    static final long MAX_FIELD_STATES = 1L << 22;
+    //A sparse search gives up after closing this many states, and the fills before it after this many cells each
+    static final int MAX_SPARSE_STATES = 1 << 22;
+
+    //How a state was reached, 2 bits
+    private static final int MOVE = 0, LEFT = 1, RIGHT = 2, START = 3;
+    private static final Command[] COMMANDS = {Command.MOVE, Command.LEFT, Command.RIGHT};
+
+    private final int boardWidth, boardHeight;
+    private final PitMap pits;
+    private final int maxSparseStates;
+    //Bounds of the pits on the board, valid for pitBoundsCount pits
+    private int pitBoundsCount = -1;
+    private int pitMinX, pitMinY, pitMaxX, pitMaxY;
+    private final Map<Long, Target> targets = new LinkedHashMap<Long, Target>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Target> eldest) {
+            return size() > CACHED_TARGETS;
+        }
+    };
+    //Search scratch space, kept for the next query
+    private long[] visited = new long[0];
+    private long[] reachedBy = new long[0];
+    private final long[][] buckets = new long[4][];
+    private final int[] bucketSizes = new int[4];
+
+    /**
+     * @param pits the simulator's pits, read at every query.
+     */
+    PathPlanner(int boardWidth, int boardHeight, PitMap pits) {
+        this(boardWidth, boardHeight, pits, MAX_SPARSE_STATES);
+    }
+
+    /**
+     * @param pits            the simulator's pits, read at every query.
+     * @param maxSparseStates states a sparse search closes, and cells each fill before it takes, before giving up.
+     */
+    PathPlanner(int boardWidth, int boardHeight, PitMap pits, int maxSparseStates) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.pits = pits;
+        this.maxSparseStates = maxSparseStates;
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new long[64];
+    }
+
+    /**
+     * @param fromDirectionIndex index into {@link RobotSimulator#DIRECTION_SEQUENCE}.
+     * @return a shortest MOVE/LEFT/RIGHT sequence from the start to the target cell, facing any way, empty if the start
+     * is the target, or null if the target can't be reached or either cell is a pit or off the board.
+     * @throws PathSearchLimitException if a search over a region too large for a bitset closes MAX_SPARSE_STATES
+     *                                  states without getting there, which takes a target that can be reached only by
+     *                                  a way that long or a maze of pits.
+     */
+    List<Command> shortestPath(int fromX, int fromY, int fromDirectionIndex, int toX, int toY) {
+        if (!isFree(fromX, fromY) || !isFree(toX, toY)) return null;
+        if (fromX == toX && fromY == toY) return Collections.emptyList();
+
+        Region needed = region(fromX, fromY, toX, toY);
+        Target target = target(toX, toY);
+        if (target.field != null && (target.pitCount != pits.size() || !target.field.region.contains(needed))) {
+            target.field = null;
+        }
+        if (target.field == null && ++target.queries > 1) {
+            Region fieldRegion = target.region == null ? needed : target.region.union(needed);
+            target.region = fieldRegion;
+            if (fieldRegion.states() <= MAX_FIELD_STATES) {
+                target.field = new DistanceField(fieldRegion, toX, toY);
+                target.pitCount = pits.size();
+            }
+        }
+        if (target.field != null) return target.field.walk(fromX, fromY, fromDirectionIndex);
+        if (needed.states() > MAX_DENSE_STATES && !isConnected(fromX, fromY, toX, toY)) return null;
+
+        return search(needed, fromX, fromY, fromDirectionIndex, toX, toY);
+    }
+
+    /**
+     * @return the number of commands of the shortest path, or -1 if there is none.
+     * @throws PathSearchLimitException as {@link #shortestPath} does.
+     */
+    int distance(int fromX, int fromY, int fromDirectionIndex, int toX, int toY) {
+        List<Command> path = shortestPath(fromX, fromY, fromDirectionIndex, toX, toY);
+        return path == null ? -1 : path.size();
+    }
+
+    /**
+     * @return whether a distance field is cached for the target, for tests.
+     */
+    boolean hasDistanceField(int toX, int toY) {
+        Target target = targets.get(Cells.key(toX, toY));
+        return target != null && target.field != null && target.pitCount == pits.size();
+    }
+
+    /**
+     * Forgets the cached fields, for when the pits are cleared.
+     */
+    void clear() {
+        targets.clear();
+        pitBoundsCount = -1;
+    }
+
+    private Target target(int x, int y) {
+        Long key = Cells.key(x, y);
+        Target target = targets.get(key);
+        if (target == null) {
+            target = new Target();
+            targets.put(key, target);
+        }
+        return target;
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < boardWidth && y >= 0 && y < boardHeight && !pits.contains(x, y);
+    }
+
+    /**
+     * @return the box of the pits, the start and the target, one cell wider on every side, within the board.
+     */
+    private Region region(int fromX, int fromY, int toX, int toY) {
+        if (pitBoundsCount != pits.size()) {
+            pitMinX = pitMinY = Integer.MAX_VALUE;
+            pitMaxX = pitMaxY = Integer.MIN_VALUE;
+            pits.forEach((x, y) -> {
+                if (x < 0 || x >= boardWidth || y < 0 || y >= boardHeight) return;
+                pitMinX = Math.min(pitMinX, x);
+                pitMinY = Math.min(pitMinY, y);
+                pitMaxX = Math.max(pitMaxX, x);
+                pitMaxY = Math.max(pitMaxY, y);
+            });
+            pitBoundsCount = pits.size();
+        }
+        int minX = Math.min(Math.min(fromX, toX), pitMinX);
+        int minY = Math.min(Math.min(fromY, toY), pitMinY);
+        int maxX = Math.max(Math.max(fromX, toX), pitMaxX);
+        int maxY = Math.max(Math.max(fromY, toY), pitMaxY);
+        return new Region(Math.max(0, minX - 1), Math.max(0, minY - 1),
+                Math.min(boardWidth - 1, maxX + 1), Math.min(boardHeight - 1, maxY + 1));
+    }
+
+    /**
+     * A* from the start. States are closed when popped, so the first time the target cell is popped its path is a
+     * shortest one.
+     */
+    private List<Command> search(Region region, int fromX, int fromY, int fromDirectionIndex, int toX, int toY) {
+        long states = region.states();
+        boolean isDense = states <= MAX_DENSE_STATES;
+        LongIntMap sparseReachedBy = null;
+        if (isDense) {
+            int words = (int) ((states + 63) >>> 6);
+            if (reachedBy.length < (int) ((states + 31) >>> 5)) {
+                visited = new long[words];
+                reachedBy = new long[(int) ((states + 31) >>> 5)];
+            } else {
+                Arrays.fill(visited, 0, words, 0);
+            }
+        } else {
+            sparseReachedBy = new LongIntMap();
+        }
+        Arrays.fill(bucketSizes, 0);
+
+        int f = heuristic(fromX, fromY, fromDirectionIndex, toX, toY);
+        push(region.state(fromX, fromY, fromDirectionIndex) << 2 | START, f);
+        int emptyBuckets = 0;
+        while (emptyBuckets < buckets.length) {
+            int bucket = f & 3;
+            if (bucketSizes[bucket] == 0) {
+                emptyBuckets++;
+                f++;
+                continue;
+            }
+            emptyBuckets = 0;
+            long entry = buckets[bucket][--bucketSizes[bucket]];
+            long state = entry >>> 2;
+            if (isDense) {
+                if ((visited[(int) (state >>> 6)] & 1L << state) != 0) continue;
+                visited[(int) (state >>> 6)] |= 1L << state;
+                int shift = (int) (state & 31) << 1;
+                reachedBy[(int) (state >>> 5)] = reachedBy[(int) (state >>> 5)] & ~(3L << shift) | (entry & 3) << shift;
+            } else {
+                if (sparseReachedBy.get(state) != LongIntMap.MISSING) continue;
+                if (sparseReachedBy.size() >= maxSparseStates) {
+                    throw new PathSearchLimitException(toX, toY, sparseReachedBy.size());
+                }
+                sparseReachedBy.put(state, (int) (entry & 3));
+            }
+
+            int x = region.x(state), y = region.y(state), directionIndex = (int) (state & 3);
+            if (x == toX && y == toY) {
+                return path(region, state, isDense, sparseReachedBy);
+            }
+            int g = f - heuristic(x, y, directionIndex, toX, toY);
+            int nextX = x + RobotSimulator.STEP_X[directionIndex], nextY = y + RobotSimulator.STEP_Y[directionIndex];
+            if (region.contains(nextX, nextY) && !pits.contains(nextX, nextY)) {
+                push(region.state(nextX, nextY, directionIndex) << 2 | MOVE,
+                        g + 1 + heuristic(nextX, nextY, directionIndex, toX, toY));
+            }
+            int left = (directionIndex + 3) & 3, right = (directionIndex + 1) & 3;
+            push(region.state(x, y, left) << 2 | LEFT, g + 1 + heuristic(x, y, left, toX, toY));
+            push(region.state(x, y, right) << 2 | RIGHT, g + 1 + heuristic(x, y, right, toX, toY));
+        }
+        return null;
+    }
+
+    /**
+     * Floods the free cells around the start and around the target, a cell of each in turn. Turning costs no move, so
+     * the target can be reached if and only if its cell is connected to the start's.
+     *
+     * @return false if the target can't be reached; true if it can, or if a fill grew past maxSparseStates cells
+     * without telling, which leaves it to the search.
+     */
+    private boolean isConnected(int fromX, int fromY, int toX, int toY) {
+        LongIntMap owners = new LongIntMap();
+        Fill start = new Fill(0, fromX, fromY, owners);
+        Fill end = new Fill(1, toX, toY, owners);
+        while (true) {
+            if (start.isMet || end.isMet) return true;
+            if (start.isExhausted() || end.isExhausted()) return false;
+            if (start.outside >= 0 && end.outside >= 0) return start.outside == end.outside;
+            if (start.size() > maxSparseStates || end.size() > maxSparseStates) return true;
+
+            if (start.outside < 0) start.step();
+            if (end.outside < 0) end.step();
+        }
+    }
+
+    /**
+     * @return which part of the board around the box of the pits the cell is in, -1 if it is inside the box. The board
+     * minus the box is in one piece unless the box spans its whole width or height, which cuts it in two.
+     */
+    private int outside(int x, int y) {
+        boolean isAbove = y > pitMaxY, isBelow = y < pitMinY, isRight = x > pitMaxX, isLeft = x < pitMinX;
+        if (!isAbove && !isBelow && !isRight && !isLeft) return -1;
+
+        if (pitMinX == 0 && pitMaxX == boardWidth - 1) return isAbove ? 1 : 0;
+        if (pitMinY == 0 && pitMaxY == boardHeight - 1) return isRight ? 1 : 0;
+        return 0;
+    }
+
+    /**
+     * A breadth first flood fill of free cells, that stops when it leaves the box of the pits or meets another fill.
+     */
+    private class Fill {
+        private final int id;
+        private final LongIntMap owners;
+        private long[] queue = new long[64];
+        private int head, tail;
+        private int size;
+        //Part of the board outside the box it reached, -1 until it does
+        int outside;
+        boolean isMet;
+
+        Fill(int id, int x, int y, LongIntMap owners) {
+            this.id = id;
+            this.owners = owners;
+            this.outside = outside(x, y);
+            if (owners.get(Cells.key(x, y)) != LongIntMap.MISSING) isMet = true;
+            owners.put(Cells.key(x, y), id);
+            queue[tail++] = Cells.key(x, y);
+            size = 1;
+        }
+
+        boolean isExhausted() {
+            return head == tail && outside < 0;
+        }
+
+        /**
+         * @return the number of cells it reached.
+         */
+        int size() {
+            return size;
+        }
+
+        void step() {
+            long cell = queue[head++];
+            int x = Cells.x(cell), y = Cells.y(cell);
+            for (int directionIndex = 0; directionIndex < 4; directionIndex++) {
+                int nextX = x + RobotSimulator.STEP_X[directionIndex], nextY = y + RobotSimulator.STEP_Y[directionIndex];
+                if (!isFree(nextX, nextY)) continue;
+
+                long next = Cells.key(nextX, nextY);
+                int owner = owners.get(next);
+                if (owner == id) continue;
+                if (owner != LongIntMap.MISSING) {
+                    isMet = true;
+                    return;
+                }
+                outside = outside(nextX, nextY);
+                if (outside >= 0) return;
+
+                owners.put(next, id);
+                if (tail == queue.length) {
+                    //Reuse the popped half of the queue before growing it
+                    if (head > tail / 2) {
+                        System.arraycopy(queue, head, queue, 0, tail - head);
+                        tail -= head;
+                        head = 0;
+                    } else {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                }
+                queue[tail++] = next;
+                size++;
+            }
+        }
+    }
+
+    private void push(long entry, int f) {
+        int bucket = f & 3;
+        if (bucketSizes[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        }
+        buckets[bucket][bucketSizes[bucket]++] = entry;
+    }
+
+    /**
+     * Follows the commands that reached each state back from the target to the start.
+     */
+    private List<Command> path(Region region, long state, boolean isDense, LongIntMap sparseReachedBy) {
+        List<Command> commands = new ArrayList<>();
+        while (true) {
+            int how = isDense ? (int) (reachedBy[(int) (state >>> 5)] >>> ((state & 31) << 1)) & 3 : sparseReachedBy.get(state);
+            if (how == START) break;
+
+            commands.add(COMMANDS[how]);
+            int x = region.x(state), y = region.y(state), directionIndex = (int) (state & 3);
+            if (how == MOVE) {
+                state = region.state(x - RobotSimulator.STEP_X[directionIndex], y - RobotSimulator.STEP_Y[directionIndex], directionIndex);
+            } else {
+                //LEFT adds 3, RIGHT adds 1
+                state = region.state(x, y, (directionIndex + (how == LEFT ? 1 : 3)) & 3);
+            }
+        }
+        Collections.reverse(commands);
+        return Collections.unmodifiableList(commands);
+    }
+
+    /**
+     * @return a lower bound of the commands from the state to the target: the steps along each axis plus the turns
+     * needed to face every direction that has steps, which changes by at most one per command.
+     */
+    static int heuristic(int x, int y, int directionIndex, int toX, int toY) {
+        long dx = (long) toX - x, dy = (long) toY - y;
+        int turns;
+        if (dx == 0 && dy == 0) {
+            turns = 0;
+        } else if (dx == 0 || dy == 0) {
+            //NORTH, EAST, SOUTH, WEST
+            int wanted = dx > 0 ? 1 : dx < 0 ? 3 : dy > 0 ? 0 : 2;
+            int difference = Math.abs(wanted - directionIndex);
+            turns = Math.min(difference, 4 - difference);
+        } else {
+            int wantedX = dx > 0 ? 1 : 3, wantedY = dy > 0 ? 0 : 2;
+            turns = directionIndex == wantedX || directionIndex == wantedY ? 1 : 2;
+        }
+        return (int) (Math.abs(dx) + Math.abs(dy)) + turns;
+    }
+
+    /**
+     * A rectangle of cells, and the numbering of its states: (cell index * 4 + direction index).
+     */
+    static class Region {
+        final int minX, minY, maxX, maxY;
+        final int width;
+
+        Region(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.width = maxX - minX + 1;
+        }
+
+        long states() {
+            return (long) width * (maxY - minY + 1) * 4;
+        }
+
+        boolean contains(int x, int y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        boolean contains(Region other) {
+            return other.minX >= minX && other.maxX <= maxX && other.minY >= minY && other.maxY <= maxY;
+        }
+
+        Region union(Region other) {
+            return new Region(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                    Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+        }
+
+        long state(int x, int y, int directionIndex) {
+            return (((long) (y - minY) * width + (x - minX)) << 2) | directionIndex;
+        }
+
+        int x(long state) {
+            return minX + (int) ((state >>> 2) % width);
+        }
+
+        int y(long state) {
+            return minY + (int) ((state >>> 2) / width);
+        }
+    }
+
+    /**
+     * Number of commands from every state of a region to one target cell, -1 when it can't be reached.
+     */
+    private class DistanceField {
+        final Region region;
+        private final int[] distances;
+
+        /**
+         * Breadth first search from the target backwards: a state is one command before another if that command
+         * leads from the first to the second.
+         */
+        DistanceField(Region region, int toX, int toY) {
+            this.region = region;
+            this.distances = new int[(int) region.states()];
+            Arrays.fill(distances, -1);
+            int[] frontier = new int[64];
+            int[] next = new int[64];
+            int frontierSize = 0;
+            for (int directionIndex = 0; directionIndex < 4; directionIndex++) {
+                int state = (int) region.state(toX, toY, directionIndex);
+                distances[state] = 0;
+                frontier[frontierSize++] = state;
+            }
+            for (int distance = 1; frontierSize > 0; distance++) {
+                int nextSize = 0;
+                for (int i = 0; i < frontierSize; i++) {
+                    int state = frontier[i];
+                    int x = region.x(state), y = region.y(state), directionIndex = state & 3;
+                    //Turned LEFT from the direction after, RIGHT from the one before, or MOVEd from the cell behind
+                    int[] previous = {(int) region.state(x, y, (directionIndex + 1) & 3),
+                            (int) region.state(x, y, (directionIndex + 3) & 3), -1};
+                    int previousX = x - RobotSimulator.STEP_X[directionIndex], previousY = y - RobotSimulator.STEP_Y[directionIndex];
+                    if (region.contains(previousX, previousY) && !pits.contains(previousX, previousY)) {
+                        previous[2] = (int) region.state(previousX, previousY, directionIndex);
+                    }
+                    for (int candidate : previous) {
+                        if (candidate < 0 || distances[candidate] >= 0) continue;
+
+                        distances[candidate] = distance;
+                        if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+                        next[nextSize++] = candidate;
+                    }
+                }
+                int[] swap = frontier;
+                frontier = next;
+                next = swap;
+                frontierSize = nextSize;
+            }
+        }
+
+        /**
+         * Goes down the field from the start, one command per step.
+         */
+        List<Command> walk(int fromX, int fromY, int fromDirectionIndex) {
+            int state = (int) region.state(fromX, fromY, fromDirectionIndex);
+            if (distances[state] < 0) return null;
+
+            List<Command> commands = new ArrayList<>(distances[state]);
+            while (distances[state] > 0) {
+                int x = region.x(state), y = region.y(state), directionIndex = state & 3;
+                int nextX = x + RobotSimulator.STEP_X[directionIndex], nextY = y + RobotSimulator.STEP_Y[directionIndex];
+                int next;
+                if (region.contains(nextX, nextY) && !pits.contains(nextX, nextY)
+                        && distances[next = (int) region.state(nextX, nextY, directionIndex)] == distances[state] - 1) {
+                    commands.add(Command.MOVE);
+                } else if (distances[next = (int) region.state(x, y, (directionIndex + 3) & 3)] == distances[state] - 1) {
+                    commands.add(Command.LEFT);
+                } else {
+                    next = (int) region.state(x, y, (directionIndex + 1) & 3);
+                    commands.add(Command.RIGHT);
+                }
+                state = next;
+            }
+            return Collections.unmodifiableList(commands);
+        }
+    }
+
+    /**
+     * What is known about one target.
+     */
+    private static class Target {
+        int queries;
+        //Region of the last field, grown to cover every start asked for
+        Region region;
+        DistanceField field;
+        //Number of pits the field was built with
+        int pitCount;
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * Thrown when a path search over a board too large for a bitset gives up after closing its limit of states, so it
+ * can't tell whether the target is out of reach, see {@link PathPlanner#shortestPath}. A target proven out of reach
+ * gets null instead.
+ */
+public class PathSearchLimitException extends IllegalStateException {
+    PathSearchLimitException(int toX, int toY, int states) {
+        super("Gave up the search for a path to " + toX + "," + toY + " after " + states + " states");
+    }
+}
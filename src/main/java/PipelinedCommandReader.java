@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link CommandReader} that reads and parses ahead of the simulator, on other threads, so one input stream keeps
+ * several cores busy while the simulator itself stays single threaded.
+ * <p>
+ * Three stages:
+ * - A reader thread cuts the input into chunks of whole lines, never between the \r and \n of a line break.
+ * - Each chunk is parsed on the executor, in parallel with the others, into compact records: one int per line holding
+ * the command, whether its arguments are valid and its direction, plus X, Y for valid DEPLOY and PIT lines.
+ * - {@link #next(CommandRecord)}, on the simulator thread, takes the chunks back in input order.
+ * <p>
+ * Chunks go through a fixed ring of slots whose buffers are reused. The reader only fills a free slot, a parser only
+ * touches the slot it was given, and the consumer frees the slot it is done with, so the hand offs are volatile
+ * state changes with no lock. When the ring is full the reader waits for the consumer, which bounds memory.
+ * <p>
+ * The consumer never waits on the executor: when it reaches a chunk no parser has taken yet it parses it itself. So a
+ * busy or starved executor, even the pool the caller runs on, only costs parallelism, never progress.
+ * <p>
+ * Lines are decoded exactly like {@link ByteCommandReader}, including the head only parse of overlong lines, so
+ * results match the BYTE engine. The reader waits for a full chunk before handing it on: this is meant for files and
+ * bulk streams, not interactive input.
+ */
+class PipelinedCommandReader implements CommandReader {
+    static final int CHUNK_SIZE = 256 * 1024;
+    static final int RING_SIZE = 8;
+    //ByteCommandReader only parses this much of a longer line
+    private static final int LINE_HEAD = ByteCommandReader.BUFFER_SIZE;
+    private static final Command[] COMMANDS = Command.values();
+    private static final int VALID_ARGS = 0x08;
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    //Slot states, in the order a slot goes through them
+    private static final int FREE = 0;
+    private static final int PARSING = 1;
+    private static final int CLAIMED = 2;
+    private static final int READY = 3;
+
+    private final InputStream input;
+    private final Executor parsers;
+    private final int chunkSize;
+    private final Slot[] slots;
+    private final Thread reader;
+    private volatile boolean isClosed;
+    //Consumer side
+    private long sequence;
+    private Slot current;
+    private int line, argument;
+
+    PipelinedCommandReader(InputStream input, Executor parsers) {
+        this(input, parsers, CHUNK_SIZE, RING_SIZE);
+    }
+
+    /**
+     * @param parsers   where chunks are parsed.
+     * @param chunkSize most bytes per chunk, more than {@link ByteCommandReader#BUFFER_SIZE}.
+     * @param ringSize  number of chunks read ahead of the consumer, a power of two.
+     */
+    PipelinedCommandReader(InputStream input, Executor parsers, int chunkSize, int ringSize) {
+        if (chunkSize <= LINE_HEAD || ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize + " or ring size " + ringSize);
+        }
+        this.input = input;
+        this.parsers = parsers;
+        this.chunkSize = chunkSize;
+        this.slots = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) slots[i] = new Slot(chunkSize);
+        reader = new Thread(this::read, "robot-pipeline-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public boolean next(CommandRecord command) throws IOException {
+        while (current == null || line == current.lineCount) {
+            if (!advance()) return false;
+        }
+        int code = current.codes[line++];
+        int commandIndex = code & 7;
+        boolean hasValidArgs = (code & VALID_ARGS) != 0;
+        if (commandIndex == 0) {
+            command.set(null, false, 0, 0, 0);
+        } else if (hasValidArgs && (commandIndex == Command.DEPLOY.ordinal() + 1 || commandIndex == Command.PIT.ordinal() + 1)) {
+            command.set(COMMANDS[commandIndex - 1], true, current.arguments[argument], current.arguments[argument + 1], code >>> 4);
+            argument += 2;
+        } else {
+            command.set(COMMANDS[commandIndex - 1], hasValidArgs, 0, 0, 0);
+        }
+        return true;
+    }
+
+    /**
+     * Frees the current chunk and waits for the next one.
+     *
+     * @return false at the end of the input.
+     */
+    private boolean advance() throws IOException {
+        if (current != null) {
+            if (current.isLast) return false;
+            current.state = FREE;
+            sequence++;
+        }
+        Slot slot = slots[(int) sequence & (slots.length - 1)];
+        await(slot, READY);
+        current = slot;
+        line = argument = 0;
+        if (slot.failure instanceof IOException) throw (IOException) slot.failure;
+        if (slot.failure instanceof Error) throw (Error) slot.failure;
+        if (slot.failure != null) throw new RuntimeException(slot.failure);
+        return true;
+    }
+
+    /**
+     * Reader thread: fills the slots in turn with whole lines and hands each one to a parser.
+     */
+    private void read() {
+        byte[] staging = new byte[chunkSize];
+        int limit = 0;
+        boolean isSkippingOverlongLine = false;
+        long chunks = 0;
+        try {
+            while (true) {
+                boolean isEndOfInput = false;
+                while (limit < staging.length) {
+                    int read = input.read(staging, limit, staging.length - limit);
+                    if (read < 0) {
+                        isEndOfInput = true;
+                        break;
+                    }
+                    if (isSkippingOverlongLine) {
+                        //Drop the rest of the line, up to its terminator, after the head kept at [0, LINE_HEAD)
+                        int terminator = indexOfLineBreak(staging, limit, limit + read);
+                        if (terminator < 0) continue;
+
+                        System.arraycopy(staging, terminator, staging, limit, limit + read - terminator);
+                        read -= terminator - limit;
+                        isSkippingOverlongLine = false;
+                    }
+                    limit += read;
+                }
+
+                int cut = isEndOfInput ? limit : cut(staging, limit);
+                if (cut == 0 && !isEndOfInput) {
+                    //A single line fills the chunk: only its head matters, the rest is dropped as it comes
+                    cut = LINE_HEAD;
+                    if (staging[limit - 1] == '\r') {
+                        //Its line break has started already
+                        staging[cut++] = '\r';
+                    } else {
+                        isSkippingOverlongLine = true;
+                    }
+                    limit = cut;
+                    continue;
+                }
+
+                Slot slot = slots[(int) chunks & (slots.length - 1)];
+                await(slot, FREE);
+                chunks++;
+                publish(slot, staging, cut, isEndOfInput);
+                if (isEndOfInput) return;
+
+                System.arraycopy(staging, cut, staging, 0, limit - cut);
+                limit -= cut;
+            }
+        } catch (Throwable e) {
+            //Even an Error must reach the consumer, which would otherwise wait for the next chunk forever
+            if (isClosed) return;
+
+            Slot slot = slots[(int) chunks & (slots.length - 1)];
+            try {
+                await(slot, FREE);
+            } catch (IOException closed) {
+                return;
+            }
+            slot.length = slot.lineCount = 0;
+            slot.failure = e;
+            slot.isLast = true;
+            slot.state = READY;
+        }
+    }
+
+    private void publish(Slot slot, byte[] staging, int length, boolean isLast) {
+        System.arraycopy(staging, 0, slot.bytes, 0, length);
+        slot.length = length;
+        slot.isLast = isLast;
+        slot.failure = null;
+        slot.state = PARSING;
+        try {
+            parsers.execute(slot::parseUnlessClaimed);
+        } catch (RejectedExecutionException e) {
+            slot.parseUnlessClaimed();
+        }
+    }
+
+    /**
+     * @return the end of the last complete line break in [0, limit), never between a \r and the \n that may follow
+     * it, or 0 if there is none.
+     */
+    static int cut(byte[] bytes, int limit) {
+        if (limit == 0) return 0;
+        if (bytes[limit - 1] == '\n') return limit;
+        //A \r at limit - 1 may be followed by a \n not read yet
+        for (int i = limit - 2; i >= 0; i--) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') return i + 1;
+        }
+        return 0;
+    }
+
+    private static int indexOfLineBreak(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Spins briefly then parks until the slot reaches the state, or the reader is closed. Waiting for READY, parses
+     * the chunk itself if no parser has taken it, rather than wait for a parser that may never get a thread.
+     */
+    private void await(Slot slot, int state) throws IOException {
+        for (int spins = 0; slot.state != state; spins++) {
+            if (isClosed) throw new IOException("Reader closed");
+            if (state == READY && slot.claim()) {
+                slot.parse();
+            } else if (spins < SPINS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Stops the reader thread and closes the input. Chunks still being parsed are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) return;
+        isClosed = true;
+        try {
+            input.close();
+        } finally {
+            reader.interrupt();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * One chunk: its bytes, written by the reader, and its records, written by a parser. state publishes both.
+     */
+    private static class Slot {
+        private static final AtomicIntegerFieldUpdater<Slot> STATE = AtomicIntegerFieldUpdater.newUpdater(Slot.class, "state");
+        final byte[] bytes;
+        final ByteBuffer window;
+        int length;
+        boolean isLast;
+        Throwable failure;
+        //Per line: command ordinal + 1 (0 when unrecognised) | VALID_ARGS | directionIndex << 4
+        int[] codes = new int[1024];
+        int lineCount;
+        //X, Y of every valid DEPLOY and PIT, in order
+        int[] arguments = new int[256];
+        volatile int state = FREE;
+        private final CommandRecord command = new CommandRecord();
+
+        Slot(int chunkSize) {
+            bytes = new byte[chunkSize];
+            window = ByteBuffer.wrap(bytes);
+        }
+
+        /**
+         * Takes the chunk for parsing, once: the parser task and the consumer race for it.
+         *
+         * @return false if it is already taken, or not published yet by the reader.
+         */
+        boolean claim() {
+            return STATE.compareAndSet(this, PARSING, CLAIMED);
+        }
+
+        void parseUnlessClaimed() {
+            if (claim()) parse();
+        }
+
+        /**
+         * Splits the chunk into lines the way ByteCommandReader does and parses each one.
+         */
+        void parse() {
+            try {
+                lineCount = 0;
+                int argumentCount = 0;
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    byte value = bytes[i];
+                    if (value == '\n' || value == '\r') {
+                        argumentCount = parseLine(lineStart, i, argumentCount);
+                        if (value == '\r' && i + 1 < length && bytes[i + 1] == '\n') i++;
+                        lineStart = i + 1;
+                    }
+                }
+                //Only the last chunk or an overlong line cut short can end without a line break
+                if (lineStart < length) parseLine(lineStart, length, argumentCount);
+            } catch (Throwable e) {
+                lineCount = 0;
+                failure = e;
+            }
+            state = READY;
+        }
+
+        private int parseLine(int start, int end, int argumentCount) {
+            ByteCommandParser.parse(window, start, Math.min(end, start + LINE_HEAD), command);
+            if (lineCount == codes.length) codes = Arrays.copyOf(codes, codes.length * 2);
+            int code = command.command == null ? 0 : command.command.ordinal() + 1;
+            if (command.hasValidArgs) code |= VALID_ARGS;
+            codes[lineCount++] = code | command.directionIndex << 4;
+            if (command.hasValidArgs && (command.command == Command.DEPLOY || command.command == Command.PIT)) {
+                if (argumentCount + 2 > arguments.length) arguments = Arrays.copyOf(arguments, arguments.length * 2);
+                arguments[argumentCount++] = command.x;
+                arguments[argumentCount++] = command.y;
+            }
+            return argumentCount;
+        }
+    }
+}
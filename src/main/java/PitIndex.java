@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+/**
+ * The pits of every row and of every column, each kept as a sorted int array, so the next pit along a ray is a binary
+ * search away instead of a walk cell by cell. Only rows and columns holding pits take memory, which suits huge boards.
+ * <p>
+ * Inserting shifts the tail of one row and one column array; PITs come once per script while rays are looked up on
+ * every run of MOVEs.
+ */
+class PitIndex {
+    //No pit in that direction
+    static final int NONE = Integer.MAX_VALUE;
+
+    //y -> sorted x of the pits on that row
+    private final Lines rows = new Lines();
+    //x -> sorted y of the pits on that column
+    private final Lines columns = new Lines();
+
+    /**
+     * Adds a pit that is not in the index yet.
+     */
+    void add(int x, int y) {
+        rows.add(y, x);
+        columns.add(x, y);
+    }
+
+    /**
+     * @return how many steps from x,y heading that way the nearest pit is, 1 for the next cell, or NONE.
+     */
+    int distance(int x, int y, Direction direction) {
+        switch (direction) {
+            case NORTH:
+                return columns.distanceAfter(x, y);
+            case SOUTH:
+                return columns.distanceBefore(x, y);
+            case EAST:
+                return rows.distanceAfter(y, x);
+            case WEST:
+                return rows.distanceBefore(y, x);
+            default:
+                return NONE;
+        }
+    }
+
+    /**
+     * Empties the index, keeping the arrays for reuse.
+     */
+    void clear() {
+        rows.clear();
+        columns.clear();
+    }
+
+    /**
+     * One sorted array of positions per line number.
+     */
+    static class Lines {
+        private final LongIntMap slots = new LongIntMap();
+        private int[][] positions = new int[16][];
+        private int[] sizes = new int[16];
+        private int lineCount;
+
+        void add(int line, int position) {
+            int slot = slots.get(line);
+            if (slot == LongIntMap.MISSING) {
+                slot = lineCount++;
+                if (slot == positions.length) {
+                    positions = Arrays.copyOf(positions, slot * 2);
+                    sizes = Arrays.copyOf(sizes, slot * 2);
+                }
+                if (positions[slot] == null) positions[slot] = new int[4];
+                slots.put(line, slot);
+            }
+
+            int[] values = positions[slot];
+            int size = sizes[slot];
+            int insertAt = Arrays.binarySearch(values, 0, size, position);
+            if (insertAt >= 0) return;
+
+            insertAt = -insertAt - 1;
+            if (size == values.length) positions[slot] = values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = position;
+            sizes[slot] = size + 1;
+        }
+
+        /**
+         * @return the distance from position to the first pit after it on the line, or NONE.
+         */
+        int distanceAfter(int line, int position) {
+            int slot = slots.get(line);
+            if (slot == LongIntMap.MISSING) return NONE;
+
+            int index = Arrays.binarySearch(positions[slot], 0, sizes[slot], position);
+            index = index >= 0 ? index + 1 : -index - 1;
+            if (index == sizes[slot]) return NONE;
+            return distance(position, positions[slot][index]);
+        }
+
+        /**
+         * @return the distance from position to the first pit before it on the line, or NONE.
+         */
+        int distanceBefore(int line, int position) {
+            int slot = slots.get(line);
+            if (slot == LongIntMap.MISSING) return NONE;
+
+            int index = Arrays.binarySearch(positions[slot], 0, sizes[slot], position);
+            index = (index >= 0 ? index : -index - 1) - 1;
+            if (index < 0) return NONE;
+            return distance(positions[slot][index], position);
+        }
+
+        void clear() {
+            slots.clear();
+            Arrays.fill(sizes, 0, lineCount, 0);
+            lineCount = 0;
+        }
+
+        private static int distance(int from, int to) {
+            //Pits can be anywhere in the int range, far enough to be out of reach
+            return (int) Math.min((long) to - from, NONE);
+        }
+    }
+}
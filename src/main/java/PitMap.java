@@ -0,0 +1,61 @@
+/**
+ * The pits on the board. Lookups are on the MOVE/DEPLOY hot path and must not allocate.
+ */
+interface PitMap {
+    //Boards up to this many cells always get a bitset: 2 MB at most
+    long DENSE_MAX_CELLS = 1L << 24;
+    //Beyond this many cells a bitset can't be indexed by int, so pits stay sparse whatever their number
+    long ADAPTIVE_MAX_CELLS = Integer.MAX_VALUE;
+
+    boolean contains(int x, int y);
+
+    void add(int x, int y);
+
+    /**
+     * @return the number of distinct pits.
+     */
+    int size();
+
+    void forEach(Visitor visitor);
+
+    /**
+     * Looks along a ray for the first pit, for moves of many steps at once.
+     *
+     * @return how many cells in a row after x,y going by dx,dy hold no pit, up to maxSteps.
+     */
+    default int freeSteps(int x, int y, int dx, int dy, int maxSteps) {
+        if (size() == 0) return maxSteps;
+
+        for (int steps = 0; steps < maxSteps; steps++) {
+            x += dx;
+            y += dy;
+            if (contains(x, y)) return steps;
+        }
+        return maxSteps;
+    }
+
+    /**
+     * Removes every pit, in time proportional to the number of pits at most, keeping the memory for reuse.
+     */
+    void clear();
+
+    interface Visitor {
+        void visit(int x, int y);
+    }
+
+    /**
+     * Picks the storage for a width x height board: a bitset for small boards, a sparse set for huge ones so memory
+     * follows the number of pits rather than the board area, and a sparse set that turns into a bitset once the pits
+     * get dense enough for anything in between.
+     */
+    static PitMap forBoard(int width, int height) {
+        long cells = (long) width * height;
+        if (cells <= DENSE_MAX_CELLS) {
+            return new BitSetPitMap(width, height);
+        }
+        if (cells <= ADAPTIVE_MAX_CELLS) {
+            return new AdaptivePitMap(width, height);
+        }
+        return new SparsePitMap();
+    }
+}
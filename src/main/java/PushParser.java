@@ -0,0 +1,131 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Runs a command stream on a {@link RobotSimulator} as its bytes come, in fragments of any size, for event driven
+ * callers that can't hand over a blocking InputStream, e.g. {@link RobotServer}. Results go to the sink as soon as
+ * the line that causes them is complete, and are the same as those of
+ * {@link RobotSimulator#process(java.io.InputStream, ReportSink)} on the whole stream, however it is split.
+ * <p>
+ * {@link #feed(ByteBuffer)} parses every complete line in place, with {@link ByteCommandParser}. All that is kept
+ * from one call to the next is the state a split can leave behind:
+ * - the start of an unfinished line, copied to a carry buffer that grows up to {@link ByteCommandReader#BUFFER_SIZE}
+ * bytes, longer lines only being parsed on that head as ByteCommandReader does;
+ * - whether the fragment ended on a \r, whose \n may start the next one.
+ * Once the carry buffer has grown to fit the longest line seen, feeding allocates nothing. Lines are counted, blank
+ * ones included, so the simulator's diagnostics give the same line numbers as for the whole stream.
+ * <p>
+ * Not thread safe: one parser per stream, fed from one thread at a time.
+ */
+public class PushParser {
+    private static final int LINE_HEAD = ByteCommandReader.BUFFER_SIZE;
+    private static final int INITIAL_CARRY_SIZE = 64;
+
+    private final RobotSimulator simulator;
+    private final ReportSink outputs;
+    private final CommandRecord command = new CommandRecord();
+    //Head of the line the last fragment ended in
+    private byte[] carry = new byte[INITIAL_CARRY_SIZE];
+    private ByteBuffer carryWindow = ByteBuffer.wrap(carry);
+    private int carryLength;
+    private boolean isAfterCarriageReturn;
+    //Consecutive MOVEs, run as one when another line or the end of the fragment comes
+    private int pendingMoves;
+    //Lines run since the start of the stream
+    private long lineNumber;
+
+    /**
+     * @param simulator runs the commands, from whatever state it is in.
+     * @param outputs   receives the reported positions and errors, in order.
+     */
+    PushParser(RobotSimulator simulator, ReportSink outputs) {
+        this.simulator = simulator;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Runs every line the fragment completes and keeps the unfinished one for the next call. The fragment is read
+     * from its position to its limit, and its position is moved to its limit.
+     */
+    public void feed(ByteBuffer input) {
+        int position = input.position();
+        int limit = input.limit();
+        if (isAfterCarriageReturn && position < limit) {
+            //A \n right after a \r terminator belongs to the same line break
+            isAfterCarriageReturn = false;
+            if (input.get(position) == '\n') position++;
+        }
+
+        int lineStart = position;
+        for (int i = position; i < limit; i++) {
+            byte value = input.get(i);
+            if (value != '\n' && value != '\r') continue;
+
+            if (carryLength == 0) {
+                run(input, lineStart, Math.min(i, lineStart + LINE_HEAD));
+            } else {
+                append(input, lineStart, i);
+                run(carryWindow, 0, carryLength);
+                carryLength = 0;
+            }
+            if (value == '\r') {
+                if (i + 1 == limit) {
+                    isAfterCarriageReturn = true;
+                } else if (input.get(i + 1) == '\n') {
+                    i++;
+                }
+            }
+            lineStart = i + 1;
+        }
+        append(input, lineStart, limit);
+        input.position(limit);
+        flushMoves();
+    }
+
+    /**
+     * Runs the last line if it has no line break, after which the parser is ready for a new stream.
+     */
+    public void finish() {
+        if (carryLength > 0) {
+            run(carryWindow, 0, carryLength);
+            carryLength = 0;
+        }
+        isAfterCarriageReturn = false;
+        flushMoves();
+        lineNumber = 0;
+    }
+
+    /**
+     * Copies [start, end) of the input after the carried head, up to LINE_HEAD bytes in all.
+     */
+    private void append(ByteBuffer input, int start, int end) {
+        int length = Math.min(end - start, LINE_HEAD - carryLength);
+        if (length <= 0) return;
+
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.min(LINE_HEAD, Math.max(carry.length * 2, carryLength + length)));
+            carryWindow = ByteBuffer.wrap(carry);
+        }
+        for (int i = 0; i < length; i++) {
+            carry[carryLength + i] = input.get(start + i);
+        }
+        carryLength += length;
+    }
+
+    private void run(ByteBuffer buffer, int start, int end) {
+        ByteCommandParser.parse(buffer, start, end, command);
+        lineNumber++;
+        if (command.command == Command.MOVE && pendingMoves < Integer.MAX_VALUE) {
+            pendingMoves++;
+            return;
+        }
+        flushMoves();
+        simulator.execute(command, outputs, lineNumber);
+    }
+
+    private void flushMoves() {
+        if (pendingMoves == 0) return;
+        simulator.executeMoves(outputs, pendingMoves);
+        pendingMoves = 0;
+    }
+}
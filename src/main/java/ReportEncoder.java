@@ -0,0 +1,117 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ReportSink} that encodes every result straight into a reusable byte buffer, flushed to an OutputStream
+ * when full, so reports can go to a file or a socket without a String per line. See {@link ReportFormat}.
+ * <p>
+ * {@link #flush()} must be called once processing is done; {@link #close()} flushes and closes the stream.
+ */
+abstract class ReportEncoder implements ReportSink, Flushable, Closeable {
+    static final int BUFFER_SIZE = 8 * 1024;
+    //Longest record of any format: "ROBOT_DETECTED" or a position with 2 minus signed ints and a direction
+    static final int MAX_RECORD_SIZE = 64;
+
+    //Indexed by Direction.ordinal()
+    static final byte[][] DIRECTION_NAMES = new byte[Direction.values().length][];
+    private static final byte[] MIN_INT = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (Direction direction : Direction.values()) {
+            DIRECTION_NAMES[direction.ordinal()] = direction.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final OutputStream output;
+    final byte[] buffer;
+    int size;
+
+    ReportEncoder(OutputStream output) {
+        this(output, BUFFER_SIZE);
+    }
+
+    ReportEncoder(OutputStream output, int bufferSize) {
+        this.output = output;
+        this.buffer = new byte[Math.max(bufferSize, MAX_RECORD_SIZE)];
+    }
+
+    /**
+     * Makes room for one more record, flushing the buffer if needed.
+     */
+    void reserve() {
+        if (size > buffer.length - MAX_RECORD_SIZE) flushBuffer();
+    }
+
+    void put(byte value) {
+        buffer[size++] = value;
+    }
+
+    void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    void putInt(int value) {
+        size = putInt(buffer, size, value);
+    }
+
+    void putDirection(Direction direction) {
+        put(DIRECTION_NAMES[direction.ordinal()]);
+    }
+
+    /**
+     * Writes the decimal digits of value, the way Integer.toString would.
+     *
+     * @return the position after the last digit.
+     */
+    static int putInt(byte[] buffer, int position, int value) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_INT, 0, buffer, position, MIN_INT.length);
+            return position + MIN_INT.length;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digitCount(value);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int digitCount(int value) {
+        int digits = 1;
+        for (long limit = 10; limit <= value; limit *= 10) digits++;
+        return digits;
+    }
+
+    private void flushBuffer() {
+        try {
+            output.write(buffer, 0, size);
+            size = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            output.close();
+        }
+    }
+}
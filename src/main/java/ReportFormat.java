@@ -0,0 +1,37 @@
+import java.io.OutputStream;
+
+/**
+ * Output format of {@link RobotSimulator#process(java.io.InputStream, OutputStream, ReportFormat)}.
+ */
+enum ReportFormat {
+    /**
+     * The report lines, as returned by {@link RobotSimulator#process(java.io.InputStream)}.
+     */
+    TEXT {
+        @Override
+        ReportEncoder open(OutputStream output, int bufferSize) {
+            return new TextReportEncoder(output, bufferSize);
+        }
+    },
+    CSV {
+        @Override
+        ReportEncoder open(OutputStream output, int bufferSize) {
+            return new CsvReportEncoder(output, bufferSize);
+        }
+    },
+    BINARY {
+        @Override
+        ReportEncoder open(OutputStream output, int bufferSize) {
+            return new BinaryReportEncoder(output, bufferSize);
+        }
+    };
+
+    ReportEncoder open(OutputStream output) {
+        return open(output, ReportEncoder.BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize bytes encoded before they are written to the output, at least MAX_RECORD_SIZE.
+     */
+    abstract ReportEncoder open(OutputStream output, int bufferSize);
+}
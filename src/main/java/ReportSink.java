@@ -0,0 +1,25 @@
+/**
+ * Receives the results of {@link RobotSimulator#process(java.io.InputStream, ReportSink)} as they happen,
+ * so REPORT lines and errors never have to be accumulated before the input ends.
+ */
+public interface ReportSink {
+    /**
+     * REPORT command on an activated robot.
+     */
+    void onPosition(int x, int y, Direction direction);
+
+    /**
+     * "Outside Zone: Ignored" -> When trying to deploy/move out of the zone
+     */
+    void onOutsideZone();
+
+    /**
+     * "PIT Detected: Ignored" -> When trying to deploy/move onto a pit.
+     */
+    void onPitDetected();
+
+    /**
+     * "ROBOT Detected: Ignored" -> When trying to add a pit to the current position of the robot.
+     */
+    void onRobotDetected();
+}
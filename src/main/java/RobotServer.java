@@ -0,0 +1,330 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the simulator over TCP. Every connection is a session with its own {@link RobotSimulator}, fed with the
+ * bytes as they arrive through a {@link PushParser}: each line runs as soon as its line break is in, and what it reports is written back right
+ * away, in the chosen {@link ReportFormat}. When the client shuts down its output, a last unterminated line is run,
+ * the results are flushed and the connection is closed.
+ * <p>
+ * Connections are spread over a few selector threads, each one running all of its sessions: a line costs far less
+ * than handing it to another thread. Memory per session is bounded:
+ * - the unfinished line is kept up to {@link ByteCommandReader#BUFFER_SIZE} bytes by the parser;
+ * - a session whose client doesn't read its results isn't read from until they are written, so its pending output
+ * stays under what READ_BUFFER_SIZE bytes of input can report.
+ */
+public class RobotServer implements Closeable {
+    static final int READ_BUFFER_SIZE = 16 * 1024;
+    //Results are encoded in this much before going to the session's pending output
+    static final int ENCODER_BUFFER_SIZE = 4 * ReportEncoder.MAX_RECORD_SIZE;
+
+    private final int boardWidth, boardHeight;
+    private final ReportFormat format;
+    private final DiagnosticLog diagnostics;
+    private final ServerSocketChannel server;
+    private final Loop[] loops;
+    //Accepting loop only
+    private int nextLoop;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private volatile boolean isClosed;
+
+    /**
+     * Listens on the address, on a default board, with one selector thread per core.
+     */
+    RobotServer(InetSocketAddress address) {
+        this(address, RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION, ReportFormat.TEXT,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Binds the address and starts serving.
+     *
+     * @param address     where to listen, port 0 for any free port, see {@link #address()}.
+     * @param boardWidth  number of columns of every session's board.
+     * @param boardHeight number of rows of every session's board.
+     * @param format      how results are written back.
+     * @param selectors   number of threads running sessions, the first one also accepts connections.
+     */
+    RobotServer(InetSocketAddress address, int boardWidth, int boardHeight, ReportFormat format, int selectors) {
+        this(address, boardWidth, boardHeight, format, selectors, DiagnosticLog.standardError());
+    }
+
+    /**
+     * Binds the address and starts serving.
+     *
+     * @param address     where to listen, port 0 for any free port, see {@link #address()}.
+     * @param boardWidth  number of columns of every session's board.
+     * @param boardHeight number of rows of every session's board.
+     * @param format      how results are written back.
+     * @param selectors   number of threads running sessions, the first one also accepts connections.
+     * @param diagnostics where every session logs its ignored lines, numbered within the session's stream.
+     */
+    RobotServer(InetSocketAddress address, int boardWidth, int boardHeight, ReportFormat format, int selectors,
+                DiagnosticLog diagnostics) {
+        if (selectors <= 0) {
+            throw new IllegalArgumentException("Invalid number of selectors " + selectors);
+        }
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.format = format;
+        this.diagnostics = diagnostics;
+        this.loops = new Loop[selectors];
+        try {
+            server = ServerSocketChannel.open();
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(address, 1024);
+            server.configureBlocking(false);
+            for (int i = 0; i < selectors; i++) loops[i] = new Loop(i);
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+        for (Loop loop : loops) loop.thread.start();
+    }
+
+    /**
+     * @return the address listened on, with the actual port.
+     */
+    public InetSocketAddress address() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the number of open sessions.
+     */
+    public int sessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Stops accepting, closes every connection, whatever the state of its session, and waits for the threads.
+     */
+    @Override
+    public void close() {
+        if (isClosed) return;
+        isClosed = true;
+        for (Loop loop : loops) {
+            if (loop == null) continue;
+            if (!loop.thread.isAlive()) {
+                //Never started, the constructor failed
+                loop.closeSelector();
+                continue;
+            }
+            loop.selector.wakeup();
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (server != null) server.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Loop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.registrations.add(channel);
+            if (loop != loops[0]) loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * One selector thread and the sessions registered with it.
+     */
+    private class Loop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        //Accepted connections waiting to be registered by this loop's thread
+        final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        //Shared by the loop's sessions, each one consumes what it read before the next read
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        Loop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "robot-server-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isClosed) {
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                    //After the keys, so the accepting loop registers what it just accepted
+                    register();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() != null) ((Session) key.attachment()).close();
+                }
+                SocketChannel channel;
+                while ((channel = registrations.poll()) != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        //Closing anyway
+                    }
+                }
+                closeSelector();
+            }
+        }
+
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                //Closing anyway
+            }
+        }
+
+        private void register() throws IOException {
+            SocketChannel channel;
+            while ((channel = registrations.poll()) != null) {
+                Session session = new Session(channel);
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                sessions.incrementAndGet();
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) return;
+            if (key.isAcceptable()) {
+                try {
+                    accept();
+                } catch (IOException e) {
+                    //The connection went away before it was accepted
+                }
+                return;
+            }
+
+            Session session = (Session) key.attachment();
+            try {
+                if (key.isReadable()) session.read(readBuffer);
+                if (key.isValid() && key.isWritable()) session.write();
+            } catch (IOException | RuntimeException e) {
+                //A reset connection, or a session that failed: only that one is dropped
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * One connection: its parser and simulator, and the results not written yet.
+     */
+    private class Session {
+        private final SocketChannel channel;
+        SelectionKey key;
+        private final PendingOutput output = new PendingOutput();
+        private final ReportEncoder encoder = format.open(output, ENCODER_BUFFER_SIZE);
+        private final PushParser parser = new PushParser(
+                new RobotSimulator(boardWidth, boardHeight, ParserEngine.BYTE, null, diagnostics), encoder);
+        private boolean isInputDone;
+        private boolean isClosed;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                isInputDone = true;
+                parser.finish();
+            } else {
+                buffer.flip();
+                parser.feed(buffer);
+            }
+            encoder.flush();
+            write();
+        }
+
+        /**
+         * Writes what the channel takes of the pending output, then waits for the rest to be written before reading
+         * on, or closes the connection once the input is done and everything is written.
+         */
+        void write() throws IOException {
+            if (output.hasPending()) {
+                output.written(channel.write(output.pending()));
+            }
+            if (output.hasPending()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (isInputDone) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (isClosed) return;
+            isClosed = true;
+            sessions.decrementAndGet();
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //Gone already
+            }
+        }
+    }
+
+    /**
+     * Encoded results not written to the channel yet.
+     */
+    private static class PendingOutput extends ByteArrayOutputStream {
+        private int written;
+
+        PendingOutput() {
+            super(ENCODER_BUFFER_SIZE);
+        }
+
+        boolean hasPending() {
+            return written < count;
+        }
+
+        ByteBuffer pending() {
+            return ByteBuffer.wrap(buf, written, count - written);
+        }
+
+        void written(int bytes) {
+            written += bytes;
+            if (written == count) {
+                written = 0;
+                reset();
+            }
+        }
+    }
+}
@@ -1,13 +1,15 @@
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * The application is a simulation of a Rover Robot moving on a square zone to be explored, of
- * dimensions 10 units x 10 units. Coordinates start at 0,0 (bottom left corner).
+ * dimensions 10 units x 10 units by default (any width x height can be configured, see
+ * {@link #RobotSimulator(int, int)}). Coordinates start at 0,0 (bottom left corner).
  * - The input is an input stream of unknown length that will contain a series of lines terminated in \n.
  * - The following commands may be sent:
  * DEPLOY X,Y,F : Deploys the robot to position X,Y if it is a valid position
@@ -20,7 +22,7 @@ import java.util.stream.Collectors;
  * - PIT commands are optional and can only follow a DEPLOY command and precede MOVE, LEFT, RIGHT.
  * - REPORT commands can happen at any time.
  * - The first command to be considered is DEPLOY. Commands before this can be safely ignored.
- * - Failure to parse one line should be logged to System.err but continue
+ * - Failure to parse one line should be logged to System.err but continue (see {@link DiagnosticLog})
  * - Multiple DEPLOYs can be called, so:
  * -- PITs can follow any DEPLOY command, not necessarily the first one.
  * -- The robot can't be deployed on a PIT.
@@ -44,111 +46,581 @@ import java.util.stream.Collectors;
  * REPORT
  */
 public class RobotSimulator {
-    private static final int BOARD_MAX_DIMENSION = 10;
-    private final Direction[] DIRECTION_SEQUENCE =
+    static final int DEFAULT_BOARD_DIMENSION = 10;
+    static final Direction[] DIRECTION_SEQUENCE =
             {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+    //One step in each direction of DIRECTION_SEQUENCE
+    static final int[] STEP_X = {0, 1, 0, -1};
+    static final int[] STEP_Y = {1, 0, -1, 0};
+    //No LEFT/RIGHT run pending in process()
+    private static final int NO_TURNS = -1;
     private int directionIndex;
     private int xCoordinate, yCoordinate;
     private boolean isActivated;
-    private final Set<Coordinate> pits;
+    //True while the previous lines are a DEPLOY followed only by PITs, i.e. a PIT is accepted now
+    private boolean isPitAllowed;
+    private final int boardWidth, boardHeight;
+    private final IndexedPitMap pits;
+    private final ParserEngine parserEngine;
+    private final CommandRecord command = new CommandRecord();
+    //Kept across runs so a reused simulator doesn't allocate a new buffer per input
+    private ByteCommandReader byteReader;
+    //Set while processing with snapshots, to hear about new pits
+    private Checkpointer checkpoints;
+    //Set while running a segment speculatively, to record what it depended on
+    private SpeculativeSimulator.Trace trace;
+    //Created by the first pathTo()
+    private PathPlanner planner;
+    //Null unless a trajectory is recorded
+    private TrajectoryRecorder recorder;
+    //null when metrics are off
+    private final SimulatorMetrics metrics;
+    private final DiagnosticLog diagnostics;
+    //Number of the line being processed, for diagnostics, 0 when unknown, e.g. outside process()
+    private long lineNumber;
 
     RobotSimulator() {
+        this(ParserEngine.STRING);
+    }
+
+    RobotSimulator(ParserEngine parserEngine) {
+        this(DEFAULT_BOARD_DIMENSION, DEFAULT_BOARD_DIMENSION, parserEngine);
+    }
+
+    RobotSimulator(int boardWidth, int boardHeight) {
+        this(boardWidth, boardHeight, ParserEngine.STRING);
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parserEngine how input lines are parsed.
+     */
+    RobotSimulator(int boardWidth, int boardHeight, ParserEngine parserEngine) {
+        this(boardWidth, boardHeight, parserEngine, null);
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parserEngine how input lines are parsed.
+     * @param metrics where to count what process() does, may be shared with other simulators, or null for none.
+     */
+    RobotSimulator(int boardWidth, int boardHeight, ParserEngine parserEngine, SimulatorMetrics metrics) {
+        this(boardWidth, boardHeight, parserEngine, metrics, DiagnosticLog.standardError());
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parserEngine how input lines are parsed.
+     * @param metrics where to count what process() does, may be shared with other simulators, or null for none.
+     * @param diagnostics where ignored lines are logged, may be shared with other simulators. Their line numbers are
+     *                    given for process() and {@link PushParser} streams, not for replayed binary scripts.
+     */
+    RobotSimulator(int boardWidth, int boardHeight, ParserEngine parserEngine, SimulatorMetrics metrics, DiagnosticLog diagnostics) {
+        if (boardWidth <= 0 || boardHeight <= 0) {
+            throw new IllegalArgumentException("Invalid board dimensions " + boardWidth + "x" + boardHeight);
+        }
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        pits = new IndexedPitMap(PitMap.forBoard(boardWidth, boardHeight));
+        this.parserEngine = parserEngine;
+        this.metrics = metrics;
+        this.diagnostics = diagnostics;
+        reset();
+    }
+
+    /**
+     * Forgets the robot and the pits, as if the simulator was new. The pit storage is cleared in place and reused,
+     * so the cost is proportional to the number of pits, not to the board size.
+     */
+    public void reset() {
         xCoordinate = -1;
         yCoordinate = -1;
         directionIndex = 0;
         isActivated = false;
-        pits = new HashSet<>();
+        isPitAllowed = false;
+        pits.clear();
+        if (planner != null) planner.clear();
+        if (recorder != null) recorder.onState(xCoordinate, yCoordinate, directionIndex, isActivated);
     }
+
+    /**
+     * Records where the robot is after each command from now on, or stops recording if the recorder is null. Runs of
+     * a {@link SpeculativeSimulator} are recorded as a jump to the state they end in, not command by command.
+     */
+    public void record(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+        if (recorder != null) recorder.onState(xCoordinate, yCoordinate, directionIndex, isActivated);
+    }
+
+    /**
+     * Plans the way from where the robot is to a cell, around the pits and within the board.
+     *
+     * @return a shortest MOVE/LEFT/RIGHT sequence that ends on the cell, facing any way, empty if the robot is on it
+     * already, or null if it can't be reached, is a pit or is outside the zone, or the robot isn't deployed.
+     * @throws PathSearchLimitException on boards too large for a bitset, when the search gives up without telling
+     *                                  whether the cell can be reached, see {@link PathPlanner#shortestPath}.
+     */
+    public List<Command> pathTo(int x, int y) {
+        if (!isActivated) return null;
+        if (planner == null) planner = new PathPlanner(boardWidth, boardHeight, pits);
+        return planner.shortestPath(xCoordinate, yCoordinate, directionIndex, x, y);
+    }
+
     /**
      * Should process the input and return the report lines as result.
      *
      * @param input the input.
-     * @return the reported lines.
+     * @return the reported lines, as an immutable list.
      */
     public List<String> process(InputStream input) {
-        List<String> inputCommands;
-        List<String> outputs = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
-            List<String> commands =  reader.lines().collect(Collectors.toList()); // Process line
-            for(int commandIndex=0; commandIndex < commands.size(); commandIndex++) {
-                Command mainCommand = null;
-                String[] commandArgsArray = null;
-
-                String[] commandTokens = commands.get(commandIndex).split(" ");
-                try {
-                    mainCommand = Command.valueOf(commandTokens[0]);
-                } catch (IllegalArgumentException e) {
-                    continue;
-                }
-                if (commandTokens.length > 1) {
-                    commandArgsArray = commandTokens[1].split(",");
-                }
+        ListReportSink outputs = new ListReportSink();
+        process(input, outputs);
+        return outputs.getLines();
+    }
 
-                switch(mainCommand) {
-                    case DEPLOY:
-                        boolean shouldSkipDeploy = deploy(outputs, commandArgsArray);
-                        if (shouldSkipDeploy) continue;
+    /**
+     * Processes the input and hands every REPORT and error to the sink as soon as it happens.
+     *
+     * @param input the input.
+     * @param outputs receives the reported positions and errors, in order.
+     */
+    public void process(InputStream input, ReportSink outputs) {
+        try (CommandReader reader = open(metrics == null ? input : metrics.counting(input))) {
+            process(reader, outputs);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        break;
-                    case PIT:
-                        if (!isActivated) continue;
+    /**
+     * Processes the input and writes every REPORT and error to the output in the given format, without building a
+     * String per line. The output is flushed, not closed.
+     *
+     * @param input the input.
+     * @param output where the encoded results go.
+     * @param format how the results are encoded.
+     */
+    public void process(InputStream input, OutputStream output, ReportFormat format) {
+        ReportEncoder encoder = format.open(output);
+        process(input, encoder);
+        try {
+            encoder.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        boolean shouldSkipPit = pit(commands, commandIndex, outputs, commandArgsArray);
-                        if (shouldSkipPit) continue;
+    /**
+     * Processes a command file by memory mapping it, see {@link MappedCommandReader}. Always uses the byte parser.
+     *
+     * @param input the command file.
+     * @return the reported lines, as an immutable list.
+     */
+    public List<String> process(Path input) {
+        ListReportSink outputs = new ListReportSink();
+        process(input, outputs);
+        return outputs.getLines();
+    }
 
-                        break;
-                    case MOVE:
-                        if (!isActivated) continue;
-                        move(outputs);
+    /**
+     * Processes a command file by memory mapping it and hands every REPORT and error to the sink.
+     *
+     * @param input the command file.
+     * @param outputs receives the reported positions and errors, in order.
+     */
+    public void process(Path input, ReportSink outputs) {
+        try (CommandReader reader = new MappedCommandReader(input)) {
+            process(reader, outputs);
+            if (metrics != null) metrics.onBytesRead(Files.size(input));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        break;
-                    case LEFT:
-                        if (!isActivated) continue;
+    /**
+     * Processes a command file, memory mapped, with a snapshot of the simulator every checkpoints.interval lines and
+     * at the end. The run starts from the journal's last snapshot if it has one, else from scratch: after a restart
+     * only the lines after that snapshot are read again.
+     *
+     * @param input the command file, the same one on every restart.
+     * @param outputs receives the reported positions and errors, in order. Those reported after the last snapshot
+     *                of a run that crashed are reported again.
+     * @param checkpoints the journal.
+     */
+    public void process(Path input, ReportSink outputs, Checkpointer checkpoints) {
+        resume(checkpoints);
+        try (CommandReader reader = new MappedCommandReader(input, MappedCommandReader.WINDOW_SIZE, checkpoints.resumeOffset())) {
+            this.checkpoints = checkpoints;
+            process(reader, outputs, checkpoints, 0);
+            if (metrics != null) metrics.onBytesRead(Files.size(input) - checkpoints.resumeOffset());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.checkpoints = null;
+        }
+    }
 
-                        directionIndex = (directionIndex + 3) % 4;
+    /**
+     * Same as {@link #process(Path, ReportSink, Checkpointer)} for any input, which the caller must have moved to
+     * {@link Checkpointer#resumeOffset()}, e.g. with FileChannel.position or InputStream.skip. Always uses the byte
+     * parser, which knows where its lines end.
+     */
+    public void process(InputStream input, ReportSink outputs, Checkpointer checkpoints) {
+        resume(checkpoints);
+        try (CommandReader reader = new ByteCommandReader(metrics == null ? input : metrics.counting(input))) {
+            this.checkpoints = checkpoints;
+            process(reader, outputs, checkpoints, checkpoints.resumeOffset());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.checkpoints = null;
+        }
+    }
 
-                        break;
-                    case RIGHT:
-                        if (!isActivated) continue;
+    private void resume(Checkpointer checkpoints) {
+        if (checkpoints.restored() == null) {
+            reset();
+        } else {
+            restore(checkpoints.restored());
+        }
+    }
 
-                        directionIndex = (directionIndex + 1) % 4;
+    /**
+     * Replays a script compiled by {@link BinaryScript}, with the same results as processing its text.
+     *
+     * @param script the binary script, read from its position to its limit, which are left untouched.
+     * @return the reported lines, as an immutable list.
+     */
+    public List<String> replay(ByteBuffer script) {
+        ListReportSink outputs = new ListReportSink();
+        replay(script, outputs);
+        return outputs.getLines();
+    }
 
-                        break;
-                    case REPORT:
-                        if (!isActivated) continue;
+    /**
+     * Replays a script compiled by {@link BinaryScript} and hands every REPORT and error to the sink.
+     *
+     * @param script the binary script, read from its position to its limit, which are left untouched.
+     * @param outputs receives the reported positions and errors, in order.
+     */
+    public void replay(ByteBuffer script, ReportSink outputs) {
+        BinaryScript.run(script, this, outputs);
+    }
 
-                        outputs.add(String.format("%s,%s,%s",
-                                this.xCoordinate, this.yCoordinate, this.DIRECTION_SEQUENCE[directionIndex].name()));
-                        break;
-                    default:
-                        System.err.println("Unrecognised command=" + mainCommand);
-                }
-            }
+    /**
+     * Replays a binary script file, memory mapped, and hands every REPORT and error to the sink.
+     *
+     * @param script the binary script file, see {@link BinaryScript#compile(Path, Path)}.
+     * @param outputs receives the reported positions and errors, in order.
+     */
+    public void replay(Path script, ReportSink outputs) {
+        try {
+            BinaryScript.run(script, this, outputs);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    private CommandReader open(InputStream input) {
+        if (parserEngine != ParserEngine.BYTE) return parserEngine.open(input);
 
-        return outputs;
-        // throw new UnsupportedOperationException();
+        if (byteReader == null) {
+            byteReader = new ByteCommandReader(input);
+        } else {
+            byteReader.reset(input);
+        }
+        return byteReader;
     }
 
-    private boolean deploy(List<String> outputs, String[] commandArgsArray) {
-        int inputXCoordinate = this.xCoordinate, inputYCoordinate = this.yCoordinate;
-        Direction inputDirection = null;
-        boolean shouldSkipDeploy = false;
+    /**
+     * Runs every line of the reader, which is left open, e.g. for load tests that wrap a reader to time it.
+     */
+    void process(CommandReader reader, ReportSink outputs) throws IOException {
+        process(reader, outputs, null, 0);
+    }
 
-        try {
-            if (commandArgsArray == null || commandArgsArray.length != 3) {
-                throw new IllegalArgumentException("Invalid command arguments");
+    /**
+     * @param checkpoints null, or where to snapshot the state every checkpoints.interval lines and at the end.
+     * @param baseOffset  input offset the reader started at.
+     */
+    private void process(CommandReader reader, ReportSink outputs, Checkpointer checkpoints, long baseOffset) throws IOException {
+        SimulatorMetrics metrics = this.metrics;
+        long lines = 0;
+        long startNanos = 0;
+        if (metrics != null) {
+            outputs = metrics.counting(outputs);
+            startNanos = System.nanoTime();
+        }
+        //Consecutive MOVEs, or consecutive LEFT/RIGHTs, are only counted and run as one segment when another line or the
+        //end comes. Not the turns when recording, which counts a run of turns as one command but needs one per line.
+        int pendingMoves = 0;
+        //Net quarter turns right of the pending LEFT/RIGHT lines, NO_TURNS when there are none
+        int pendingTurns = NO_TURNS;
+        int sinceCheckpoint = 0;
+        lineNumber = 0;
+        while (true) {
+            //One line in metrics.sampleMask + 1 is timed. A run of MOVEs or turns is timed on the line that ends it.
+            boolean isSampled = metrics != null && (lines & metrics.sampleMask) == 0;
+            long parseStart = isSampled ? System.nanoTime() : 0;
+            if (!reader.next(command)) break; // Process line by line, nothing else is buffered
+            lineNumber++;
+            long executeStart = isSampled ? System.nanoTime() : 0;
+            if (metrics != null) {
+                metrics.onCommand(command.command);
+                lines++;
             }
-            inputXCoordinate = Integer.parseInt(commandArgsArray[0]);
-            inputYCoordinate = Integer.parseInt(commandArgsArray[1]);
-            inputDirection = Direction.valueOf(commandArgsArray[2]);
-        } catch (IllegalArgumentException e) {
-            shouldSkipDeploy = true;
-            return shouldSkipDeploy;
+
+            Command current = command.command;
+            if (current == Command.MOVE && pendingMoves < Integer.MAX_VALUE) {
+                if (pendingTurns != NO_TURNS) {
+                    executeTurn(pendingTurns);
+                    pendingTurns = NO_TURNS;
+                }
+                pendingMoves++;
+            } else if ((current == Command.LEFT || current == Command.RIGHT) && recorder == null) {
+                if (pendingMoves != 0) {
+                    executeMoves(outputs, pendingMoves);
+                    pendingMoves = 0;
+                }
+                pendingTurns = ((pendingTurns == NO_TURNS ? 0 : pendingTurns) + (current == Command.RIGHT ? 1 : 3)) & 3;
+            } else {
+                executePending(outputs, pendingMoves, pendingTurns);
+                pendingMoves = 0;
+                pendingTurns = NO_TURNS;
+                execute(command, outputs);
+            }
+            if (isSampled) metrics.onSample(executeStart - parseStart, System.nanoTime() - executeStart);
+
+            if (checkpoints != null && ++sinceCheckpoint >= checkpoints.interval) {
+                executePending(outputs, pendingMoves, pendingTurns);
+                pendingMoves = 0;
+                pendingTurns = NO_TURNS;
+                //Not every line end is a clean restart point, e.g. inside an overlong line: try again on the next one
+                if (checkpoint(reader, checkpoints, baseOffset)) sinceCheckpoint = 0;
+            }
+        }
+        executePending(outputs, pendingMoves, pendingTurns);
+        lineNumber = 0;
+        if (checkpoints != null) checkpoint(reader, checkpoints, baseOffset);
+        if (metrics != null) metrics.onRun(lines, startNanos);
+    }
+
+    /**
+     * Runs the MOVEs or turns process() has counted but not run yet, at most one of the two is pending.
+     */
+    private void executePending(ReportSink outputs, int pendingMoves, int pendingTurns) {
+        if (pendingMoves != 0) executeMoves(outputs, pendingMoves);
+        if (pendingTurns != NO_TURNS) executeTurn(pendingTurns);
+    }
+
+    private boolean checkpoint(CommandReader reader, Checkpointer checkpoints, long baseOffset) {
+        long offset = reader.resumeOffset();
+        if (offset < 0) return false;
+
+        checkpoints.checkpoint(baseOffset + offset, xCoordinate, yCoordinate, directionIndex, isActivated, isPitAllowed);
+        return true;
+    }
+
+    /**
+     * Puts the simulator back in the state of the snapshot, see {@link Checkpointer#restored()}.
+     */
+    void restore(Checkpointer.Snapshot snapshot) {
+        reset();
+        apply(snapshot);
+    }
+
+    /**
+     * Moves the robot to the state of the snapshot and adds its pits to those already there.
+     */
+    private void apply(Checkpointer.Snapshot snapshot) {
+        xCoordinate = snapshot.x;
+        yCoordinate = snapshot.y;
+        directionIndex = snapshot.directionIndex;
+        isActivated = snapshot.isActivated;
+        isPitAllowed = snapshot.isPitAllowed;
+        for (int i = 0; i < snapshot.pitCount; i++) {
+            pits.add(snapshot.pits[i * 2], snapshot.pits[i * 2 + 1]);
+        }
+        if (recorder != null) recorder.onState(xCoordinate, yCoordinate, directionIndex, isActivated);
+    }
+
+    /**
+     * Runs [start, end) of a binary script from a reset state, recording in the trace what it reports, the pits it
+     * adds, every cell whose pit it looks up and the state it ends in, see {@link SpeculativeSimulator}.
+     */
+    void speculate(ByteBuffer script, int start, int end, SpeculativeSimulator.Trace trace) {
+        reset();
+        trace.clear();
+        this.trace = trace;
+        try {
+            new BinaryScript.Interpreter(script, start).run(end, true, this, trace);
+        } finally {
+            this.trace = null;
+        }
+        trace.exit.set(0, xCoordinate, yCoordinate, directionIndex, isActivated, isPitAllowed);
+    }
+
+    /**
+     * Takes on the result of a speculative run, as if it had been run here, unless one of the pits already here
+     * would have changed it.
+     *
+     * @return false, with nothing changed, when the run has to be done again from this simulator's state.
+     */
+    boolean commit(SpeculativeSimulator.Trace trace, ReportSink outputs) {
+        if (!trace.isUnaffected(pits)) return false;
+
+        apply(trace.exit);
+        trace.replay(outputs);
+        return true;
+    }
+
+    /**
+     * Same as {@link #execute(CommandRecord, ReportSink)}, for the line of that number, from 1, in the diagnostics.
+     */
+    void execute(CommandRecord command, ReportSink outputs, long line) {
+        lineNumber = line;
+        execute(command, outputs);
+        lineNumber = 0;
+    }
+
+    void execute(CommandRecord command, ReportSink outputs) {
+        if (command.command == null) {
+            executeUnrecognised();
+            return;
+        }
+
+        switch(command.command) {
+            case DEPLOY:
+                executeDeploy(outputs, command.hasValidArgs, command.x, command.y, command.directionIndex);
+                break;
+            case PIT:
+                executePit(outputs, command.hasValidArgs, command.x, command.y);
+                break;
+            case MOVE:
+                executeMove(outputs);
+                break;
+            case LEFT:
+                executeLeft();
+                break;
+            case RIGHT:
+                executeRight();
+                break;
+            case REPORT:
+                executeReport(outputs);
+                break;
+            default:
+                diagnostics.report(DiagnosticLog.Kind.UNRECOGNISED_LINE, lineNumber);
+        }
+    }
+
+    //One entry point per command, for engines that don't go through a CommandRecord
+
+    void executeUnrecognised() {
+        diagnostics.report(DiagnosticLog.Kind.UNRECOGNISED_LINE, lineNumber);
+        isPitAllowed = false;
+        if (recorder != null) recorder.onStay();
+    }
+
+    void executeDeploy(ReportSink outputs, boolean hasValidArgs, int x, int y, int directionIndex) {
+        //A DEPLOY line opens the PIT window even when the deploy itself is rejected
+        isPitAllowed = true;
+        if (!hasValidArgs) {
+            diagnostics.report(DiagnosticLog.Kind.INVALID_DEPLOY_ARGUMENTS, lineNumber);
+            if (recorder != null) recorder.onStay();
+            return;
+        }
+
+        boolean isRejected = deploy(outputs, x, y, directionIndex);
+        if (recorder == null) return;
+        if (isRejected) {
+            recorder.onStay();
+        } else {
+            recorder.onDeploy(x, y, directionIndex);
+        }
+    }
+
+    void executePit(ReportSink outputs, boolean hasValidArgs, int x, int y) {
+        if (recorder != null) recorder.onStay();
+        if (!isActivated) return;
+
+        pit(outputs, hasValidArgs, x, y);
+    }
+
+    void executeMove(ReportSink outputs) {
+        isPitAllowed = false;
+        if (!isActivated) {
+            if (recorder != null) recorder.onStay();
+            return;
         }
 
+        move(outputs);
+    }
+
+    /**
+     * Same as that many MOVE lines in a row, in one go: the free cells ahead are found at once, and once the robot is
+     * blocked every remaining step reports the same error, as a single step into the same cell would.
+     */
+    void executeMoves(ReportSink outputs, int steps) {
+        isPitAllowed = false;
+        if (!isActivated || steps <= 0) {
+            if (recorder != null) recorder.onStay(steps);
+            return;
+        }
+
+        moveMany(outputs, steps);
+    }
+
+    /**
+     * Same as that many LEFT/RIGHT lines in a row, counted in right quarter turns, any number including 0. A recorder
+     * counts it as a single command.
+     */
+    void executeTurn(int quarterTurnsRight) {
+        isPitAllowed = false;
+        if (!isActivated) {
+            if (recorder != null) recorder.onStay();
+            return;
+        }
+
+        directionIndex = (directionIndex + quarterTurnsRight) & 3;
+        if (recorder != null) recorder.onTurn(quarterTurnsRight);
+    }
+
+    void executeLeft() {
+        isPitAllowed = false;
+        if (!isActivated) {
+            if (recorder != null) recorder.onStay();
+            return;
+        }
+
+        directionIndex = (directionIndex + 3) % 4;
+        if (recorder != null) recorder.onLeft();
+    }
+
+    void executeRight() {
+        isPitAllowed = false;
+        if (!isActivated) {
+            if (recorder != null) recorder.onStay();
+            return;
+        }
+
+        directionIndex = (directionIndex + 1) % 4;
+        if (recorder != null) recorder.onRight();
+    }
+
+    void executeReport(ReportSink outputs) {
+        if (recorder != null) recorder.onStay();
+        isPitAllowed = false;
+        if (!isActivated) return;
+
+        outputs.onPosition(this.xCoordinate, this.yCoordinate, DIRECTION_SEQUENCE[directionIndex]);
+    }
+
+    private boolean deploy(ReportSink outputs, int inputXCoordinate, int inputYCoordinate, int inputDirectionIndex) {
+        boolean shouldSkipDeploy = false;
+
         //Validations
         if (isInvalidMove(outputs, inputXCoordinate, inputYCoordinate)) {
             shouldSkipDeploy = true;
@@ -158,64 +630,45 @@ public class RobotSimulator {
         //Commit the Command
         this.xCoordinate = inputXCoordinate;
         this.yCoordinate = inputYCoordinate;
-        this.directionIndex = Arrays.asList(DIRECTION_SEQUENCE).indexOf(inputDirection);
+        this.directionIndex = inputDirectionIndex;
         this.isActivated = true;
 
         return shouldSkipDeploy;
     }
 
-    private boolean pit(List<String> commands, int commandIndex,
-                        List<String> outputs, String[] commandArgsArray) {
-        int inputXCoordinate = this.xCoordinate, inputYCoordinate = this.yCoordinate;
-        Direction inputDirection = null;
-        boolean shouldSkipPit = false;
+    private boolean pit(ReportSink outputs, boolean hasValidArgs, int inputXCoordinate, int inputYCoordinate) {
+        boolean shouldSkipThisPit = false;
 
         //Make sure this PIT follows a DEPLOY and allows only PIT in intermediate steps
-        boolean shouldSkipThisPit = false;
-        int tmpIndex = commandIndex;
-        String previousCommand = null;
-        while (tmpIndex >= 0){
-            previousCommand = commands.get((tmpIndex - 1) % commands.size());
-            if (previousCommand.startsWith(Command.PIT.name())) {
-                --tmpIndex;
-            } else if (previousCommand.startsWith(Command.DEPLOY.name())) {
-                break;
-            } else {
-                shouldSkipThisPit = true;
-                return shouldSkipThisPit;
-            }
+        if (!hasValidArgs) {
+            diagnostics.report(DiagnosticLog.Kind.INVALID_PIT_ARGUMENTS, lineNumber);
+            shouldSkipThisPit = true;
+            return shouldSkipThisPit;
         }
-
-        String nextCommand = commands.get((commandIndex + 1) % commands.size());
-        //Based on Test cases, I guess below requirement is not valid
-//                        if (!(nextCommand.startsWith(Command.MOVE.name()) ||
-//                                nextCommand.startsWith(Command.LEFT.name()) ||
-//                                nextCommand.startsWith(Command.RIGHT.name()))) {
-//                            shouldSkipThisPit = true;
-//                            return shouldSkipThisPit;
-//                        }
-
-
-        try {
-            inputXCoordinate = Integer.parseInt(commandArgsArray[0]);
-            inputYCoordinate = Integer.parseInt(commandArgsArray[1]);
-        } catch (IllegalArgumentException e) {
+        if (!isPitAllowed) {
+            diagnostics.report(DiagnosticLog.Kind.PIT_NOT_ALLOWED, lineNumber);
             shouldSkipThisPit = true;
             return shouldSkipThisPit;
         }
 
         if (this.xCoordinate == inputXCoordinate &&
                 this.yCoordinate == inputYCoordinate) {
-            outputs.add("ROBOT Detected: Ignored");
+            outputs.onRobotDetected();
             shouldSkipThisPit = true;
             return shouldSkipThisPit;
         }
 
-        pits.add(new Coordinate(inputXCoordinate, inputYCoordinate));
+        int pitCount = pits.size();
+        pits.add(inputXCoordinate, inputYCoordinate);
+        if (pits.size() != pitCount) {
+            if (checkpoints != null) checkpoints.onPit(inputXCoordinate, inputYCoordinate);
+            if (trace != null) trace.onPit(inputXCoordinate, inputYCoordinate);
+            if (metrics != null) metrics.onPitAdded();
+        }
         return shouldSkipThisPit;
     }
 
-    private void move(final List<String> outputs) {
+    private void move(final ReportSink outputs) {
         int inputXCoordinate = this.xCoordinate;
         int inputYCoordinate = this.yCoordinate;
         Direction currentDirection = DIRECTION_SEQUENCE[directionIndex];
@@ -236,23 +689,56 @@ public class RobotSimulator {
                 break;
         }
 
-        if (isInvalidMove(outputs, inputXCoordinate, inputYCoordinate)) return;
+        if (isInvalidMove(outputs, inputXCoordinate, inputYCoordinate)) {
+            if (recorder != null) recorder.onMoves(0, 1);
+            return;
+        }
 
         //Commit the Command
         this.xCoordinate = inputXCoordinate;
         this.yCoordinate = inputYCoordinate;
+        if (recorder != null) recorder.onMoves(1, 1);
+    }
+
+    private void moveMany(final ReportSink outputs, int steps) {
+        int stepX = STEP_X[directionIndex];
+        int stepY = STEP_Y[directionIndex];
+        //The robot is always on the board, so this is never negative
+        int toEdge = stepX > 0 ? boardWidth - 1 - xCoordinate
+                : stepX < 0 ? xCoordinate
+                : stepY > 0 ? boardHeight - 1 - yCoordinate
+                : yCoordinate;
+        int free = pits.freeSteps(xCoordinate, yCoordinate, stepX, stepY, Math.min(steps, toEdge));
+        if (trace != null) trace.probe(xCoordinate, yCoordinate, directionIndex, free);
+
+        //Commit the free part
+        this.xCoordinate += free * stepX;
+        this.yCoordinate += free * stepY;
+        if (recorder != null) recorder.onMoves(free, steps);
+
+        int blocked = steps - free;
+        if (blocked == 0) return;
+
+        //Pit first, like isInvalidMove: an off board pit still reports PIT Detected
+        if (trace != null) trace.probe(xCoordinate + stepX, yCoordinate + stepY);
+        if (pits.contains(xCoordinate + stepX, yCoordinate + stepY)) {
+            for (int i = 0; i < blocked; i++) outputs.onPitDetected();
+        } else {
+            for (int i = 0; i < blocked; i++) outputs.onOutsideZone();
+        }
     }
 
-    private boolean isInvalidMove(final List<String> outputs, int xCoordinate, int yCoordinate) {
+    private boolean isInvalidMove(final ReportSink outputs, int xCoordinate, int yCoordinate) {
+        if (trace != null) trace.probe(xCoordinate, yCoordinate);
 
-        if (pits.contains(new Coordinate(xCoordinate, yCoordinate))) {
-            outputs.add("PIT Detected: Ignored");
+        if (pits.contains(xCoordinate, yCoordinate)) {
+            outputs.onPitDetected();
             return true;
         }
 
-        if (xCoordinate < 0 || xCoordinate >= BOARD_MAX_DIMENSION ||
-                yCoordinate < 0 || yCoordinate >= BOARD_MAX_DIMENSION) {
-            outputs.add("Outside Zone: Ignored");
+        if (xCoordinate < 0 || xCoordinate >= boardWidth ||
+                yCoordinate < 0 || yCoordinate >= boardHeight) {
+            outputs.onOutsideZone();
             return true;
         }
 
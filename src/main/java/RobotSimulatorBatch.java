@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs many independent command streams concurrently, each one on a freshly reset {@link RobotSimulator} so no
+ * pits or positions leak from one stream to another. Simulators are reused through a {@link RobotSimulatorPool}.
+ * <p>
+ * Streams run on virtual threads when the JDK has them (21+), on a ForkJoinPool sized to the parallelism otherwise.
+ * Either way at most maxInFlight streams are open at once, so a batch of tens of thousands of files doesn't open
+ * tens of thousands of files.
+ */
+public class RobotSimulatorBatch implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final RobotSimulatorPool simulators;
+
+    /**
+     * One input stream of the batch, opened only when it's its turn to run.
+     */
+    public interface Input {
+        InputStream open() throws IOException;
+    }
+
+    RobotSimulatorBatch(int parallelism) {
+        this(parallelism, RobotSimulator::new);
+    }
+
+    /**
+     * @param parallelism number of streams processed at the same time.
+     * @param simulators  creates the simulator for each stream, e.g. for a given board size or parser engine.
+     */
+    RobotSimulatorBatch(int parallelism, Supplier<RobotSimulator> simulators) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        this.executor = virtualThreads != null ? virtualThreads : new ForkJoinPool(parallelism);
+        this.maxInFlight = parallelism;
+        this.simulators = new RobotSimulatorPool(parallelism, simulators);
+    }
+
+    /**
+     * Processes every command file, see {@link RobotSimulator#process(Path)}.
+     *
+     * @return the reported lines of every file, in the order of the files.
+     */
+    public List<List<String>> process(Collection<Path> inputs) {
+        List<Input> opened = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            opened.add(() -> Files.newInputStream(input));
+        }
+        return processInputs(opened);
+    }
+
+    /**
+     * Processes every input, see {@link RobotSimulator#process(InputStream)}.
+     *
+     * @return the reported lines of every input, in the order of the inputs.
+     */
+    public List<List<String>> processInputs(Collection<? extends Input> inputs) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<Future<List<String>>> futures = new ArrayList<>(inputs.size());
+        try {
+            for (Input input : inputs) {
+                inFlight.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        RobotSimulator simulator = simulators.borrow();
+                        try (InputStream stream = input.open()) {
+                            return simulator.process(stream);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        } finally {
+                            simulators.release(simulator);
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+
+            List<List<String>> results = new ArrayList<>(futures.size());
+            for (Future<List<String>> future : futures) {
+                results.add(future.get());
+            }
+            return Collections.unmodifiableList(results);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return Executors.newVirtualThreadPerTaskExecutor() on JDKs that have it, null otherwise.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.function.Supplier;
+
+/**
+ * Keeps idle {@link RobotSimulator}s for reuse, so handling a job costs a {@link RobotSimulator#reset()} instead of
+ * a new simulator with its pit storage and buffers. Safe to share between threads.
+ */
+public class RobotSimulatorPool {
+    private final Supplier<RobotSimulator> simulators;
+    private final RobotSimulator[] idle;
+    private int idleCount;
+
+    RobotSimulatorPool(int maxIdle) {
+        this(maxIdle, RobotSimulator::new);
+    }
+
+    /**
+     * @param maxIdle    simulators kept for reuse at most, released ones beyond that are dropped.
+     * @param simulators creates a simulator when none is idle.
+     */
+    RobotSimulatorPool(int maxIdle, Supplier<RobotSimulator> simulators) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("Invalid pool size " + maxIdle);
+        }
+        this.simulators = simulators;
+        this.idle = new RobotSimulator[maxIdle];
+    }
+
+    /**
+     * @return a simulator in its initial state, to be handed back with {@link #release(RobotSimulator)}.
+     */
+    public RobotSimulator borrow() {
+        synchronized (idle) {
+            if (idleCount > 0) {
+                RobotSimulator simulator = idle[--idleCount];
+                idle[idleCount] = null;
+                return simulator;
+            }
+        }
+        return simulators.get();
+    }
+
+    /**
+     * Stops its recording, resets the simulator and keeps it for the next {@link #borrow()}. A recorder attached by
+     * the borrower may already be closed, and the next one must not see this job's commands.
+     */
+    public void release(RobotSimulator simulator) {
+        simulator.record(null);
+        simulator.reset();
+        synchronized (idle) {
+            if (idleCount < idle.length) {
+                idle[idleCount++] = simulator;
+            }
+        }
+    }
+
+    int idleCount() {
+        synchronized (idle) {
+            return idleCount;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * What {@link RobotSimulator#process(InputStream, ReportSink)} has been doing: lines per command, unparseable lines,
+ * errors per kind, pits added, bytes read, and sampled parse and execute latencies. Read it through the getters, or
+ * over JMX once {@link #register(String) registered}.
+ * <p>
+ * Counters are LongAdders, so one instance can be shared by simulators on many threads without contention. Timing
+ * every line would cost more than parsing it, so only one line in sampleInterval is timed.
+ * <p>
+ * Metrics are off unless a simulator is given an instance, and then the hot path only pays a null check per line.
+ * With JFR on, every run also commits a "robot.Process" event, with its lines and time, and a "robot.Metrics" event,
+ * with every counter's total so far, when the Java 11+ classes of src/jfr/java are present.
+ */
+public class SimulatorMetrics implements SimulatorMetricsMXBean {
+    static final int DEFAULT_SAMPLE_INTERVAL = 1024;
+
+    private static final Command[] COMMANDS = Command.values();
+    //SimulatorEvents.commitProcess(SimulatorMetrics, long, long), null when the JVM has no JFR or the jfr classes are not on the classpath
+    private static final MethodHandle COMMIT_PROCESS = findCommitProcess();
+
+    private final LongAdder[] commands = new LongAdder[COMMANDS.length];
+    private final LongAdder unparseableLines = new LongAdder();
+    private final LongAdder outsideZoneErrors = new LongAdder();
+    private final LongAdder pitDetectedErrors = new LongAdder();
+    private final LongAdder robotDetectedErrors = new LongAdder();
+    private final LongAdder pitsAdded = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram executeLatency = new LatencyHistogram();
+    //Lines whose count & sampleMask is 0 are timed
+    final int sampleMask;
+    private final boolean isJfrEnabled;
+
+    SimulatorMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL, false);
+    }
+
+    /**
+     * @param sampleInterval one line in this many is timed, a power of two.
+     * @param isJfrEnabled   whether to commit JFR events, ignored on JVMs without JFR.
+     */
+    SimulatorMetrics(int sampleInterval, boolean isJfrEnabled) {
+        if (sampleInterval <= 0 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval);
+        }
+        for (int i = 0; i < commands.length; i++) commands[i] = new LongAdder();
+        this.sampleMask = sampleInterval - 1;
+        this.isJfrEnabled = isJfrEnabled && isJfrAvailable();
+    }
+
+    /**
+     * @return whether JFR events can be committed: the JVM has JFR and SimulatorEvents, built separately for Java 11+,
+     * is on the classpath.
+     */
+    static boolean isJfrAvailable() {
+        return COMMIT_PROCESS != null;
+    }
+
+    private static MethodHandle findCommitProcess() {
+        try {
+            Class.forName("jdk.jfr.Event", false, SimulatorMetrics.class.getClassLoader());
+            Class<?> events = Class.forName("SimulatorEvents", true, SimulatorMetrics.class.getClassLoader());
+            return MethodHandles.lookup().findStatic(events, "commitProcess",
+                    MethodType.methodType(void.class, SimulatorMetrics.class, long.class, long.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Registers this instance with the platform MBean server as robot:type=SimulatorMetrics,name=&lt;name&gt;.
+     *
+     * @return the name it is registered under.
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("robot:type=SimulatorMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void onCommand(Command command) {
+        if (command == null) {
+            unparseableLines.increment();
+        } else {
+            commands[command.ordinal()].increment();
+        }
+    }
+
+    void onSample(long parseNanos, long executeNanos) {
+        parseLatency.record(parseNanos);
+        executeLatency.record(executeNanos);
+    }
+
+    void onPitAdded() {
+        pitsAdded.increment();
+    }
+
+    void onBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    void onRun(long lines, long startNanos) {
+        runs.increment();
+        if (isJfrEnabled) commitProcessEvent(lines, System.nanoTime() - startNanos);
+    }
+
+    private void commitProcessEvent(long lines, long nanos) {
+        try {
+            COMMIT_PROCESS.invokeExact(this, lines, nanos);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the input, counting the bytes read from it.
+     */
+    InputStream counting(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) bytesRead.increment();
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) bytesRead.add(read);
+                return read;
+            }
+        };
+    }
+
+    /**
+     * @return the sink, counting the errors reported to it.
+     */
+    ReportSink counting(ReportSink outputs) {
+        return new ReportSink() {
+            @Override
+            public void onPosition(int x, int y, Direction direction) {
+                outputs.onPosition(x, y, direction);
+            }
+
+            @Override
+            public void onOutsideZone() {
+                outsideZoneErrors.increment();
+                outputs.onOutsideZone();
+            }
+
+            @Override
+            public void onPitDetected() {
+                pitDetectedErrors.increment();
+                outputs.onPitDetected();
+            }
+
+            @Override
+            public void onRobotDetected() {
+                robotDetectedErrors.increment();
+                outputs.onRobotDetected();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Command command : COMMANDS) counts.put(command.name(), commands[command.ordinal()].sum());
+        return counts;
+    }
+
+    long getCommandCount(Command command) {
+        return commands[command.ordinal()].sum();
+    }
+
+    @Override
+    public long getUnparseableLines() {
+        return unparseableLines.sum();
+    }
+
+    @Override
+    public long getOutsideZoneErrors() {
+        return outsideZoneErrors.sum();
+    }
+
+    @Override
+    public long getPitDetectedErrors() {
+        return pitDetectedErrors.sum();
+    }
+
+    @Override
+    public long getRobotDetectedErrors() {
+        return robotDetectedErrors.sum();
+    }
+
+    @Override
+    public long getPitsAdded() {
+        return pitsAdded.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    @Override
+    public long[] getParseLatencyHistogram() {
+        return parseLatency.counts();
+    }
+
+    @Override
+    public long[] getExecuteLatencyHistogram() {
+        return executeLatency.counts();
+    }
+
+    @Override
+    public long getParseLatencyP50Nanos() {
+        return parseLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getParseLatencyP99Nanos() {
+        return parseLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getExecuteLatencyP50Nanos() {
+        return executeLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getExecuteLatencyP99Nanos() {
+        return executeLatency.percentile(0.99);
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.Map;
+
+/**
+ * JMX view of {@link SimulatorMetrics}, see {@link SimulatorMetrics#register(String)}.
+ */
+public interface SimulatorMetricsMXBean {
+    /**
+     * @return lines processed per command name.
+     */
+    Map<String, Long> getCommandCounts();
+
+    long getUnparseableLines();
+
+    long getOutsideZoneErrors();
+
+    long getPitDetectedErrors();
+
+    long getRobotDetectedErrors();
+
+    long getPitsAdded();
+
+    long getBytesRead();
+
+    long getRuns();
+
+    /**
+     * @return sampled line counts per power of two bucket of nanoseconds, bucket i holding [2^(i-1), 2^i).
+     */
+    long[] getParseLatencyHistogram();
+
+    long[] getExecuteLatencyHistogram();
+
+    long getParseLatencyP50Nanos();
+
+    long getParseLatencyP99Nanos();
+
+    long getExecuteLatencyP50Nanos();
+
+    long getExecuteLatencyP99Nanos();
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of coordinates packed into primitive longs, sized by the number of pits only.
+ * <p>
+ * Every slot carries the generation it was written in and only slots of the current generation are live, so
+ * {@link #clear()} is a single increment and the table is reused as is.
+ */
+class SparsePitMap implements PitMap {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] generations;
+    //Slots start at generation 0, i.e. free
+    private int generation = 1;
+    private int size;
+
+    SparsePitMap() {
+        keys = new long[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public boolean contains(int x, int y) {
+        long key = Cells.key(x, y);
+        int mask = keys.length - 1;
+        for (int slot = Cells.slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (generations[slot] != generation) return false;
+            if (keys[slot] == key) return true;
+        }
+    }
+
+    @Override
+    public void add(int x, int y) {
+        if (insert(keys, generations, generation, Cells.key(x, y))) {
+            size++;
+            //Keep the load factor at 1/2 so probe sequences stay short
+            if (size * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (generations[slot] == generation) visitor.visit(Cells.x(keys[slot]), Cells.y(keys[slot]));
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        if (++generation == 0) {
+            //Wrapped around after 2^32 clears, old stamps could look current again
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @return the bytes held by the table.
+     */
+    long bytes() {
+        return keys.length * 12L;
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        int[] newGenerations = new int[capacity];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (generations[slot] == generation) insert(newKeys, newGenerations, generation, keys[slot]);
+        }
+        keys = newKeys;
+        generations = newGenerations;
+    }
+
+    private static boolean insert(long[] keys, int[] generations, int generation, long key) {
+        int mask = keys.length - 1;
+        for (int slot = Cells.slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (generations[slot] != generation) {
+                keys[slot] = key;
+                generations[slot] = generation;
+                return true;
+            }
+            if (keys[slot] == key) return false;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * Runs one command stream on several cores, with exactly the results of {@link RobotSimulator#process(InputStream)}.
+ * Lines are parsed ahead on the same threads, see {@link PipelinedCommandReader}.
+ * <p>
+ * A DEPLOY onto a free cell of the board puts the robot in a state that doesn't depend on anything before it, so the
+ * stream is cut into segments, each one starting at such a DEPLOY. Segments are compiled with {@link BinaryScript},
+ * then each one is run speculatively, in parallel, from a reset simulator, as if no earlier segment had added pits.
+ * Along with its results, a speculative run records every cell whose pit it looked up: the DEPLOY cell, every cell
+ * moved through and every cell it was blocked by.
+ * <p>
+ * A fix-up pass then goes through the segments in order on the real simulator. A segment none of whose looked up cells
+ * holds a pit of the earlier segments ran exactly as it would have in order: its results are reported, its pits added
+ * and its end state taken on, at the cost of one ray lookup per run of MOVEs. Any other segment, e.g. whose DEPLOY
+ * cell turned out to hold a pit, is run again in order from the real state.
+ * <p>
+ * The stream is read in batches of at most BATCH_SEGMENTS segments or about BATCH_BYTES of compiled script, the
+ * lines before the first segment of a batch running in order while the segments are speculated on. Diagnostics of the
+ * lines that get compiled away or run speculatively are not logged. Close it to stop its threads.
+ */
+public class SpeculativeSimulator implements AutoCloseable {
+    static final int BATCH_SEGMENTS = 1 << 12;
+    static final int BATCH_BYTES = 1 << 20;
+    //Speculative tasks per thread, so one slow segment doesn't hold up the batch
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final int boardWidth, boardHeight;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final RobotSimulator simulator;
+    private final RobotSimulatorPool workers;
+    private final ScriptBuffer script = new ScriptBuffer();
+    //Where each segment of the batch starts in the script, and where the last one ends
+    private final int[] segmentStarts = new int[BATCH_SEGMENTS + 1];
+    private final Trace[] traces = new Trace[BATCH_SEGMENTS];
+    private long speculatedSegments, rerunSegments;
+
+    SpeculativeSimulator() {
+        this(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parallelism number of threads running segments, 1 runs everything in order on the calling thread.
+     */
+    SpeculativeSimulator(int boardWidth, int boardHeight, int parallelism) {
+        this(boardWidth, boardHeight, parallelism, DiagnosticLog.standardError());
+    }
+
+    /**
+     * @param boardWidth  number of columns, X goes from 0 to boardWidth - 1.
+     * @param boardHeight number of rows, Y goes from 0 to boardHeight - 1.
+     * @param parallelism number of threads running segments, 1 runs everything in order on the calling thread.
+     * @param diagnostics where the lines run in order are logged when ignored, without line numbers.
+     */
+    SpeculativeSimulator(int boardWidth, int boardHeight, int parallelism, DiagnosticLog diagnostics) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.parallelism = parallelism;
+        this.simulator = new RobotSimulator(boardWidth, boardHeight, ParserEngine.BYTE, null, diagnostics);
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.workers = new RobotSimulatorPool(parallelism,
+                () -> new RobotSimulator(boardWidth, boardHeight, ParserEngine.BYTE, null, DiagnosticLog.discarding()));
+    }
+
+    /**
+     * Forgets the robot and the pits, see {@link RobotSimulator#reset()}.
+     */
+    public void reset() {
+        simulator.reset();
+    }
+
+    /**
+     * Stops the threads running segments and parsing ahead, once the tasks already submitted are done.
+     */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    /**
+     * Should process the input and return the report lines as result.
+     *
+     * @param input the input.
+     * @return the reported lines, as an immutable list.
+     */
+    public List<String> process(InputStream input) {
+        ListReportSink outputs = new ListReportSink();
+        process(input, outputs);
+        return outputs.getLines();
+    }
+
+    /**
+     * Processes the input and hands every REPORT and error to the sink, in input order.
+     *
+     * @param input the input.
+     * @param outputs receives the reported positions and errors, in order.
+     */
+    public void process(InputStream input, ReportSink outputs) {
+        BinaryScript.Encoder encoder = new BinaryScript.Encoder(script);
+        CommandRecord command = new CommandRecord();
+        try (CommandReader reader = pool == null ? new ByteCommandReader(input) : new PipelinedCommandReader(input, pool)) {
+            //A DEPLOY read while the batch was full, first line of the next one
+            boolean isCarried = false;
+            boolean isEndOfInput = false;
+            while (!isEndOfInput) {
+                script.reset();
+                int segments = 0;
+                while (true) {
+                    if (!isCarried && !reader.next(command)) {
+                        isEndOfInput = true;
+                        break;
+                    }
+                    isCarried = false;
+                    if (isSegmentStart(command)) {
+                        if (segments == BATCH_SEGMENTS) {
+                            isCarried = true;
+                            break;
+                        }
+                        encoder.finish();
+                        segmentStarts[segments++] = script.size();
+                    }
+                    encoder.write(command);
+                    if (script.size() >= BATCH_BYTES) break;
+                }
+                encoder.finish();
+                segmentStarts[segments] = script.size();
+                run(segments, outputs);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return whether the robot's state after the line can't depend on the lines before it, pits aside.
+     */
+    private boolean isSegmentStart(CommandRecord command) {
+        return command.command == Command.DEPLOY && command.hasValidArgs
+                && command.x >= 0 && command.x < boardWidth && command.y >= 0 && command.y < boardHeight;
+    }
+
+    /**
+     * Runs the script of the batch: the lines before the first segment in order, the segments speculatively, then
+     * the fix-up pass.
+     */
+    private void run(int segments, ReportSink outputs) {
+        ByteBuffer buffer = script.buffer();
+        if (pool == null || segments < 2) {
+            new BinaryScript.Interpreter(buffer, 0).run(script.size(), true, simulator, outputs);
+            return;
+        }
+
+        for (int i = 0; i < segments; i++) {
+            if (traces[i] == null) traces[i] = new Trace();
+        }
+        int tasks = Math.min(segments, parallelism * TASKS_PER_THREAD);
+        ForkJoinTask<?> speculation = pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task -> {
+            RobotSimulator worker = workers.borrow();
+            try {
+                for (int i = (int) ((long) segments * task / tasks); i < (long) segments * (task + 1) / tasks; i++) {
+                    worker.speculate(buffer, segmentStarts[i], segmentStarts[i + 1], traces[i]);
+                }
+            } finally {
+                workers.release(worker);
+            }
+        }));
+        new BinaryScript.Interpreter(buffer, 0).run(segmentStarts[0], true, simulator, outputs);
+        try {
+            speculation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        for (int i = 0; i < segments; i++) {
+            speculatedSegments++;
+            if (!simulator.commit(traces[i], outputs)) {
+                rerunSegments++;
+                new BinaryScript.Interpreter(buffer, segmentStarts[i]).run(segmentStarts[i + 1], true, simulator, outputs);
+            }
+        }
+    }
+
+    /**
+     * @return number of segments run speculatively so far, for tests.
+     */
+    long speculatedSegments() {
+        return speculatedSegments;
+    }
+
+    /**
+     * @return number of those that had to be run again in order, for tests.
+     */
+    long rerunSegments() {
+        return rerunSegments;
+    }
+
+    /**
+     * What a speculative run of a segment reported and depended on, filled by
+     * {@link RobotSimulator#speculate(ByteBuffer, int, int, Trace)}. Reused from one batch to the next.
+     */
+    static class Trace implements ReportSink {
+        //Looked up cells, in direction index CELL, and runs of cells: x, y, direction index, steps
+        static final int CELL = 4;
+        private static final int OUTSIDE_ZONE = 0, PIT_DETECTED = 1, ROBOT_DETECTED = 2, POSITION = 3;
+        private static final Direction[] DIRECTIONS = Direction.values();
+
+        private int[] probes = new int[64];
+        private int probeCount;
+        //Per result: its kind | Direction.ordinal() << 2, then X, Y for positions
+        private int[] events = new int[64];
+        private int eventCount;
+        //End state, and the pits added
+        final Checkpointer.Snapshot exit = new Checkpointer.Snapshot();
+
+        void clear() {
+            probeCount = eventCount = 0;
+            if (exit.pits == null) exit.pits = new int[16];
+            exit.pitCount = 0;
+        }
+
+        /**
+         * Records that the pit of a cell was looked up.
+         */
+        void probe(int x, int y) {
+            probe(x, y, CELL, 0);
+        }
+
+        /**
+         * Records that the steps cells after x, y in that direction were found free.
+         */
+        void probe(int x, int y, int directionIndex, int steps) {
+            if (directionIndex != CELL && steps == 0) return;
+
+            if (probeCount + 4 > probes.length) probes = Arrays.copyOf(probes, probes.length * 2);
+            probes[probeCount++] = x;
+            probes[probeCount++] = y;
+            probes[probeCount++] = directionIndex;
+            probes[probeCount++] = steps;
+        }
+
+        void onPit(int x, int y) {
+            if (exit.pitCount * 2 == exit.pits.length) exit.pits = Arrays.copyOf(exit.pits, exit.pits.length * 2);
+            exit.pits[exit.pitCount * 2] = x;
+            exit.pits[exit.pitCount * 2 + 1] = y;
+            exit.pitCount++;
+        }
+
+        /**
+         * @return whether none of these pits is on a looked up cell, i.e. the run is the same with them.
+         */
+        boolean isUnaffected(IndexedPitMap pits) {
+            if (pits.size() == 0) return true;
+
+            for (int i = 0; i < probeCount; i += 4) {
+                int x = probes[i], y = probes[i + 1], directionIndex = probes[i + 2], steps = probes[i + 3];
+                if (directionIndex == CELL) {
+                    if (pits.contains(x, y)) return false;
+                } else if (pits.freeSteps(x, y, RobotSimulator.STEP_X[directionIndex], RobotSimulator.STEP_Y[directionIndex], steps) < steps) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Hands the recorded results to the sink, in order.
+         */
+        void replay(ReportSink outputs) {
+            for (int i = 0; i < eventCount; i++) {
+                int event = events[i];
+                switch (event & 3) {
+                    case OUTSIDE_ZONE:
+                        outputs.onOutsideZone();
+                        break;
+                    case PIT_DETECTED:
+                        outputs.onPitDetected();
+                        break;
+                    case ROBOT_DETECTED:
+                        outputs.onRobotDetected();
+                        break;
+                    default:
+                        outputs.onPosition(events[i + 1], events[i + 2], DIRECTIONS[event >>> 2]);
+                        i += 2;
+                        break;
+                }
+            }
+        }
+
+        private void add(int event) {
+            if (eventCount + 3 > events.length) events = Arrays.copyOf(events, events.length * 2);
+            events[eventCount++] = event;
+        }
+
+        @Override
+        public void onPosition(int x, int y, Direction direction) {
+            add(POSITION | direction.ordinal() << 2);
+            events[eventCount++] = x;
+            events[eventCount++] = y;
+        }
+
+        @Override
+        public void onOutsideZone() {
+            add(OUTSIDE_ZONE);
+        }
+
+        @Override
+        public void onPitDetected() {
+            add(PIT_DETECTED);
+        }
+
+        @Override
+        public void onRobotDetected() {
+            add(ROBOT_DETECTED);
+        }
+    }
+
+    /**
+     * The compiled script of a batch, readable in place.
+     */
+    private static class ScriptBuffer extends ByteArrayOutputStream {
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
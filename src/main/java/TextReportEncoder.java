@@ -0,0 +1,48 @@
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The report lines of {@link RobotSimulator#process(java.io.InputStream)}, one per "\n" terminated line.
+ */
+class TextReportEncoder extends ReportEncoder {
+    private static final byte[] OUTSIDE_ZONE = (ListReportSink.OUTSIDE_ZONE + "\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PIT_DETECTED = (ListReportSink.PIT_DETECTED + "\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROBOT_DETECTED = (ListReportSink.ROBOT_DETECTED + "\n").getBytes(StandardCharsets.US_ASCII);
+
+    TextReportEncoder(OutputStream output) {
+        this(output, BUFFER_SIZE);
+    }
+
+    TextReportEncoder(OutputStream output, int bufferSize) {
+        super(output, bufferSize);
+    }
+
+    @Override
+    public void onPosition(int x, int y, Direction direction) {
+        reserve();
+        putInt(x);
+        put((byte) ',');
+        putInt(y);
+        put((byte) ',');
+        putDirection(direction);
+        put((byte) '\n');
+    }
+
+    @Override
+    public void onOutsideZone() {
+        reserve();
+        put(OUTSIDE_ZONE);
+    }
+
+    @Override
+    public void onPitDetected() {
+        reserve();
+        put(PIT_DETECTED);
+    }
+
+    @Override
+    public void onRobotDetected() {
+        reserve();
+        put(ROBOT_DETECTED);
+    }
+}
@@ -0,0 +1,364 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Where the robot was after every command a {@link RobotSimulator} ran, for auditing, without a REPORT per command.
+ * Attach it with {@link RobotSimulator#record(TrajectoryRecorder)}.
+ * <p>
+ * Every command is stored as 2 bits relative to the robot: it stayed, moved one cell forward, turned left or turned
+ * right. What 2 bits can't say, a DEPLOY or a reset, is a keyframe: the full state and the number of commands before
+ * it. A keyframe is also added every KEYFRAME_INTERVAL commands, so {@link #positionAt(long)} finds the last keyframe
+ * with a binary search and replays at most that many codes from it.
+ * <p>
+ * Codes are packed 32 per long and keyframes take 2 longs each. Each of the two buffers is kept on the heap up to
+ * heapLimitBytes, then moved to a memory mapped file in the spill directory and grown there, SEGMENT_SIZE at a time.
+ * The files are deleted by {@link #close()}.
+ * <p>
+ * Command indexes count the simulator's commands from the moment the recorder is attached: one per line of
+ * {@link RobotSimulator#process(java.io.InputStream)}. A binary script drops some lines and merges others, so there a
+ * run of MOVEs counts as that many commands but a run of turns as one. Not thread safe.
+ */
+public class TrajectoryRecorder implements Closeable {
+    static final int KEYFRAME_INTERVAL = 1024;
+    static final long DEFAULT_HEAP_LIMIT = 64L * 1024 * 1024;
+    static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    //2 bit codes
+    private static final int STAY = 0, FORWARD = 1, RIGHT = 2, LEFT = 3;
+    private static final int CODES_PER_WORD = 32;
+
+    private final LongStore codes;
+    //Per keyframe: commands before it << 3 | isActivated << 2 | directionIndex, then x << 32 | y
+    private final LongStore keyframes;
+    private long commands;
+    private long keyframeCount;
+    private long lastKeyframe;
+    //Codes of the word being filled
+    private long word;
+    //State after the commands so far, kept up to date from the codes
+    private int x, y, directionIndex;
+    private boolean isActivated;
+
+    public TrajectoryRecorder() {
+        this(DEFAULT_HEAP_LIMIT, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param heapLimitBytes bytes each buffer may take on the heap before it spills.
+     * @param spillDirectory where the memory mapped files go.
+     */
+    public TrajectoryRecorder(long heapLimitBytes, Path spillDirectory) {
+        codes = new LongStore(heapLimitBytes / Long.BYTES, spillDirectory, "codes");
+        keyframes = new LongStore(heapLimitBytes / Long.BYTES, spillDirectory, "keyframes");
+    }
+
+    /**
+     * @return the number of commands recorded.
+     */
+    public long commands() {
+        return commands;
+    }
+
+    /**
+     * @return whether the buffers have moved to memory mapped files.
+     */
+    boolean isSpilled() {
+        return codes.isMapped() || keyframes.isMapped();
+    }
+
+    /**
+     * @param commandIndex from 0 to {@link #commands()} - 1.
+     * @return where the robot was after that command, or null if it wasn't deployed.
+     */
+    public Position positionAt(long commandIndex) {
+        if (commandIndex < 0 || commandIndex >= commands) {
+            throw new IndexOutOfBoundsException("Command " + commandIndex + " of " + commands);
+        }
+        long target = commandIndex + 1;
+
+        //Last keyframe at or before the target
+        long low = 0, high = keyframeCount - 1;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            if (keyframeCommands(middle) <= target) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        //Of keyframes at the target itself, the first is the state right after the command, the next are jumps after it
+        while (low > 0 && keyframeCommands(low) == target && keyframeCommands(low - 1) == target) low--;
+
+        long header = keyframes.get(low * 2);
+        long coordinates = keyframes.get(low * 2 + 1);
+        int x = (int) (coordinates >> 32), y = (int) coordinates;
+        int directionIndex = (int) (header & 3);
+        boolean isActivated = (header & 4) != 0;
+        for (long i = header >>> 3; i < target; i++) {
+            long codeWord = i / CODES_PER_WORD == commands / CODES_PER_WORD ? word : codes.get(i / CODES_PER_WORD);
+            switch ((int) (codeWord >>> ((i % CODES_PER_WORD) * 2)) & 3) {
+                case FORWARD:
+                    x += RobotSimulator.STEP_X[directionIndex];
+                    y += RobotSimulator.STEP_Y[directionIndex];
+                    break;
+                case RIGHT:
+                    directionIndex = (directionIndex + 1) & 3;
+                    break;
+                case LEFT:
+                    directionIndex = (directionIndex + 3) & 3;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return isActivated ? new Position(x, y, RobotSimulator.DIRECTION_SEQUENCE[directionIndex]) : null;
+    }
+
+    private long keyframeCommands(long keyframe) {
+        return keyframes.get(keyframe * 2) >>> 3;
+    }
+
+    //Hooks, called by RobotSimulator
+
+    /**
+     * The robot jumped to that state without a command, e.g. when the recorder is attached or the simulator reset.
+     */
+    void onState(int x, int y, int directionIndex, boolean isActivated) {
+        //The state after the last command first, as the jump's keyframe takes its place at the same count
+        if (keyframeCount > 0 && lastKeyframe != commands) keyframe();
+        jump(x, y, directionIndex, isActivated);
+    }
+
+    private void jump(int x, int y, int directionIndex, boolean isActivated) {
+        this.x = x;
+        this.y = y;
+        this.directionIndex = directionIndex;
+        this.isActivated = isActivated;
+        keyframe();
+    }
+
+    /**
+     * A DEPLOY put the robot there.
+     */
+    void onDeploy(int x, int y, int directionIndex) {
+        append(STAY);
+        jump(x, y, directionIndex, true);
+    }
+
+    /**
+     * That many commands left the robot where it was.
+     */
+    void onStay(int count) {
+        for (int i = 0; i < count; i++) append(STAY);
+    }
+
+    void onStay() {
+        append(STAY);
+    }
+
+    /**
+     * That many MOVEs, the first moved of which took the robot one cell forward each.
+     */
+    void onMoves(int moved, int count) {
+        for (int i = 0; i < moved; i++) {
+            x += RobotSimulator.STEP_X[directionIndex];
+            y += RobotSimulator.STEP_Y[directionIndex];
+            append(FORWARD);
+        }
+        onStay(count - moved);
+    }
+
+    void onLeft() {
+        directionIndex = (directionIndex + 3) & 3;
+        append(LEFT);
+    }
+
+    void onRight() {
+        directionIndex = (directionIndex + 1) & 3;
+        append(RIGHT);
+    }
+
+    /**
+     * A run of turns, recorded as one command, see {@link RobotSimulator#executeTurn(int)}.
+     */
+    void onTurn(int quarterTurnsRight) {
+        switch (quarterTurnsRight & 3) {
+            case 1:
+                onRight();
+                break;
+            case 3:
+                onLeft();
+                break;
+            case 2:
+                append(STAY);
+                jump(x, y, (directionIndex + 2) & 3, isActivated);
+                break;
+            default:
+                append(STAY);
+                break;
+        }
+    }
+
+    private void append(int code) {
+        if (commands - lastKeyframe >= KEYFRAME_INTERVAL) keyframe();
+
+        int slot = (int) (commands % CODES_PER_WORD);
+        word |= (long) code << (slot * 2);
+        commands++;
+        if (slot == CODES_PER_WORD - 1) {
+            codes.set(commands / CODES_PER_WORD - 1, word);
+            word = 0;
+        }
+    }
+
+    private void keyframe() {
+        keyframes.set(keyframeCount * 2, commands << 3 | (isActivated ? 4 : 0) | directionIndex);
+        keyframes.set(keyframeCount * 2 + 1, (long) x << 32 | (y & 0xFFFFFFFFL));
+        keyframeCount++;
+        lastKeyframe = commands;
+    }
+
+    /**
+     * Drops the buffers and deletes the spill files.
+     */
+    @Override
+    public void close() {
+        try {
+            codes.close();
+        } finally {
+            keyframes.close();
+        }
+    }
+
+    /**
+     * Where the robot was: its cell and the way it faced.
+     */
+    public static class Position {
+        public final int x, y;
+        public final Direction direction;
+
+        Position(int x, int y, Direction direction) {
+            this.x = x;
+            this.y = y;
+            this.direction = direction;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Position)) return false;
+            Position position = (Position) other;
+            return x == position.x && y == position.y && direction == position.direction;
+        }
+
+        @Override
+        public int hashCode() {
+            return (x * 31 + y) * 31 + direction.hashCode();
+        }
+
+        /**
+         * @return the position as a REPORT line, "x,y,DIRECTION".
+         */
+        @Override
+        public String toString() {
+            return x + "," + y + "," + direction;
+        }
+    }
+
+    /**
+     * A growing array of longs, on the heap up to a limit, then in a memory mapped file.
+     */
+    private static class LongStore {
+        private static final int SEGMENT_WORDS = SEGMENT_SIZE / Long.BYTES;
+
+        private final long heapLimitWords;
+        private final Path spillDirectory;
+        private final String name;
+        private long[] heap = new long[64];
+        private Path file;
+        private FileChannel channel;
+        private MappedByteBuffer[] segments;
+        private int segmentCount;
+
+        LongStore(long heapLimitWords, Path spillDirectory, String name) {
+            this.heapLimitWords = Math.max(heapLimitWords, 64);
+            this.spillDirectory = spillDirectory;
+            this.name = name;
+        }
+
+        boolean isMapped() {
+            return segments != null;
+        }
+
+        long get(long index) {
+            if (segments == null) return heap[(int) index];
+            return segments[(int) (index / SEGMENT_WORDS)].getLong((int) (index % SEGMENT_WORDS) * Long.BYTES);
+        }
+
+        void set(long index, long value) {
+            if (segments == null) {
+                if (index >= heap.length) grow(index + 1);
+                if (segments == null) {
+                    heap[(int) index] = value;
+                    return;
+                }
+            }
+            int segment = (int) (index / SEGMENT_WORDS);
+            if (segment >= segmentCount) map(segment);
+            segments[segment].putLong((int) (index % SEGMENT_WORDS) * Long.BYTES, value);
+        }
+
+        private void grow(long words) {
+            if (words <= heapLimitWords) {
+                heap = Arrays.copyOf(heap, (int) Math.min(heapLimitWords, Math.max(words, heap.length * 2L)));
+                return;
+            }
+
+            //Spill: the words so far go to the file, the heap array is dropped
+            try {
+                file = Files.createTempFile(spillDirectory, "trajectory-", "." + name);
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            segments = new MappedByteBuffer[16];
+            long[] spilled = heap;
+            heap = null;
+            for (int i = 0; i < spilled.length; i++) {
+                int segment = i / SEGMENT_WORDS;
+                if (segment >= segmentCount) map(segment);
+                segments[segment].putLong((i % SEGMENT_WORDS) * Long.BYTES, spilled[i]);
+            }
+        }
+
+        private void map(int segment) {
+            while (segmentCount <= segment) {
+                if (segmentCount == segments.length) segments = Arrays.copyOf(segments, segmentCount * 2);
+                try {
+                    segments[segmentCount] = channel.map(FileChannel.MapMode.READ_WRITE, (long) segmentCount * SEGMENT_SIZE, SEGMENT_SIZE);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                segmentCount++;
+            }
+        }
+
+        void close() {
+            heap = null;
+            segments = null;
+            if (channel == null) return;
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
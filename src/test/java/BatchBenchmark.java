@@ -0,0 +1,42 @@
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of {@link RobotSimulatorBatch} on many small independent scripts, from 1 to all available cores.
+ * <p>
+ * Not a unit test, run it by hand:
+ * java -cp build/classes/java/main:build/classes/java/test BatchBenchmark [inputs] [linesPerInput]
+ */
+public class BatchBenchmark {
+    private static final String[] COMMANDS = {"MOVE", "MOVE", "LEFT", "RIGHT", "REPORT"};
+
+    public static void main(String[] args) {
+        int inputCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int linesPerInput = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        List<RobotSimulatorBatch.Input> inputs = new ArrayList<>(inputCount);
+        Random random = new Random(42);
+        for (int i = 0; i < inputCount; i++) {
+            StringBuilder script = new StringBuilder("DEPLOY 0,0,NORTH\nPIT 5,5\n");
+            for (int line = 0; line < linesPerInput; line++) {
+                script.append(COMMANDS[random.nextInt(COMMANDS.length)]).append('\n');
+            }
+            byte[] bytes = script.toString().getBytes();
+            inputs.add(() -> new ByteArrayInputStream(bytes));
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int parallelism = 1; parallelism <= cores; parallelism = parallelism < cores ? Math.min(parallelism * 2, cores) : cores + 1) {
+            try (RobotSimulatorBatch batch = new RobotSimulatorBatch(parallelism, () -> new RobotSimulator(ParserEngine.BYTE))) {
+                batch.processInputs(inputs.subList(0, Math.min(1_000, inputCount))); //Warm up
+                long start = System.nanoTime();
+                batch.processInputs(inputs);
+                double perSecond = inputCount / ((System.nanoTime() - start) / 1e9);
+                if (parallelism == 1) baseline = perSecond;
+                System.out.printf("parallelism=%-3d %10.0f inputs/s  speedup %.2fx%n", parallelism, perSecond, perSecond / baseline);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Counts the results without keeping them, for load tests and benchmarks where only the work of producing them
+ * matters.
+ */
+class CountingReportSink implements ReportSink {
+    long events;
+
+    @Override
+    public void onPosition(int x, int y, Direction direction) {
+        events++;
+    }
+
+    @Override
+    public void onOutsideZone() {
+        events++;
+    }
+
+    @Override
+    public void onPitDetected() {
+        events++;
+    }
+
+    @Override
+    public void onRobotDetected() {
+        events++;
+    }
+}
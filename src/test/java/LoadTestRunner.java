@@ -0,0 +1,199 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of every {@link ParserEngine} on one {@link WorkloadGenerator} workload, written to a temporary file first
+ * so generating it isn't what's measured. Per engine, after a warm up run:
+ * - commands per second;
+ * - p99 time per chunk of CHUNK_LINES lines, as the simulator consumes them, so waiting on an engine that parses on
+ * other threads counts too;
+ * - allocation rate, of all threads, including those an engine started and that ended with the run, from the heap:
+ * what the collections freed plus how much the heap grew;
+ * - peak heap, summed over the heap pools.
+ * <p>
+ * Not a unit test, run it by hand:
+ * java -cp build/classes/java/main:build/classes/java/test LoadTestRunner [lines] [seed] [malformedRate]
+ */
+public class LoadTestRunner {
+    static final int CHUNK_LINES = 4096;
+
+    public static void main(String[] args) throws IOException {
+        long lines = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        double malformedRate = args.length > 2 ? Double.parseDouble(args[2]) : WorkloadGenerator.DEFAULT_MALFORMED_RATE;
+        WorkloadGenerator generator = new WorkloadGenerator(seed, 1024, 1024, WorkloadGenerator.DEFAULT_MIX,
+                WorkloadGenerator.DEFAULT_PIT_DENSITY, malformedRate);
+        HeapAllocations allocations = new HeapAllocations();
+
+        Path file = Files.createTempFile("robot-workload", ".txt");
+        try {
+            generator.write(file, lines);
+            System.out.printf("%,d lines, %,d bytes, seed %d, malformed rate %.3f%n", lines, Files.size(file), seed, malformedRate);
+            for (ParserEngine engine : ParserEngine.values()) {
+                run(engine, file, allocations); //Warm up
+                Result result = run(engine, file, allocations);
+                System.out.printf("%-10s %,14.0f commands/s  p99 chunk %9.3f ms  alloc %9s MB/s  peak heap %7.1f MB%n",
+                        engine, lines / result.seconds, result.p99ChunkNanos / 1e6,
+                        result.allocatedBytes < 0 ? "n/a" : String.format("%.1f", result.allocatedBytes / 1e6 / result.seconds),
+                        result.peakHeapBytes / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Result run(ParserEngine engine, Path file, HeapAllocations allocations) throws IOException {
+        RobotSimulator simulator = new RobotSimulator(1024, 1024, engine, null, DiagnosticLog.discarding());
+        CountingReportSink sink = new CountingReportSink();
+        LatencyHistogram chunks = new LatencyHistogram();
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+        long allocatedBefore = allocations.allocated();
+        long start = System.nanoTime();
+        try (InputStream input = Files.newInputStream(file);
+             CommandReader reader = new ChunkTimingCommandReader(engine.open(input), chunks)) {
+            simulator.process(reader, sink);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocatedAfter = allocations.allocated();
+
+        Result result = new Result();
+        result.seconds = nanos / 1e9;
+        result.p99ChunkNanos = chunks.percentile(0.99);
+        result.allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    private static class Result {
+        double seconds;
+        long p99ChunkNanos;
+        long allocatedBytes;
+        long peakHeapBytes;
+    }
+
+    /**
+     * Records the time the simulator takes to get through every CHUNK_LINES lines, from the first line on.
+     */
+    private static class ChunkTimingCommandReader implements CommandReader {
+        private final CommandReader reader;
+        private final LatencyHistogram chunks;
+        private long lines;
+        private long chunkStart;
+
+        ChunkTimingCommandReader(CommandReader reader, LatencyHistogram chunks) {
+            this.reader = reader;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean next(CommandRecord command) throws IOException {
+            if (lines++ % CHUNK_LINES == 0) {
+                long now = System.nanoTime();
+                if (chunkStart != 0) chunks.record(now - chunkStart);
+                chunkStart = now;
+            }
+            return reader.next(command);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Bytes allocated on the heap by every thread, dead or alive: what the collections so far freed, from their
+     * notifications, plus what is in use now. Approximate, as it counts whole TLABs and misses what is freed between
+     * collections, e.g. by G1 cleanups, but nothing is lost with the threads that allocated it.
+     */
+    private static class HeapAllocations implements NotificationListener {
+        private final Set<String> heapPools = new HashSet<>();
+        private final AtomicLong freed = new AtomicLong();
+        private final AtomicLong notifications = new AtomicLong();
+        private final long initialCollections;
+        private final boolean isSupported;
+
+        HeapAllocations() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) heapPools.add(pool.getName());
+            }
+            boolean isSupported = true;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+                } else {
+                    isSupported = false;
+                }
+            }
+            this.isSupported = isSupported;
+            //After listening, so every later collection is notified
+            initialCollections = collections();
+        }
+
+        /**
+         * @return bytes allocated since the JVM started, give or take a constant, or -1 if the JVM doesn't tell.
+         */
+        long allocated() {
+            if (!isSupported) return -1;
+
+            //Notifications come on another thread, after the collection
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (notifications.get() < collections() - initialCollections) {
+                if (System.nanoTime() > deadline) return -1;
+                Thread.yield();
+            }
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) used += pool.getUsage().getUsed();
+            }
+            return freed.get() + used;
+        }
+
+        private static long collections() {
+            long collections = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, collector.getCollectionCount());
+            }
+            return collections;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            freed.addAndGet(used(info.getGcInfo().getMemoryUsageBeforeGc()) - used(info.getGcInfo().getMemoryUsageAfterGc()));
+            notifications.incrementAndGet();
+        }
+
+        private long used(Map<String, MemoryUsage> usages) {
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> usage : usages.entrySet()) {
+                if (heapPools.contains(usage.getKey())) used += usage.getValue().getUsed();
+            }
+            return used;
+        }
+    }
+}
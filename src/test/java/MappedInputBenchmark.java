@@ -0,0 +1,73 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compares {@link RobotSimulator#process(Path)} with the InputStream engines on a generated command file.
+ * <p>
+ * Not a unit test, run it by hand:
+ * java -cp build/classes/java/main:build/classes/java/test MappedInputBenchmark [sizeInBytes] [file]
+ * The default size is 3 GB, i.e. more than one mapping window can cover.
+ */
+public class MappedInputBenchmark {
+    private static final String SCRIPT = "DEPLOY 0,0,NORTH\nPIT 5,5\nMOVE\nMOVE\nRIGHT\nMOVE\nLEFT\nMOVE\nREPORT\n"
+            + "MOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nMOVE\nRIHT\nREPORT\n";
+
+    public static void main(String[] args) throws IOException {
+        long size = args.length > 0 ? Long.parseLong(args[0]) : 3L * 1024 * 1024 * 1024;
+        Path file = args.length > 1 ? Paths.get(args[1]) : Files.createTempFile("robot-commands", ".txt");
+        try {
+            if (Files.size(file) != size) {
+                generate(file, size);
+            }
+            for (int round = 0; round < 3; round++) {
+                run("mmap", file, () -> new RobotSimulator().process(file, new CountingReportSink()));
+                run("InputStream/BYTE", file, () -> {
+                    try (InputStream input = Files.newInputStream(file)) {
+                        new RobotSimulator(ParserEngine.BYTE).process(input, new CountingReportSink());
+                    }
+                });
+                run("InputStream/STRING", file, () -> {
+                    try (InputStream input = Files.newInputStream(file)) {
+                        new RobotSimulator(ParserEngine.STRING).process(input, new CountingReportSink());
+                    }
+                });
+            }
+        } finally {
+            if (args.length <= 1) Files.deleteIfExists(file);
+        }
+    }
+
+    private static void generate(Path file, long size) throws IOException {
+        byte[] script = SCRIPT.getBytes(StandardCharsets.US_ASCII);
+        byte[] block = new byte[script.length * 4096];
+        for (int i = 0; i < block.length; i += script.length) {
+            System.arraycopy(script, 0, block, i, script.length);
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 1 << 20)) {
+            long remaining = size;
+            while (remaining > 0) {
+                int length = (int) Math.min(block.length, remaining);
+                output.write(block, 0, length);
+                remaining -= length;
+            }
+        }
+    }
+
+    private static void run(String name, Path file, Task task) throws IOException {
+        long start = System.nanoTime();
+        task.run();
+        long elapsed = System.nanoTime() - start;
+        double megabytes = Files.size(file) / (1024.0 * 1024.0);
+        System.out.printf("%-20s %8.0f ms %8.1f MB/s%n", name, elapsed / 1e6, megabytes / (elapsed / 1e9));
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.SplittableRandom;
+
+/**
+ * Measures pit lookups and pit memory at both ends of the board size range: a dense 10x10 board and a sparse
+ * 1,000,000 x 1,000,000 one.
+ * <p>
+ * Not a unit test, run it by hand:
+ * java -cp build/classes/java/main:build/classes/java/test PitMapBenchmark
+ */
+public class PitMapBenchmark {
+    private static final int LOOKUPS = 50_000_000;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            run("10x10, 50% pits", 10, 10, 50);
+            run("1Mx1M, 10k pits", 1_000_000, 1_000_000, 10_000);
+            run("1Mx1M, 1M pits", 1_000_000, 1_000_000, 1_000_000);
+        }
+    }
+
+    private static void run(String name, int width, int height, int pitCount) {
+        SplittableRandom random = new SplittableRandom(42);
+        long before = usedMemory();
+        PitMap pits = PitMap.forBoard(width, height);
+        while (pits.size() < pitCount) {
+            pits.add(random.nextInt(width), random.nextInt(height));
+        }
+        long bytes = usedMemory() - before;
+
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (pits.contains(random.nextInt(width), random.nextInt(height))) hits++;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-18s %-14s %10.1f M lookups/s %10d KB (hits=%d)%n", name, pits.getClass().getSimpleName(),
+                LOOKUPS / (elapsed / 1e3), bytes / 1024, hits);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
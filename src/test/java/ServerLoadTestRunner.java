@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds tens of thousands of concurrent sessions open on a {@link RobotServer}, to check it serves them all with
+ * isolated boards, and measures the heap each one takes.
+ * <p>
+ * Every connection takes a file descriptor on each side, so the open file limit (ulimit -n) must be above twice the
+ * connections in one process, or above them in each process when the server and the clients run separately. Clients
+ * connect from 127.0.0.1, 127.0.0.2... in turn, CLIENTS_PER_ADDRESS each, so the local port range of one address
+ * doesn't cap them either.
+ * <p>
+ * Not a unit test, run it by hand, in one process:
+ * java -cp build/classes/java/main:build/classes/java/test ServerLoadTestRunner [connections] [selectors]
+ * or as a server and a client process:
+ * java -cp ... ServerLoadTestRunner server [port] [selectors]
+ * java -cp ... ServerLoadTestRunner client [port] [connections]
+ */
+public class ServerLoadTestRunner {
+    static final int CLIENTS_PER_ADDRESS = 20_000;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String mode = args.length > 0 && !Character.isDigit(args[0].charAt(0)) ? args[0] : "both";
+        int first = mode.equals("both") ? 0 : 1;
+        int selectors = Runtime.getRuntime().availableProcessors();
+        switch (mode) {
+            case "server": {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+                if (args.length > 2) selectors = Integer.parseInt(args[2]);
+                serve(port, selectors);
+                break;
+            }
+            case "client": {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+                int connections = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+                connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), connections, null);
+                break;
+            }
+            case "both": {
+                int connections = args.length > first ? Integer.parseInt(args[first]) : 50_000;
+                if (args.length > first + 1) selectors = Integer.parseInt(args[first + 1]);
+                long heapBefore = usedHeap();
+                try (RobotServer server = server(0, selectors)) {
+                    connect(server.address(), connections, () -> {
+                        System.out.printf("%,d sessions open, %.1f KB of heap each, clients included%n",
+                                server.sessions(), (usedHeap() - heapBefore) / 1024.0 / connections);
+                    });
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    private static RobotServer server(int port, int selectors) {
+        return new RobotServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 10, 10, ReportFormat.TEXT,
+                selectors, DiagnosticLog.discarding());
+    }
+
+    /**
+     * Serves until killed, printing the sessions and the heap each one takes whenever their number changes.
+     */
+    private static void serve(int port, int selectors) throws InterruptedException {
+        long heapBefore = usedHeap();
+        try (RobotServer server = server(port, selectors)) {
+            System.out.println("Listening on " + server.address() + " with " + selectors + " selectors");
+            int reported = 0;
+            while (true) {
+                Thread.sleep(5_000);
+                int sessions = server.sessions();
+                if (sessions == reported) continue;
+
+                reported = sessions;
+                long used = usedHeap() - heapBefore;
+                System.out.printf("%,d sessions open, %,.1f MB of heap, %.1f KB each%n", sessions, used / 1e6,
+                        sessions == 0 ? 0 : used / 1024.0 / sessions);
+            }
+        }
+    }
+
+    /**
+     * Opens every connection and sends its script, then checks every session's REPORT once they are all open, runs
+     * whileOpen, and closes them.
+     */
+    private static void connect(InetSocketAddress server, int connections, Runnable whileOpen) throws IOException {
+        List<SocketChannel> clients = new ArrayList<>(connections);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                SocketChannel client = SocketChannel.open();
+                clients.add(client);
+                client.bind(new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, (byte) (1 + i / CLIENTS_PER_ADDRESS)}), 0));
+                client.connect(server);
+                TestRobotServer.writeFully(client, ByteBuffer.wrap(script(i)));
+            }
+            System.out.printf("%,d connections opened in %.1f s%n", connections, (System.nanoTime() - start) / 1e9);
+
+            for (int i = 0; i < connections; i++) {
+                String report = (i % 10) + "," + (i % 7) + ",NORTH\n";
+                String line = TestRobotServer.readLine(clients.get(i));
+                if (!line.equals(report)) throw new AssertionError("Connection " + i + " reported " + line);
+            }
+            System.out.printf("%,d sessions reported on isolated boards%n", connections);
+            if (whileOpen != null) whileOpen.run();
+        } finally {
+            for (SocketChannel client : clients) client.close();
+        }
+    }
+
+    /**
+     * Every session puts a pit in the next column, which would block another one if they shared a board.
+     */
+    private static byte[] script(int connection) {
+        StringBuilder script = new StringBuilder("DEPLOY " + (connection % 10) + ",0,NORTH\nPIT " + (connection + 1) % 10 + ",3\n");
+        for (int move = 0; move < connection % 7; move++) script.append("MOVE\n");
+        script.append("REPORT\n");
+        return script.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
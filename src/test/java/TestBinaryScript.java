@@ -0,0 +1,143 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestBinaryScript {
+    private static final String[] COMMANDS = {"MOVE", "LEFT", "RIGHT", "REPORT", "PIT", "DEPLOY", "JUMP", "PIT 1", "DEPLOY 1,2"};
+    private static final String[] DIRECTIONS = {"NORTH", "EAST", "SOUTH", "WEST", "UP"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay_SimpleScript_MatchesProcess() {
+        String script = "PIT 1,1\nDEPLOY 0,0,NORTH\nPIT 0,1\nPIT -3,4\nMOVE\nRIGHT\nMOVE\nREPORT\nDEPLOY 9,9,SOUTH\nFOO\nPIT 9,8\nMOVE\nREPORT\n";
+
+        assertEquals(process(script), simulator().replay(compile(script)));
+    }
+
+    @Test
+    public void testReplay_RandomScripts_MatchProcess() {
+        for (int seed = 0; seed < 20; seed++) {
+            String script = randomScript(new Random(seed), 5_000);
+
+            assertEquals("seed=" + seed, process(script), simulator().replay(compile(script)));
+        }
+    }
+
+    @Test
+    public void testReplay_SameScriptTwice_SameResults() {
+        ByteBuffer binary = compile(randomScript(new Random(42), 2_000));
+        RobotSimulator simulator = simulator();
+
+        List<String> first = simulator.replay(binary);
+        simulator.reset();
+        assertEquals(first, simulator.replay(binary));
+        assertEquals(0, binary.position());
+    }
+
+    @Test
+    public void testReplay_Path_MatchesProcess() throws IOException {
+        String script = randomScript(new Random(7), 5_000);
+        Path text = folder.newFile("commands.txt").toPath();
+        Path binary = folder.newFile("commands.rbs").toPath();
+        Files.write(text, script.getBytes(StandardCharsets.US_ASCII));
+        BinaryScript.compile(text, binary, DiagnosticLog.discarding());
+
+        ListReportSink outputs = new ListReportSink();
+        simulator().replay(binary, outputs);
+        assertEquals(process(script), outputs.getLines());
+        assertTrue(Files.size(binary) < script.length() / 3);
+    }
+
+    @Test
+    public void testCompile_MoveAndTurnRuns_AreMerged() {
+        StringBuilder script = new StringBuilder("DEPLOY 0,0,NORTH\n");
+        for (int i = 0; i < 1_000; i++) script.append("MOVE\n");
+        script.append("LEFT\nLEFT\nLEFT\nRIGHT\nRIGHT\nREPORT\nLEFT\nRIGHT\nPIT 1,1\nREPORT\n");
+        ByteBuffer binary = compile(script.toString());
+
+        //Magic, DEPLOY with 2 coordinates, MOVE_RUN with a 2 byte count, TURN, REPORT, TURN, REPORT
+        assertEquals(4 + 3 + 3 + 1 + 1 + 1 + 1, binary.remaining());
+        assertEquals(process(script.toString()), simulator().replay(binary));
+        assertEquals("Outside Zone: Ignored", simulator().replay(binary).get(0));
+    }
+
+    @Test
+    public void testCompile_DroppedLines_LoggedWithLineNumbers() {
+        String script = "DEPLOY 0,0,NORTH\nPIT 1\nMOVE\nPIT 2,2\nJUMP\nFOO\nREPORT\n";
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog compiling = new DiagnosticLog(new PrintStream(logged, true));
+        ByteBuffer binary = BinaryScript.compile(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)), compiling);
+        compiling.close();
+
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(log, log.contains("line 2: PIT arguments are not X,Y"));
+        assertTrue(log, log.contains("line 4: PIT ignored"));
+        assertTrue(log, log.contains("line 5: Unrecognised command"));
+        assertTrue(log, log.contains("line 6: Unrecognised command"));
+
+        //Nothing left for the replay to log, the text logs the same lines
+        DiagnosticLog replaying = new DiagnosticLog(new PrintStream(new ByteArrayOutputStream()));
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, replaying).replay(binary);
+        replaying.close();
+        DiagnosticLog processing = new DiagnosticLog(new PrintStream(new ByteArrayOutputStream()));
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, processing).process(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)));
+        processing.close();
+        for (DiagnosticLog.Kind kind : DiagnosticLog.Kind.values()) {
+            assertEquals(kind.name(), 0, replaying.count(kind));
+            assertEquals(kind.name(), processing.count(kind), compiling.count(kind));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReplay_NotABinaryScript_Throws() {
+        simulator().replay(ByteBuffer.wrap("DEPLOY 0,0,NORTH\n".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * @return a simulator that doesn't log the many ignored lines of random scripts.
+     */
+    private static RobotSimulator simulator() {
+        return new RobotSimulator(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                ParserEngine.STRING, null, DiagnosticLog.discarding());
+    }
+
+    private static ByteBuffer compile(String script) {
+        return BinaryScript.compile(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)), DiagnosticLog.discarding());
+    }
+
+    private static List<String> process(String script) {
+        return simulator().process(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    static String randomScript(Random random, int lines) {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            int kind = random.nextInt(12);
+            if (kind < 2) {
+                script.append("DEPLOY ").append(random.nextInt(14) - 2).append(',').append(random.nextInt(14) - 2)
+                        .append(',').append(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            } else if (kind < 4) {
+                script.append("PIT ").append(random.nextInt(14) - 2).append(',').append(random.nextInt(14) - 2);
+            } else {
+                script.append(COMMANDS[random.nextInt(COMMANDS.length)]);
+            }
+            script.append('\n');
+        }
+        return script.toString();
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestByteCommandParser {
+    private static final String[] LINES = {
+            "DEPLOY 0,0,NORTH", "DEPLOY 9,9,WEST", "DEPLOY -1,+2,SOUTH", "DEPLOY 0,0,NORTH,", "DEPLOY 0,0,NORTH,,",
+            "DEPLOY 0,0,NORTH,X", "DEPLOY 0,0", "DEPLOY 0,ORTH", "DEPLOY", "DEPLOY ", "DEPLOY  0,0,NORTH",
+            "DEPLOY 0,0,NORTH extra", "DEPLOY 0,,NORTH", "DEPLOY 0,0,north", "DEPLOY 2147483647,-2147483648,EAST",
+            "DEPLOY 2147483648,0,EAST", "DEPLOY -2147483649,0,EAST", "DEPLOY +,0,EAST", "DEPLOY 1-,0,EAST",
+            "PIT 5,5", "PIT 5,5,5", "PIT 5", "PIT 5,", "PIT ,5", "PIT", "PIT a,b", "PIT 99999999999,1",
+            "MOVE", "MOVE now", "LEFT", "RIGHT", "REPORT", "RIHT", "", " ", " MOVE", "MOVEX", "move", "REPORT\t",
+    };
+
+    @Test
+    public void testByteCommandParser_MatchesStringParser() {
+        CommandRecord expected = new CommandRecord();
+        CommandRecord actual = new CommandRecord();
+        for (String line : LINES) {
+            LineCommandReader.parse(line, expected);
+            byte[] bytes = ("##" + line + "##").getBytes(StandardCharsets.US_ASCII);
+            ByteCommandParser.parse(ByteBuffer.wrap(bytes), 2, bytes.length - 2, actual);
+            assertEquals(line, describe(expected), describe(actual));
+        }
+    }
+
+    @Test
+    public void testByteCommandReader_LineBreaksAndOverlongLines() throws IOException {
+        StringBuilder overlong = new StringBuilder("PIT 1,2,");
+        for (int i = 0; i < 100; i++) overlong.append("0123456789");
+        String input = "DEPLOY 0,0,NORTH\r\nMOVE\rREPORT\n\n" + overlong + "\nLEFT\r\n\r\nRIGHT";
+
+        for (int bufferSize : new int[]{16, 17, 64, ByteCommandReader.BUFFER_SIZE}) {
+            List<String> actual = new ArrayList<>();
+            CommandRecord command = new CommandRecord();
+            try (ByteCommandReader reader = new ByteCommandReader(
+                    new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), bufferSize)) {
+                while (reader.next(command)) actual.add(describe(command));
+            }
+            assertArrayEquals("bufferSize=" + bufferSize, new String[]{
+                    "DEPLOY true 0,0,0", "MOVE true 0,0,0", "REPORT true 0,0,0", "null false 0,0,0",
+                    "PIT true 1,2,0",
+                    "LEFT true 0,0,0", "null false 0,0,0", "RIGHT true 0,0,0"}, actual.toArray(new String[0]));
+        }
+    }
+
+    private static String describe(CommandRecord command) {
+        return command.command + " " + command.hasValidArgs + " " + command.x + "," + command.y + "," + command.directionIndex;
+    }
+}
@@ -0,0 +1,176 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestCheckpointer {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCheckpointer_CrashAndResume_ReportsTheRest() throws IOException {
+        for (String lineBreak : new String[]{"\n", "\r\n", "\r"}) {
+            String script = TestBinaryScript.randomScript(new Random(42), 20_000).replace("\n", lineBreak);
+            Path input = folder.newFile().toPath();
+            Files.write(input, script.getBytes(StandardCharsets.US_ASCII));
+            Path journal = folder.newFile().toPath();
+            List<String> expected = simulator().process(input);
+
+            ListReportSink firstRun = new ListReportSink();
+            try (Checkpointer checkpoints = new Checkpointer(journal, 500)) {
+                simulator().process(input, new CrashingReportSink(firstRun, expected.size() / 2), checkpoints);
+                fail("Should have crashed");
+            } catch (IllegalStateException e) {
+                //The crash
+            }
+
+            ListReportSink secondRun = new ListReportSink();
+            try (Checkpointer checkpoints = new Checkpointer(journal, 500)) {
+                assertTrue(checkpoints.resumeOffset() > 0);
+                simulator().process(input, secondRun, checkpoints);
+            }
+
+            //The first run up to its last snapshot, then the second run
+            assertResumed(expected, firstRun.getLines(), secondRun.getLines());
+        }
+    }
+
+    @Test
+    public void testCheckpointer_InputStream_ResumesAtOffset() throws IOException {
+        byte[] script = TestBinaryScript.randomScript(new Random(7), 20_000).getBytes(StandardCharsets.US_ASCII);
+        Path journal = folder.newFile().toPath();
+        List<String> expected = simulator().process(new ByteArrayInputStream(script));
+
+        ListReportSink firstRun = new ListReportSink();
+        try (Checkpointer checkpoints = new Checkpointer(journal, 1_000)) {
+            simulator().process(new ByteArrayInputStream(script), new CrashingReportSink(firstRun, expected.size() / 3), checkpoints);
+            fail("Should have crashed");
+        } catch (IllegalStateException e) {
+            //The crash
+        }
+
+        ListReportSink secondRun = new ListReportSink();
+        try (Checkpointer checkpoints = new Checkpointer(journal, 1_000)) {
+            InputStream input = new ByteArrayInputStream(script);
+            assertEquals(checkpoints.resumeOffset(), input.skip(checkpoints.resumeOffset()));
+            simulator().process(input, secondRun, checkpoints);
+        }
+        assertResumed(expected, firstRun.getLines(), secondRun.getLines());
+    }
+
+    @Test
+    public void testCheckpointer_DamagedTail_IsDropped() throws IOException {
+        Path input = folder.newFile().toPath();
+        Files.write(input, "DEPLOY 1,1,NORTH\nPIT 1,3\nPIT 4,4\nMOVE\nMOVE\nREPORT\n".getBytes(StandardCharsets.US_ASCII));
+        Path journal = folder.newFile().toPath();
+        try (Checkpointer checkpoints = new Checkpointer(journal, 3)) {
+            assertArrayEquals(new String[]{"PIT Detected: Ignored", "1,2,NORTH"}, processToList(input, checkpoints).toArray(new String[0]));
+        }
+        long validSize = Files.size(journal);
+        //A record cut short by a crash
+        Files.write(journal, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (Checkpointer checkpoints = new Checkpointer(journal, 3)) {
+            assertEquals(Files.size(input), checkpoints.resumeOffset());
+            assertEquals(validSize, Files.size(journal));
+            Checkpointer.Snapshot restored = checkpoints.restored();
+            assertEquals(2, restored.pitCount);
+            assertEquals(2, restored.y);
+            assertTrue(processToList(input, checkpoints).isEmpty());
+        }
+    }
+
+    @Test
+    public void testCheckpointer_Restore_KeepsPitsAndPitRule() throws IOException {
+        Path input = folder.newFile().toPath();
+        Files.write(input, "DEPLOY 0,0,EAST\nPIT 2,0\n".getBytes(StandardCharsets.US_ASCII));
+        Path journal = folder.newFile().toPath();
+        Checkpointer firstRun = new Checkpointer(journal, 1);
+        processToList(input, firstRun);
+        firstRun.close();
+        //One per line and one at the end, unless the writer fell behind
+        assertTrue(firstRun.written() >= 1);
+
+        //The rest of the script, appended after the first run finished
+        Files.write(input, "PIT 1,1\nMOVE\nMOVE\nLEFT\nMOVE\nREPORT\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        try (Checkpointer checkpoints = new Checkpointer(journal, 1)) {
+            //PIT 1,1 is only accepted if the PIT rule was restored
+            assertArrayEquals(new String[]{"PIT Detected: Ignored", "PIT Detected: Ignored", "1,0,NORTH"}, processToList(input, checkpoints).toArray(new String[0]));
+        }
+    }
+
+
+    /**
+     * @return a simulator that doesn't log the many ignored lines of random scripts.
+     */
+    private static RobotSimulator simulator() {
+        return new RobotSimulator(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                ParserEngine.STRING, null, DiagnosticLog.discarding());
+    }
+
+    private static List<String> processToList(Path input, Checkpointer checkpoints) {
+        ListReportSink outputs = new ListReportSink();
+        simulator().process(input, outputs, checkpoints);
+        return outputs.getLines();
+    }
+
+    private static void assertResumed(List<String> expected, List<String> firstRun, List<String> secondRun) {
+        int resumedAt = expected.size() - secondRun.size();
+        assertTrue("resumed at " + resumedAt + " of " + firstRun.size(), resumedAt >= 0 && resumedAt <= firstRun.size());
+        assertTrue("nothing was saved", resumedAt > 0);
+        assertEquals(expected.subList(0, resumedAt), firstRun.subList(0, resumedAt));
+        assertEquals(expected.subList(resumedAt, expected.size()), secondRun);
+    }
+
+    /**
+     * Stands for the process dying after a number of results.
+     */
+    static class CrashingReportSink implements ReportSink {
+        private final ReportSink outputs;
+        private int remaining;
+
+        CrashingReportSink(ReportSink outputs, int crashAfter) {
+            this.outputs = outputs;
+            this.remaining = crashAfter;
+        }
+
+        private void count() {
+            if (remaining-- == 0) throw new IllegalStateException("Crash");
+        }
+
+        @Override
+        public void onPosition(int x, int y, Direction direction) {
+            count();
+            outputs.onPosition(x, y, direction);
+        }
+
+        @Override
+        public void onOutsideZone() {
+            count();
+            outputs.onOutsideZone();
+        }
+
+        @Override
+        public void onPitDetected() {
+            count();
+            outputs.onPitDetected();
+        }
+
+        @Override
+        public void onRobotDetected() {
+            count();
+            outputs.onRobotDetected();
+        }
+    }
+}
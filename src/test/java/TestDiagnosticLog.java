@@ -0,0 +1,141 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class TestDiagnosticLog {
+    @Test
+    public void testDiagnosticLog_CountsEveryKind() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true));
+        String script = "JUMP\nDEPLOY 0,0,NORTH\nPIT 1\nPIT 1,1\nMOVE\nPIT 2,2\nDEPLOY 0,0\nDEPLOY 10,0,EAST\nREPORT\n";
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics).process(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)));
+        diagnostics.close();
+
+        assertEquals(1, diagnostics.count(DiagnosticLog.Kind.UNRECOGNISED_LINE));
+        assertEquals(1, diagnostics.count(DiagnosticLog.Kind.INVALID_PIT_ARGUMENTS));
+        assertEquals(1, diagnostics.count(DiagnosticLog.Kind.PIT_NOT_ALLOWED));
+        assertEquals(1, diagnostics.count(DiagnosticLog.Kind.INVALID_DEPLOY_ARGUMENTS));
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(log, log.contains("line 1: Unrecognised command (UNRECOGNISED_LINE)"));
+        assertTrue(log, log.contains("line 6: PIT ignored"));
+        assertTrue(log, log.contains("PIT_NOT_ALLOWED: 1 lines, 0 not logged, first at line 6, last at line 6"));
+        //A DEPLOY outside the zone is already reported to the sink, not logged
+        assertFalse(log, log.contains("line 8"));
+    }
+
+    @Test
+    public void testDiagnosticLog_UnknownLines_LeftOut() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true));
+        //A replayed binary script has no line numbers
+        String script = "DEPLOY 0,0,NORTH\nFOO\nDEPLOY 0,0\n";
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics)
+                .replay(BinaryScript.compile(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII))));
+        diagnostics.close();
+
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(1, diagnostics.count(DiagnosticLog.Kind.INVALID_DEPLOY_ARGUMENTS));
+        assertFalse(log, log.contains("line 0"));
+        assertTrue(log, log.contains("\nDEPLOY arguments are not X,Y,F (INVALID_DEPLOY_ARGUMENTS)"));
+        assertTrue(log, log.contains("INVALID_DEPLOY_ARGUMENTS: 1 lines, 0 not logged\n"));
+    }
+
+    @Test
+    public void testDiagnosticLog_UnknownLineFirst_LaterLinesTracked() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true));
+        RobotSimulator simulator = new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics);
+        simulator.replay(BinaryScript.compile(new ByteArrayInputStream("DEPLOY 0,0\n".getBytes(StandardCharsets.US_ASCII))));
+        simulator.process(new ByteArrayInputStream("DEPLOY 0,0,NORTH\nDEPLOY 1\nDEPLOY 2\n".getBytes(StandardCharsets.US_ASCII)));
+        simulator.replay(BinaryScript.compile(new ByteArrayInputStream("DEPLOY 0,0\n".getBytes(StandardCharsets.US_ASCII))));
+        diagnostics.close();
+
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(4, diagnostics.count(DiagnosticLog.Kind.INVALID_DEPLOY_ARGUMENTS));
+        assertTrue(log, log.contains("INVALID_DEPLOY_ARGUMENTS: 4 lines, 0 not logged, first at line 2, last at line 3, at lines 2, 3\n"));
+    }
+
+    @Test
+    public void testDiagnosticLog_Shared_NoLineRanges() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true), 100, 1000, true);
+        for (String script : new String[]{"FOO\n", "DEPLOY 0,0,NORTH\nBAR\n"}) {
+            new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics)
+                    .process(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII)));
+        }
+        diagnostics.close();
+
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(log, log.contains("line 1: Unrecognised command"));
+        assertTrue(log, log.contains("line 2: Unrecognised command"));
+        assertTrue(log, log.contains("UNRECOGNISED_LINE: 2 lines, 0 not logged\n"));
+    }
+
+    @Test
+    public void testDiagnosticLog_Shared_CountsEveryThread() throws InterruptedException {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true), 100, 1000, true);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int line = 1; line <= 100_000; line++) diagnostics.report(DiagnosticLog.Kind.UNRECOGNISED_LINE, line);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        diagnostics.close();
+
+        assertEquals(400_000, diagnostics.count(DiagnosticLog.Kind.UNRECOGNISED_LINE));
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(log, log.contains("UNRECOGNISED_LINE: 400000 lines, "));
+        assertFalse(log, log.contains("first at line"));
+    }
+
+    @Test
+    public void testDiagnosticLog_CorruptInput_IsSampledAndRateLimited() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true), 20, 1000);
+        StringBuilder script = new StringBuilder("DEPLOY 0,0,NORTH\n");
+        IntStream.range(0, 200_000).forEach(e -> script.append("GARBAGE\n"));
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics).process(new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.US_ASCII)));
+        diagnostics.close();
+
+        assertEquals(200_000, diagnostics.count(DiagnosticLog.Kind.UNRECOGNISED_LINE));
+        //The first BURST, then about one in 1000, capped at 20 per second
+        long messages = diagnostics.logged(DiagnosticLog.Kind.UNRECOGNISED_LINE);
+        assertTrue("messages=" + messages, messages >= DiagnosticLog.BURST && messages <= 20);
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(log, log.contains("UNRECOGNISED_LINE: 200000 lines, " + (200_000 - messages) + " not logged, first at line 2, last at line 200001"));
+    }
+
+    @Test
+    public void testDiagnosticLog_CorruptInput_SamplesLinesEvenly() {
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(logged, true));
+        StringBuilder script = new StringBuilder("DEPLOY 0,0,NORTH\n");
+        IntStream.range(0, 100_000).forEach(e -> script.append("GARBAGE\n"));
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, diagnostics).process(new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.US_ASCII)));
+        diagnostics.close();
+
+        String log = new String(logged.toByteArray(), StandardCharsets.US_ASCII);
+        String prefix = "last at line 100001, at lines ";
+        int start = log.indexOf(prefix);
+        assertTrue(log, start >= 0);
+        long[] lines = Arrays.stream(log.substring(start + prefix.length(), log.indexOf('\n', start)).split(", "))
+                .mapToLong(Long::parseLong).toArray();
+        assertEquals(DiagnosticLog.LINE_SAMPLES, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(Arrays.toString(lines), lines[i] >= 2 && lines[i] <= 100_001);
+            if (i > 0) assertTrue(Arrays.toString(lines), lines[i] > lines[i - 1]);
+        }
+        //Not just the first lines, which are also logged
+        assertTrue(Arrays.toString(lines), lines[lines.length - 1] > 1000);
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestFleetSimulator {
+    private static final String[] COMMANDS = {"MOVE", "MOVE", "MOVE", "LEFT", "RIGHT", "REPORT", "RIHT"};
+
+    @Test
+    public void testFleetSimulator_SimpleTest_ReportSuccess() {
+        StringBuilder input = new StringBuilder();
+        input.append("R0 DEPLOY 0,0,NORTH\n");
+        input.append("R1 DEPLOY 1,0,NORTH\n");
+        input.append("R1 PIT 5,5\n");
+        input.append("R0 PIT 1,1\n");
+        input.append("R0 RIGHT\n");
+        input.append("R1 MOVE\n");
+        input.append("R0 MOVE\n");
+        input.append("R0 REPORT\n");
+        input.append("R1 REPORT\n");
+
+        try (InputStream is = new ByteArrayInputStream(input.toString().getBytes());
+             FleetSimulator fleet = new FleetSimulator()) {
+            List<String> process = fleet.process(is);
+            System.out.println(process);
+            assertArrayEquals(new String[]{"R1 PIT Detected: Ignored", "R0 ROBOT Detected: Ignored", "R0 0,0,EAST",
+                            "R1 1,0,NORTH"},
+                    process.toArray(new String[0]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Exception thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFleetSimulator_RobotCollisions_Ignores() {
+        StringBuilder input = new StringBuilder();
+        input.append("R0 DEPLOY 0,0,EAST\n");
+        input.append("R1 DEPLOY 0,0,NORTH\n");
+        input.append("R1 DEPLOY 1,0,NORTH\n");
+        input.append("R1 PIT 0,0\n");
+        input.append("R0 MOVE\n");
+        input.append("R1 MOVE\n");
+        input.append("R0 MOVE\n");
+        input.append("R0 REPORT\n");
+        input.append("R1 REPORT\n");
+        input.append("MOVE\n");
+        input.append("R99999999999 MOVE\n");
+
+        try (InputStream is = new ByteArrayInputStream(input.toString().getBytes());
+             FleetSimulator fleet = new FleetSimulator()) {
+            List<String> process = fleet.process(is);
+            System.out.println(process);
+            assertArrayEquals(new String[]{"R1 ROBOT Detected: Ignored", "R1 ROBOT Detected: Ignored",
+                            "R0 ROBOT Detected: Ignored", "R0 1,0,EAST", "R1 1,1,NORTH"},
+                    process.toArray(new String[0]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Exception thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFleetSimulator_Parallel_MatchesSequential() {
+        for (long seed = 0; seed < 5; seed++) {
+            byte[] input = randomFleetScript(new Random(seed), 500, 200, 200_000);
+            try (FleetSimulator sequential = new FleetSimulator(200, 200, 1);
+                 FleetSimulator parallel = new FleetSimulator(200, 200, 4)) {
+                assertEquals("seed=" + seed, sequential.process(new ByteArrayInputStream(input)),
+                        parallel.process(new ByteArrayInputStream(input)));
+            }
+        }
+    }
+
+    @Test
+    public void testFleetSimulator_CrowdedBoard_MatchesSequential() {
+        byte[] input = randomFleetScript(new Random(42), 300, 20, 100_000);
+        try (FleetSimulator sequentialFleet = new FleetSimulator(20, 20, 1);
+             FleetSimulator parallelFleet = new FleetSimulator(20, 20, 4)) {
+            List<String> sequential = sequentialFleet.process(new ByteArrayInputStream(input));
+            assertEquals(sequential, parallelFleet.process(new ByteArrayInputStream(input)));
+            assertTrue(sequential.stream().anyMatch(line -> line.endsWith("ROBOT Detected: Ignored")));
+        }
+    }
+
+    private static byte[] randomFleetScript(Random random, int robots, int boardSize, int lines) {
+        StringBuilder input = new StringBuilder();
+        for (int robot = 0; robot < robots; robot++) {
+            input.append('R').append(robot).append(" DEPLOY ").append(random.nextInt(boardSize)).append(',')
+                    .append(random.nextInt(boardSize)).append(",NORTH\n");
+        }
+        for (int line = 0; line < lines; line++) {
+            int robot = random.nextInt(robots);
+            int kind = random.nextInt(1000);
+            input.append('R').append(robot).append(' ');
+            if (kind < 3) {
+                input.append("DEPLOY ").append(random.nextInt(boardSize + 2) - 1).append(',')
+                        .append(random.nextInt(boardSize)).append(",EAST\n");
+            } else if (kind < 6) {
+                input.append("PIT ").append(random.nextInt(boardSize)).append(',').append(random.nextInt(boardSize)).append('\n');
+            } else {
+                input.append(COMMANDS[random.nextInt(COMMANDS.length)]).append('\n');
+            }
+        }
+        return input.toString().getBytes();
+    }
+}
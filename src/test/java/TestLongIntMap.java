@@ -0,0 +1,55 @@
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestLongIntMap {
+    @Test
+    public void testLongIntMap_RandomOperations_MatchHashMap() {
+        Random random = new Random(7);
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000) - 1_000L;
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -1_000; key < 1_000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? LongIntMap.MISSING : value, map.get(key));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testLongIntMap_ClearGrownTable_ForgetsKeysInConstantTime() {
+        LongIntMap map = new LongIntMap();
+        for (int key = 0; key < 1 << 16; key++) map.put(key, key);
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntMap.MISSING, map.get(12));
+
+        //Clearing doesn't walk the grown table, as a reused simulator's reset clears the pit index every time
+        for (int i = 0; i < 100_000; i++) {
+            map.put(i, i);
+            assertEquals(i, map.get(i));
+            assertEquals(LongIntMap.MISSING, map.get(i - 1));
+            map.clear();
+        }
+        map.put(Long.MIN_VALUE, 1);
+        map.put(0, 2);
+        map.remove(Long.MIN_VALUE);
+        assertEquals(LongIntMap.MISSING, map.get(Long.MIN_VALUE));
+        assertEquals(2, map.get(0));
+        assertEquals(1, map.size());
+    }
+}
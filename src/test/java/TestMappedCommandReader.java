@@ -0,0 +1,67 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestMappedCommandReader {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMappedCommandReader_SmallWindows_MatchByteReader() throws IOException {
+        StringBuilder input = new StringBuilder();
+        input.append("DEPLOY 0,0,NORTH\r\n");
+        input.append("PIT 1,1\n");
+        input.append("PIT 0,0\r");
+        input.append("MOVE\n\n");
+        input.append("RIGHT 0123456789012345678901234567890123456789\n");
+        input.append("MOVE\n");
+        input.append("MOVE\n");
+        input.append("DEPLOY 10,10,WEST\n");
+        input.append("REPORT");
+        byte[] bytes = input.toString().getBytes(StandardCharsets.US_ASCII);
+        Path file = folder.newFile("commands.txt").toPath();
+        Files.write(file, bytes);
+
+        List<String> expected = read(new ByteCommandReader(new ByteArrayInputStream(bytes)));
+        for (int windowSize : new int[]{18, 19, 33, 64, MappedCommandReader.WINDOW_SIZE}) {
+            assertEquals("windowSize=" + windowSize, expected, read(new MappedCommandReader(file, windowSize)));
+        }
+    }
+
+    @Test
+    public void testRobotSimulator_ProcessPath_ReportSuccess() throws IOException {
+        Path file = folder.newFile("commands.txt").toPath();
+        Files.write(file, "DEPLOY 0,0,NORTH\nPIT 0,1\nMOVE\nRIGHT\nMOVE\nREPORT\n".getBytes(StandardCharsets.US_ASCII));
+
+        List<String> process = new RobotSimulator().process(file);
+        assertArrayEquals(new String[]{"PIT Detected: Ignored", "1,0,EAST"}, process.toArray(new String[0]));
+    }
+
+    @Test
+    public void testRobotSimulator_ProcessEmptyPath_ReportsNothing() throws IOException {
+        Path file = folder.newFile("empty.txt").toPath();
+
+        assertTrue(new RobotSimulator().process(file).isEmpty());
+    }
+
+    private static List<String> read(CommandReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        CommandRecord command = new CommandRecord();
+        try (CommandReader closing = reader) {
+            while (closing.next(command)) {
+                lines.add(command.command + " " + command.hasValidArgs + " " + command.x + "," + command.y + "," + command.directionIndex);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,222 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestPathPlanner {
+
+    @Test
+    public void testPathPlanner_OpenBoard_OneTurn() {
+        RobotSimulator simulator = new RobotSimulator(10, 10, ParserEngine.BYTE);
+        simulator.process(input("DEPLOY 0,0,NORTH\n"));
+
+        List<Command> path = simulator.pathTo(2, 3);
+        assertEquals(6, path.size());
+        assertArrivesAt(simulator, path, 2, 3);
+    }
+
+    @Test
+    public void testPathPlanner_AroundAWall() {
+        //A wall at Y = 2 from X = 0 to 3: the way round is past its end
+        RobotSimulator simulator = new RobotSimulator(5, 5, ParserEngine.BYTE);
+        simulator.process(input("DEPLOY 0,0,NORTH\nPIT 0,2\nPIT 1,2\nPIT 2,2\nPIT 3,2\n"));
+
+        List<Command> path = simulator.pathTo(0, 4);
+        //4 steps EAST, 4 NORTH, 4 WEST and 3 turns
+        assertEquals(15, path.size());
+        assertArrivesAt(simulator, path, 0, 4);
+    }
+
+    @Test
+    public void testPathPlanner_Unreachable() {
+        RobotSimulator simulator = new RobotSimulator(5, 5, ParserEngine.BYTE);
+        assertNull("Not deployed", simulator.pathTo(1, 1));
+
+        simulator.process(input("DEPLOY 0,0,NORTH\nPIT 3,4\nPIT 4,3\nPIT 2,2\n"));
+        assertNull("Walled in", simulator.pathTo(4, 4));
+        assertNull("Pit", simulator.pathTo(2, 2));
+        assertNull("Outside Zone", simulator.pathTo(5, 0));
+        assertEquals(Collections.emptyList(), simulator.pathTo(0, 0));
+    }
+
+    @Test
+    public void testPathPlanner_RandomBoards_MatchBruteForce() {
+        Random random = new Random(7);
+        for (int board = 0; board < 200; board++) {
+            int width = 1 + random.nextInt(12), height = 1 + random.nextInt(12);
+            boolean[] isPit = new boolean[width * height];
+            IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(width, height));
+            for (int i = random.nextInt(width * height / 2 + 1); i > 0; i--) {
+                int x = random.nextInt(width), y = random.nextInt(height);
+                isPit[y * width + x] = true;
+                pits.add(x, y);
+            }
+            PathPlanner planner = new PathPlanner(width, height, pits);
+            //Few targets, so most queries go through distance fields
+            int[] targets = new int[6];
+            for (int i = 0; i < targets.length; i++) targets[i] = random.nextInt(width * height);
+            for (int query = 0; query < 30; query++) {
+                int from = random.nextInt(width * height), to = targets[random.nextInt(targets.length)];
+                int directionIndex = random.nextInt(4);
+                int fromX = from % width, fromY = from / width, toX = to % width, toY = to / width;
+
+                int expected = isPit[from] || isPit[to] ? -1 : bruteForce(isPit, width, height, from, directionIndex, to);
+                List<Command> path = planner.shortestPath(fromX, fromY, directionIndex, toX, toY);
+                String message = "board=" + board + " query=" + query;
+                assertEquals(message, expected, path == null ? -1 : path.size());
+                if (path == null) continue;
+
+                RobotSimulator simulator = new RobotSimulator(width, height, ParserEngine.BYTE);
+                StringBuilder script = new StringBuilder("DEPLOY " + fromX + "," + fromY + ","
+                        + RobotSimulator.DIRECTION_SEQUENCE[directionIndex] + "\n");
+                pits.forEach((x, y) -> script.append("PIT ").append(x).append(',').append(y).append('\n'));
+                simulator.process(input(script.toString()));
+                assertArrivesAt(simulator, path, toX, toY);
+            }
+        }
+    }
+
+    @Test
+    public void testPathPlanner_RepeatedTarget_BuildsDistanceField() {
+        IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(50, 50));
+        for (int y = 0; y < 40; y++) pits.add(25, y);
+        PathPlanner planner = new PathPlanner(50, 50, pits);
+
+        int searched = planner.distance(0, 0, 0, 49, 0);
+        assertFalse(planner.hasDistanceField(49, 0));
+        assertEquals(searched, planner.distance(0, 0, 0, 49, 0));
+        assertTrue(planner.hasDistanceField(49, 0));
+        assertEquals(planner.distance(10, 5, 1, 49, 0), searched(pits, 10, 5, 1, 49, 0));
+
+        //A new pit across the only way makes the field stale
+        pits.add(25, 45);
+        assertFalse(planner.hasDistanceField(49, 0));
+        assertEquals(searched(pits, 0, 0, 0, 49, 0), planner.distance(0, 0, 0, 49, 0));
+        assertTrue(planner.hasDistanceField(49, 0));
+
+        planner.clear();
+        assertFalse(planner.hasDistanceField(49, 0));
+    }
+
+    @Test
+    public void testPathPlanner_HugeBoard_SearchesNearTheWay() {
+        //Far too many states for a bitset: the search keeps to a hash map and the cells near the way
+        int size = 100_000;
+        IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(size, size));
+        pits.add(50_000, 50_000);
+        pits.add(1000, 99_999);
+        PathPlanner planner = new PathPlanner(size, size, pits);
+
+        List<Command> path = planner.shortestPath(0, 0, 0, 99_999, 99_999);
+        //The top row is blocked, so one more turn than all the way NORTH then EAST
+        assertEquals(2 * 99_999 + 2, path.size());
+    }
+
+    @Test
+    public void testPathPlanner_HugeBoard_Unreachable() {
+        int size = 100_000;
+        IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(size, size));
+        pits.add(99_999, 99_999);
+        for (int directionIndex = 0; directionIndex < 4; directionIndex++) {
+            pits.add(50_000 + RobotSimulator.STEP_X[directionIndex], 50_000 + RobotSimulator.STEP_Y[directionIndex]);
+        }
+        PathPlanner planner = new PathPlanner(size, size, pits);
+
+        //Walled in target, walled in start
+        assertNull(planner.shortestPath(0, 0, 0, 50_000, 50_000));
+        assertNull(planner.shortestPath(50_000, 50_000, 0, 0, 0));
+        assertNull(planner.shortestPath(50_000, 50_000, 0, 99_998, 99_999));
+        //Past the walls, still reachable
+        assertEquals(2 * 50_002 + 1, planner.shortestPath(0, 0, 0, 50_002, 50_002).size());
+    }
+
+    @Test
+    public void testPathPlanner_HugeBoard_CutInTwo() {
+        //A wall across the whole width: the board around the pits is in two parts
+        int width = 10, height = 10_000_000;
+        IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(width, height));
+        for (int x = 0; x < width; x++) pits.add(x, height / 2);
+        PathPlanner planner = new PathPlanner(width, height, pits);
+
+        assertNull(planner.shortestPath(0, 0, 0, 0, height - 1));
+        assertEquals(1000, planner.shortestPath(0, height / 2 - 1001, 0, 0, height / 2 - 1).size());
+    }
+
+    @Test
+    public void testPathPlanner_HugeBoard_SearchLimit_Throws() {
+        //The start is in a cup of pits open to the SOUTH, away from the target
+        int size = 100_000;
+        IndexedPitMap pits = new IndexedPitMap(PitMap.forBoard(size, size));
+        for (int i = 40; i <= 60; i++) {
+            pits.add(i, 60);
+            pits.add(40, i);
+            pits.add(60, i);
+        }
+
+        //Turn back, leave the cup 11 cells down, then EAST and NORTH
+        assertEquals(2 * 99_949 + 2 * 11 + 4,
+                new PathPlanner(size, size, pits).shortestPath(50, 50, 0, 99_999, 99_999).size());
+        try {
+            new PathPlanner(size, size, pits, 200).shortestPath(50, 50, 0, 99_999, 99_999);
+            fail();
+        } catch (PathSearchLimitException expected) {
+        }
+        //Still null when the target is proven out of reach
+        pits.add(99_998, 99_999);
+        pits.add(99_999, 99_998);
+        assertNull(new PathPlanner(size, size, pits, 200).shortestPath(50, 50, 0, 99_999, 99_999));
+    }
+
+    private static int searched(IndexedPitMap pits, int fromX, int fromY, int directionIndex, int toX, int toY) {
+        //A new planner has nothing cached
+        return new PathPlanner(50, 50, pits).distance(fromX, fromY, directionIndex, toX, toY);
+    }
+
+    /**
+     * Breadth first search over every cell and direction.
+     */
+    private static int bruteForce(boolean[] isPit, int width, int height, int from, int directionIndex, int to) {
+        int[] distances = new int[width * height * 4];
+        Arrays.fill(distances, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distances[from * 4 + directionIndex] = 0;
+        queue.add(from * 4 + directionIndex);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int cell = state / 4, direction = state % 4;
+            if (cell == to) return distances[state];
+
+            int x = cell % width + RobotSimulator.STEP_X[direction], y = cell / width + RobotSimulator.STEP_Y[direction];
+            int[] next = {cell * 4 + (direction + 1) % 4, cell * 4 + (direction + 3) % 4,
+                    x >= 0 && x < width && y >= 0 && y < height && !isPit[y * width + x] ? (y * width + x) * 4 + direction : -1};
+            for (int n : next) {
+                if (n >= 0 && distances[n] < 0) {
+                    distances[n] = distances[state] + 1;
+                    queue.add(n);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void assertArrivesAt(RobotSimulator simulator, List<Command> path, int x, int y) {
+        StringBuilder script = new StringBuilder();
+        for (Command command : path) script.append(command).append('\n');
+        script.append("REPORT\n");
+
+        List<String> lines = simulator.process(input(script.toString()));
+        assertEquals(lines.toString(), 1, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith(x + "," + y + ","));
+    }
+
+    private static ByteArrayInputStream input(String script) {
+        return new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
+    }
+}
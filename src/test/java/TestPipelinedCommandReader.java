@@ -0,0 +1,178 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TestPipelinedCommandReader {
+    //Just over the overlong line limit, so lines often straddle chunks
+    private static final int SMALL_CHUNK = ByteCommandReader.BUFFER_SIZE + 100;
+
+    @Test
+    public void testPipelinedCommandReader_RandomInput_MatchesByteReader() throws IOException {
+        ExecutorService parsers = Executors.newFixedThreadPool(3);
+        try {
+            for (long seed = 0; seed < 10; seed++) {
+                byte[] bytes = randomInput(new Random(seed));
+                List<String> expected = read(new ByteCommandReader(new ByteArrayInputStream(bytes)));
+
+                assertEquals("seed=" + seed, expected, read(new PipelinedCommandReader(
+                        new TrickleInputStream(bytes, new Random(seed)), parsers, SMALL_CHUNK, 2)));
+                assertEquals("seed=" + seed, expected, read(new PipelinedCommandReader(
+                        new ByteArrayInputStream(bytes), parsers)));
+            }
+        } finally {
+            parsers.shutdown();
+        }
+    }
+
+    @Test
+    public void testPipelinedCommandReader_OverlongLines_KeepTheirHead() throws IOException {
+        StringBuilder input = new StringBuilder("DEPLOY 1,2,EAST ");
+        for (int i = 0; i < 3 * SMALL_CHUNK; i++) input.append('x');
+        input.append("\r\nREPORT\r");
+        for (int i = 0; i < SMALL_CHUNK - 1; i++) input.append(' ');
+        input.append("\r\nMOVE");
+        byte[] bytes = input.toString().getBytes(StandardCharsets.US_ASCII);
+
+        List<String> expected = read(new ByteCommandReader(new ByteArrayInputStream(bytes)));
+        assertEquals(Arrays.asList("DEPLOY true 1,2,1", "REPORT true 0,0,0", "null false 0,0,0", "MOVE true 0,0,0"), expected);
+        assertEquals(expected, read(new PipelinedCommandReader(new ByteArrayInputStream(bytes), Runnable::run, SMALL_CHUNK, 1)));
+    }
+
+    @Test
+    public void testRobotSimulator_Pipelined_MatchesByteEngine() {
+        String script = TestBinaryScript.randomScript(new Random(11), 200_000);
+        byte[] bytes = script.getBytes(StandardCharsets.US_ASCII);
+
+        List<String> expected = simulator(ParserEngine.BYTE).process(new ByteArrayInputStream(bytes));
+        assertEquals(expected, simulator(ParserEngine.PIPELINED).process(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test(timeout = 20_000)
+    public void testPipelinedCommandReader_ParsersNeverRun_ConsumerParses() throws IOException {
+        byte[] bytes = randomInput(new Random(3));
+        List<String> expected = read(new ByteCommandReader(new ByteArrayInputStream(bytes)));
+
+        //Like a pool whose only worker is the caller itself
+        assertEquals(expected, read(new PipelinedCommandReader(new ByteArrayInputStream(bytes), task -> { }, SMALL_CHUNK, 2)));
+    }
+
+    @Test(timeout = 60_000)
+    public void testRobotSimulator_PipelinedOnEveryCommonPoolWorker_Completes() throws Exception {
+        byte[] bytes = TestBinaryScript.randomScript(new Random(5), 100_000).getBytes(StandardCharsets.US_ASCII);
+        List<String> expected = simulator(ParserEngine.BYTE).process(new ByteArrayInputStream(bytes));
+
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < ForkJoinPool.getCommonPoolParallelism() + 1; i++) {
+            results.add(ForkJoinPool.commonPool().submit(
+                    () -> simulator(ParserEngine.PIPELINED).process(new ByteArrayInputStream(bytes))));
+        }
+        for (Future<List<String>> result : results) assertEquals(expected, result.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testPipelinedCommandReader_InputFails_Throws() throws IOException {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Disk on fire");
+            }
+        };
+        read(new PipelinedCommandReader(failing, Runnable::run));
+    }
+
+    @Test(timeout = 20_000, expected = OutOfMemoryError.class)
+    public void testPipelinedCommandReader_InputFailsWithError_Rethrows() throws IOException {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new OutOfMemoryError("Simulated");
+            }
+        };
+        read(new PipelinedCommandReader(failing, Runnable::run));
+    }
+
+    @Test
+    public void testPipelinedCommandReader_ClosedEarly_StopsReading() throws IOException {
+        byte[] block = "DEPLOY 0,0,NORTH\nMOVE\nREPORT\n".getBytes(StandardCharsets.US_ASCII);
+        //Endless input: the reader thread fills the ring and waits until closed
+        InputStream endless = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                byte value = block[position];
+                position = (position + 1) % block.length;
+                return value;
+            }
+        };
+        PipelinedCommandReader reader = new PipelinedCommandReader(endless, Runnable::run, SMALL_CHUNK, 2);
+        CommandRecord command = new CommandRecord();
+        assertTrue(reader.next(command));
+        assertEquals(Command.DEPLOY, command.command);
+        reader.close();
+    }
+
+    private static byte[] randomInput(Random random) {
+        String[] breaks = {"\n", "\n", "\n", "\r\n", "\r"};
+        StringBuilder input = new StringBuilder();
+        for (String line : TestBinaryScript.randomScript(random, 20_000).split("\n")) {
+            if (random.nextInt(5_000) == 0) {
+                //Overlong, sometimes longer than a chunk
+                int length = ByteCommandReader.BUFFER_SIZE - 10 + random.nextInt(2 * SMALL_CHUNK);
+                for (int i = 0; i < length; i++) input.append(i % 7 == 0 ? ' ' : 'M');
+            }
+            input.append(line).append(breaks[random.nextInt(breaks.length)]);
+        }
+        if (random.nextBoolean()) input.append("REPORT");
+        return input.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return a simulator that doesn't log the many ignored lines of random scripts.
+     */
+    private static RobotSimulator simulator(ParserEngine engine) {
+        return new RobotSimulator(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                engine, null, DiagnosticLog.discarding());
+    }
+
+    private static List<String> read(CommandReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        CommandRecord command = new CommandRecord();
+        try (CommandReader closing = reader) {
+            while (closing.next(command)) {
+                lines.add(command.command + " " + command.hasValidArgs + " " + command.x + "," + command.y + "," + command.directionIndex);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Hands out the bytes a few at a time, like a slow socket.
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        private final Random random;
+
+        TrickleInputStream(byte[] bytes, Random random) {
+            super(bytes);
+            this.random = random;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            return super.read(buffer, offset, Math.min(length, 1 + random.nextInt(4096)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestPitIndex {
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+
+    @Test
+    public void testPitIndex_Distance_FindsNearestPitEachWay() {
+        PitIndex index = new PitIndex();
+        index.add(5, 9);
+        index.add(5, 2);
+        index.add(1, 4);
+        index.add(8, 4);
+
+        assertEquals(4, index.distance(5, 5, Direction.NORTH));
+        assertEquals(3, index.distance(5, 5, Direction.SOUTH));
+        assertEquals(PitIndex.NONE, index.distance(5, 5, Direction.EAST));
+        assertEquals(4, index.distance(5, 4, Direction.WEST));
+        assertEquals(3, index.distance(5, 4, Direction.EAST));
+        assertEquals(PitIndex.NONE, index.distance(5, 9, Direction.NORTH));
+    }
+
+    @Test
+    public void testPitIndex_FarPits_DontOverflow() {
+        PitIndex index = new PitIndex();
+        index.add(Integer.MAX_VALUE, 0);
+        index.add(Integer.MIN_VALUE, 0);
+
+        assertEquals(PitIndex.NONE, index.distance(-1, 0, Direction.EAST));
+        assertEquals(Integer.MAX_VALUE, index.distance(0, 0, Direction.EAST));
+        assertEquals(PitIndex.NONE, index.distance(1, 0, Direction.WEST));
+    }
+
+    @Test
+    public void testIndexedPitMap_FreeSteps_MatchCellByCellWalk() {
+        Random random = new Random(42);
+        for (PitMap storage : new PitMap[]{new BitSetPitMap(50, 50), new SparsePitMap()}) {
+            IndexedPitMap pits = new IndexedPitMap(storage);
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 300; i++) {
+                    pits.add(random.nextInt(54) - 2, random.nextInt(54) - 2);
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    int x = random.nextInt(50), y = random.nextInt(50);
+                    int[] step = STEPS[random.nextInt(4)];
+                    int maxSteps = random.nextInt(60);
+                    assertEquals(walk(pits, x, y, step[0], step[1], maxSteps), pits.freeSteps(x, y, step[0], step[1], maxSteps));
+                }
+                pits.clear();
+                assertEquals(0, pits.size());
+                assertEquals(7, pits.freeSteps(0, 0, 1, 0, 7));
+            }
+        }
+    }
+
+    private static int walk(PitMap pits, int x, int y, int dx, int dy, int maxSteps) {
+        for (int steps = 0; steps < maxSteps; steps++) {
+            x += dx;
+            y += dy;
+            if (pits.contains(x, y)) return steps;
+        }
+        return maxSteps;
+    }
+}
@@ -0,0 +1,116 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestPitMap {
+    @Test
+    public void testBitSetPitMap_AddAndContains() {
+        PitMap pits = new BitSetPitMap(10, 10);
+        pits.add(0, 0);
+        pits.add(9, 9);
+        pits.add(3, 7);
+        pits.add(3, 7);
+
+        assertTrue(pits.contains(0, 0));
+        assertTrue(pits.contains(9, 9));
+        assertTrue(pits.contains(3, 7));
+        assertFalse(pits.contains(7, 3));
+        assertFalse(pits.contains(10, 0));
+        assertEquals(3, pits.size());
+    }
+
+    @Test
+    public void testBitSetPitMap_PitsOffTheBoard_AreKept() {
+        PitMap pits = new BitSetPitMap(10, 10);
+        pits.add(-1, 0);
+        pits.add(10, 10);
+
+        assertTrue(pits.contains(-1, 0));
+        assertTrue(pits.contains(10, 10));
+        assertFalse(pits.contains(0, 0));
+        assertFalse(pits.contains(9, 9));
+        assertEquals(2, pits.size());
+    }
+
+    @Test
+    public void testSparsePitMap_AddAndContains() {
+        SparsePitMap pits = new SparsePitMap();
+        for (int i = 0; i < 10_000; i++) {
+            pits.add(i * 7, -i * 13);
+        }
+        pits.add(Integer.MIN_VALUE, 0);
+        pits.add(Integer.MAX_VALUE, Integer.MIN_VALUE);
+        pits.add(0, 0);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(pits.contains(i * 7, -i * 13));
+            assertFalse(pits.contains(i * 7 + 1, -i * 13));
+        }
+        assertTrue(pits.contains(Integer.MIN_VALUE, 0));
+        assertTrue(pits.contains(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        assertFalse(pits.contains(Integer.MIN_VALUE, 1));
+        assertEquals(10_002, pits.size());
+        //Memory follows the number of pits, not the coordinates
+        assertTrue(pits.bytes() <= 4 * 12 * 10_002);
+    }
+
+    @Test
+    public void testPitMap_ForEach_VisitsEveryPit() {
+        for (PitMap pits : new PitMap[]{new BitSetPitMap(10, 10), new SparsePitMap()}) {
+            pits.add(1, 2);
+            pits.add(9, 0);
+            pits.add(-5, 20);
+            StringBuilder visited = new StringBuilder();
+            pits.forEach((x, y) -> visited.append(x).append(',').append(y).append(' '));
+
+            assertEquals(3, visited.toString().split(" ").length);
+            assertTrue(visited.toString().contains("1,2 "));
+            assertTrue(visited.toString().contains("9,0 "));
+            assertTrue(visited.toString().contains("-5,20 "));
+        }
+    }
+
+    @Test
+    public void testAdaptivePitMap_TurnsDenseWithManyPits() {
+        AdaptivePitMap pits = new AdaptivePitMap(8192, 4096);
+        int count = 0;
+        for (int y = 0; y < 4096 && !pits.isDense(); y += 2) {
+            for (int x = 0; x < 8192 && !pits.isDense(); x += 3) {
+                pits.add(x, y);
+                count++;
+            }
+        }
+
+        assertTrue(pits.isDense());
+        assertEquals(count, pits.size());
+        assertTrue(pits.contains(0, 0));
+        assertTrue(pits.contains(3, 0));
+        assertFalse(pits.contains(1, 0));
+    }
+
+    @Test
+    public void testPitMap_ForBoard_PicksStorageBySize() {
+        assertTrue(PitMap.forBoard(10, 10) instanceof BitSetPitMap);
+        assertTrue(PitMap.forBoard(100_000, 1_000) instanceof AdaptivePitMap);
+        assertTrue(PitMap.forBoard(1_000_000, 1_000_000) instanceof SparsePitMap);
+    }
+
+    @Test
+    public void testPitMap_Clear_ForgetsPitsAndIsReusable() {
+        for (PitMap pits : new PitMap[]{new BitSetPitMap(100, 100), new SparsePitMap(), new AdaptivePitMap(8192, 4096)}) {
+            for (int i = 0; i < 1_000; i++) pits.add(i % 100, i / 100);
+            pits.add(-1, -1);
+            pits.clear();
+
+            assertEquals(0, pits.size());
+            assertFalse(pits.contains(0, 0));
+            assertFalse(pits.contains(-1, -1));
+            pits.forEach((x, y) -> fail("Visited " + x + "," + y));
+
+            pits.add(5, 5);
+            assertTrue(pits.contains(5, 5));
+            assertFalse(pits.contains(4, 0));
+            assertEquals(1, pits.size());
+        }
+    }
+}
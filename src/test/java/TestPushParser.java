@@ -0,0 +1,143 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestPushParser {
+    private static final String[] LINE_BREAKS = {"\n", "\r\n", "\r"};
+
+    @Test
+    public void testPushParser_RandomFragments_MatchProcess() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            byte[] script = noisyScript(random, 3_000).getBytes(StandardCharsets.ISO_8859_1);
+            for (int maxFragment : new int[]{1, 3, 17, 4096}) {
+                String message = "seed=" + seed + " maxFragment=" + maxFragment;
+                assertEquals(message, process(script), push(script, random, maxFragment, random.nextBoolean()));
+            }
+        }
+    }
+
+    @Test
+    public void testPushParser_SplitBetweenCarriageReturnAndLineFeed() {
+        byte[] script = "DEPLOY 1,1,NORTH\r\nMOVE\r\rREPORT\r\n\r\nREPORT".getBytes(StandardCharsets.US_ASCII);
+        List<String> expected = process(script);
+        for (int split = 0; split <= script.length; split++) {
+            ListReportSink outputs = new ListReportSink();
+            PushParser parser = new PushParser(new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()), outputs);
+            parser.feed(ByteBuffer.wrap(script, 0, split));
+            parser.feed(ByteBuffer.wrap(script, split, script.length - split));
+            parser.finish();
+            assertEquals("split=" + split, expected, outputs.getLines());
+        }
+    }
+
+    @Test
+    public void testPushParser_OverlongLines_KeepTheirHead() {
+        StringBuilder script = new StringBuilder("DEPLOY 1,1,NORTH\n");
+        //Valid in its head, garbage after it
+        script.append("REPORT");
+        for (int i = 0; i < ByteCommandReader.BUFFER_SIZE * 2; i++) script.append('x');
+        script.append("\nREPORT\nPIT 2,2");
+        for (int i = 0; i < ByteCommandReader.BUFFER_SIZE; i++) script.append(' ');
+        byte[] bytes = script.toString().getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(process(bytes), push(bytes, new Random(1), 10_000, false));
+        assertEquals(process(bytes), push(bytes, new Random(1), bytes.length, true));
+    }
+
+    @Test
+    public void testPushParser_ResultsAsTheLinesComplete() {
+        ListReportSink outputs = new ListReportSink();
+        PushParser parser = new PushParser(new RobotSimulator(10, 10, ParserEngine.BYTE), outputs);
+        parser.feed(ByteBuffer.wrap("DEPLOY 1,1,EAST\nMOVE\nMOVE\nREP".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0, outputs.getLines().size());
+        parser.feed(ByteBuffer.wrap("ORT\n".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("3,1,EAST", outputs.getLines().get(0));
+
+        //No line break: the line only runs at the end of the stream
+        parser.feed(ByteBuffer.wrap("REPORT".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1, outputs.getLines().size());
+        parser.finish();
+        assertEquals(2, outputs.getLines().size());
+    }
+
+    @Test
+    public void testPushParser_DiagnosticsHaveLineNumbers() {
+        byte[] script = "DEPLOY 1,1,NORTH\n\nJUMP\r\nPIT 1\rMOVE\nPIT 2,2\nDEPLOY 9,9".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream processed = new ByteArrayOutputStream();
+        DiagnosticLog processLog = new DiagnosticLog(new PrintStream(processed, true));
+        new RobotSimulator(5, 5, ParserEngine.BYTE, null, processLog).process(new ByteArrayInputStream(script));
+        processLog.close();
+
+        ByteArrayOutputStream pushed = new ByteArrayOutputStream();
+        DiagnosticLog pushLog = new DiagnosticLog(new PrintStream(pushed, true));
+        PushParser parser = new PushParser(new RobotSimulator(5, 5, ParserEngine.BYTE, null, pushLog), new ListReportSink());
+        for (byte value : script) parser.feed(ByteBuffer.wrap(new byte[]{value}));
+        parser.finish();
+        pushLog.close();
+
+        String log = new String(pushed.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(new String(processed.toByteArray(), StandardCharsets.US_ASCII), log);
+        assertTrue(log, log.contains("line 2: Unrecognised command"));
+        assertTrue(log, log.contains("line 3: Unrecognised command"));
+        assertTrue(log, log.contains("line 4: PIT arguments"));
+        assertTrue(log, log.contains("line 6: PIT ignored"));
+        assertTrue(log, log.contains("line 7: DEPLOY arguments"));
+    }
+
+    /**
+     * A random script with mixed line breaks, blank and unrecognised lines, and now and then an overlong one.
+     */
+    private static String noisyScript(Random random, int lines) {
+        String[] base = TestBinaryScript.randomScript(random, lines).split("\n");
+        StringBuilder script = new StringBuilder();
+        for (String line : base) {
+            int noise = random.nextInt(1000);
+            if (noise < 30) {
+                script.append(LINE_BREAKS[random.nextInt(LINE_BREAKS.length)]);
+            } else if (noise < 50) {
+                script.append(line.toLowerCase());
+            } else if (noise == 50) {
+                script.append(line);
+                for (int i = ByteCommandReader.BUFFER_SIZE - random.nextInt(10); i > 0; i--) script.append(' ');
+            } else {
+                script.append(line);
+            }
+            script.append(LINE_BREAKS[random.nextInt(LINE_BREAKS.length)]);
+        }
+        if (random.nextBoolean()) script.append("REPORT");
+        return script.toString();
+    }
+
+    private static List<String> process(byte[] script) {
+        return new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()).process(new ByteArrayInputStream(script));
+    }
+
+    /**
+     * Feeds the script in fragments of 0 to maxFragment bytes, from one reused buffer.
+     */
+    private static List<String> push(byte[] script, Random random, int maxFragment, boolean isDirect) {
+        ListReportSink outputs = new ListReportSink();
+        PushParser parser = new PushParser(new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()), outputs);
+        ByteBuffer buffer = isDirect ? ByteBuffer.allocateDirect(maxFragment) : ByteBuffer.allocate(maxFragment);
+        for (int offset = 0; offset < script.length; ) {
+            int length = Math.min(script.length - offset, random.nextInt(maxFragment + 1));
+            buffer.clear();
+            buffer.put(script, offset, length);
+            buffer.flip();
+            parser.feed(buffer);
+            assertFalse(buffer.hasRemaining());
+            offset += length;
+        }
+        parser.finish();
+        return outputs.getLines();
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestReportEncoder {
+    private static final String SCRIPT = "DEPLOY 0,0,NORTH\nPIT 0,1\nPIT 0,0\nMOVE\nRIGHT\nMOVE\nMOVE\nREPORT\n"
+            + "DEPLOY 9,9,WEST\nREPORT\nLEFT\nMOVE\nREPORT\nDEPLOY 10,0,EAST\n";
+
+    @Test
+    public void testTextReportEncoder_LargeOutput_MatchesReportLines() {
+        //Many times the encoder buffer, so it is flushed along the way
+        byte[] input = TestBinaryScript.randomScript(new Random(42), 50_000).getBytes(StandardCharsets.US_ASCII);
+        List<String> expected = simulator().process(new ByteArrayInputStream(input));
+
+        String encoded = encode(input, ReportFormat.TEXT);
+        assertTrue(encoded.length() > 4 * ReportEncoder.BUFFER_SIZE);
+        assertEquals(expected.isEmpty() ? "" : String.join("\n", expected) + "\n", encoded);
+    }
+
+    @Test
+    public void testCsvReportEncoder_OneRowPerResult() {
+        String encoded = encode(SCRIPT.getBytes(StandardCharsets.US_ASCII), ReportFormat.CSV);
+
+        assertEquals("event,x,y,direction\nROBOT_DETECTED,,,\nPIT_DETECTED,,,\nPOSITION,2,0,EAST\n"
+                + "POSITION,9,9,WEST\nPOSITION,9,8,SOUTH\nOUTSIDE_ZONE,,,\n", encoded);
+    }
+
+    @Test
+    public void testBinaryReportEncoder_Decode_MatchesReportLines() {
+        byte[] input = TestBinaryScript.randomScript(new Random(7), 20_000).getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        simulator().process(new ByteArrayInputStream(input), output, ReportFormat.BINARY);
+
+        ListReportSink decoded = new ListReportSink();
+        BinaryReportEncoder.decode(ByteBuffer.wrap(output.toByteArray()), decoded);
+        assertEquals(simulator().process(new ByteArrayInputStream(input)), decoded.getLines());
+    }
+
+    @Test
+    public void testReportEncoder_PutInt_MatchesIntegerToString() {
+        byte[] buffer = new byte[16];
+        for (int value : new int[]{0, 1, 9, 10, 99, 100, -1, -10, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1}) {
+            int size = ReportEncoder.putInt(buffer, 0, value);
+            assertEquals(Integer.toString(value), new String(buffer, 0, size, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * @return a simulator that doesn't log the many ignored lines of random scripts.
+     */
+    private static RobotSimulator simulator() {
+        return new RobotSimulator(RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION,
+                ParserEngine.STRING, null, DiagnosticLog.discarding());
+    }
+
+    private static String encode(byte[] input, ReportFormat format) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        simulator().process(new ByteArrayInputStream(input), output, format);
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
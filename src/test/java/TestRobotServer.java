@@ -0,0 +1,148 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestRobotServer {
+
+    private static RobotServer server(int selectors) {
+        return new RobotServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 10, 10, ReportFormat.TEXT, selectors,
+                DiagnosticLog.discarding());
+    }
+
+    @Test
+    public void testRobotServer_RandomScripts_MatchProcess() throws IOException {
+        Random random = new Random(3);
+        try (RobotServer server = server(2)) {
+            for (long seed = 0; seed < 20; seed++) {
+                String script = TestBinaryScript.randomScript(new Random(seed), 2_000);
+                try (SocketChannel client = SocketChannel.open(server.address())) {
+                    //In random fragments, split anywhere
+                    byte[] bytes = script.getBytes(StandardCharsets.UTF_8);
+                    for (int offset = 0; offset < bytes.length; ) {
+                        int length = Math.min(bytes.length - offset, 1 + random.nextInt(100));
+                        writeFully(client, ByteBuffer.wrap(bytes, offset, length));
+                        offset += length;
+                    }
+                    client.shutdownOutput();
+
+                    assertEquals("seed=" + seed, expected(script), readAll(client));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRobotServer_ReportsBeforeTheInputEnds() throws IOException {
+        try (RobotServer server = server(1); SocketChannel client = SocketChannel.open(server.address())) {
+            writeFully(client, ByteBuffer.wrap("DEPLOY 1,1,NORTH\nMOVE\nREPORT\n".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals("1,2,NORTH\n", readLine(client));
+
+            writeFully(client, ByteBuffer.wrap("DEPLOY 9,9,NORTH\nMOVE\r".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals("Outside Zone: Ignored\n", readLine(client));
+
+            //The last line needs no line break
+            writeFully(client, ByteBuffer.wrap("\nREPORT".getBytes(StandardCharsets.US_ASCII)));
+            client.shutdownOutput();
+            assertEquals("9,9,NORTH\n", readAll(client));
+        }
+    }
+
+    @Test
+    public void testRobotServer_ManyConnections_IsolatedSessions() throws IOException {
+        //Sized for a unit test, ServerLoadTestRunner holds tens of thousands open
+        int connections = 2000;
+        try (RobotServer server = server(2)) {
+            List<SocketChannel> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < connections; i++) {
+                    SocketChannel client = SocketChannel.open(server.address());
+                    clients.add(client);
+                    //Every session puts a pit in the next column, which would block another one if they shared a board
+                    StringBuilder script = new StringBuilder("DEPLOY " + (i % 10) + ",0,NORTH\nPIT " + (i + 1) % 10 + ",3\n");
+                    for (int move = 0; move < i % 7; move++) script.append("MOVE\n");
+                    script.append("REPORT\n");
+                    writeFully(client, ByteBuffer.wrap(script.toString().getBytes(StandardCharsets.US_ASCII)));
+                }
+                for (int i = 0; i < connections; i++) {
+                    String report = (i % 10) + "," + (i % 7) + ",NORTH\n";
+                    assertEquals("connection " + i, report, readLine(clients.get(i)));
+                }
+                assertEquals(connections, server.sessions());
+                for (SocketChannel client : clients) client.shutdownOutput();
+                for (SocketChannel client : clients) assertEquals("", readAll(client));
+            } finally {
+                for (SocketChannel client : clients) client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRobotServer_SlowReader_BoundedOutput() throws IOException {
+        //Far more results than socket buffers hold: the session must wait for the client rather than buffer them all
+        StringBuilder script = new StringBuilder("DEPLOY 0,0,NORTH\n");
+        for (int i = 0; i < 200_000; i++) script.append("REPORT\n");
+        try (RobotServer server = server(1); SocketChannel client = SocketChannel.open(server.address())) {
+            Thread writer = new Thread(() -> {
+                try {
+                    writeFully(client, ByteBuffer.wrap(script.toString().getBytes(StandardCharsets.US_ASCII)));
+                    client.shutdownOutput();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            String output = readAll(client);
+            assertEquals(200_000 * "0,0,NORTH\n".length(), output.length());
+            writer.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String expected(String script) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding())
+                .process(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), output, ReportFormat.TEXT);
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Reads until the server closes the connection.
+     */
+    static String readAll(SocketChannel channel) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (channel.read(buffer) >= 0) {
+            output.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    static String readLine(SocketChannel channel) throws IOException {
+        StringBuilder line = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        while (line.length() == 0 || line.charAt(line.length() - 1) != '\n') {
+            buffer.clear();
+            if (channel.read(buffer) < 0) break;
+            line.append((char) buffer.get(0));
+        }
+        return line.toString();
+    }
+}
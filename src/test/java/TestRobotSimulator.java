@@ -1,15 +1,33 @@
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
+@RunWith(Parameterized.class)
 public class TestRobotSimulator {
-    private RobotSimulator robotSimulator = new RobotSimulator();
+    private final ParserEngine parserEngine;
+    private final RobotSimulator robotSimulator;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parserEngines() {
+        return Arrays.asList(new Object[][]{{ParserEngine.STRING}, {ParserEngine.BYTE}, {ParserEngine.PIPELINED}});
+    }
+
+    public TestRobotSimulator(ParserEngine parserEngine) {
+        this.parserEngine = parserEngine;
+        robotSimulator = new RobotSimulator(parserEngine);
+    }
 
     @Test
     public void testRobotSimulator_SimpleTest_ReportSuccess() {
@@ -255,7 +273,107 @@ public class TestRobotSimulator {
         }
     }
 
-    //@Test
+    @Test
+    public void testRobotSimulator_PitOffBoard_DetectedBeforeZone() {
+        StringBuilder input = new StringBuilder();
+        input.append("DEPLOY 9,9,NORTH\n");
+        input.append("PIT 9,10\n");
+        input.append("MOVE\n");
+        input.append("RIGHT\n");
+        input.append("MOVE\n");
+        input.append("REPORT\n");
+
+        try (InputStream is = new ByteArrayInputStream(input.toString().getBytes())) {
+            List<String> process = robotSimulator.process(is);
+            System.out.println(process);
+            assertArrayEquals(new String[]{"PIT Detected: Ignored", "Outside Zone: Ignored", "9,9,EAST"}, process.toArray(new String[0]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Exception thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRobotSimulator_HugeBoard_ReportSuccess() {
+        RobotSimulator robotSimulator = new RobotSimulator(1_000_000, 1_000_000, parserEngine);
+        StringBuilder input = new StringBuilder();
+        input.append("DEPLOY 999999,999999,NORTH\n");
+        input.append("PIT 999998,999999\n");
+        input.append("MOVE\n");
+        input.append("LEFT\n");
+        input.append("MOVE\n");
+        input.append("DEPLOY 1000000,0,NORTH\n");
+        input.append("DEPLOY 0,0,SOUTH\n");
+        input.append("LEFT\n");
+        input.append("MOVE\n");
+        input.append("REPORT\n");
+
+        try (InputStream is = new ByteArrayInputStream(input.toString().getBytes())) {
+            List<String> process = robotSimulator.process(is);
+            System.out.println(process);
+            assertArrayEquals(new String[]{"Outside Zone: Ignored", "PIT Detected: Ignored", "Outside Zone: Ignored", "1,0,EAST"}, process.toArray(new String[0]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Exception thrown: " + e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRobotSimulator_EmptyBoard_Fails() {
+        new RobotSimulator(0, 10, parserEngine);
+    }
+
+    @Test
+    public void testRobotSimulator_ReportSink_ReceivesTypedCallbacksInOrder() {
+        StringBuilder input = new StringBuilder();
+        input.append("DEPLOY 0,0,NORTH\n");
+        input.append("PIT 0,1\n");
+        input.append("PIT 0,0\n");
+        input.append("MOVE\n");
+        input.append("LEFT\n");
+        input.append("MOVE\n");
+        input.append("REPORT\n");
+
+        List<String> events = new ArrayList<>();
+        ReportSink sink = new ReportSink() {
+            @Override
+            public void onPosition(int x, int y, Direction direction) {
+                events.add("position " + x + "," + y + "," + direction);
+            }
+
+            @Override
+            public void onOutsideZone() {
+                events.add("outside");
+            }
+
+            @Override
+            public void onPitDetected() {
+                events.add("pit");
+            }
+
+            @Override
+            public void onRobotDetected() {
+                events.add("robot");
+            }
+        };
+
+        try (InputStream is = new ByteArrayInputStream(input.toString().getBytes())) {
+            robotSimulator.process(is, sink);
+            System.out.println(events);
+            assertArrayEquals(new String[]{"robot", "pit", "outside", "position 0,0,WEST"}, events.toArray(new String[0]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Exception thrown: " + e.getMessage());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRobotSimulator_ListReport_IsImmutable() {
+        List<String> process = robotSimulator.process(new ByteArrayInputStream("DEPLOY 0,0,NORTH\nREPORT\n".getBytes()));
+        process.add("TEST MUTABLE");
+    }
+
+    @Test
     public void testRobotSimulator_MassiveListOfCommands_DoesntRunOOM() {
         StringBuilder input = new StringBuilder();
         input.append("DEPLOY 0,0,NORTH\n");
@@ -270,7 +388,7 @@ public class TestRobotSimulator {
 
         try (InputStream is = getImpossibleIS(input.toString().getBytes(), input.length() * 200_000)) {
             List<String> process = robotSimulator.process(is);
-            System.out.println(process);
+            System.out.println(process.size());
             assertEquals(1000000, process.size());
         } catch (Exception e) {
             e.printStackTrace();
@@ -278,6 +396,53 @@ public class TestRobotSimulator {
         }
     }
 
+    @Test
+    public void testRobotSimulator_MoveAndTurnRuns_MatchSingleSteps() throws IOException {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            StringBuilder input = new StringBuilder();
+            for (int i = 0; i < 2_000; i++) {
+                int kind = random.nextInt(10);
+                if (kind == 0) {
+                    input.append("DEPLOY ").append(random.nextInt(10)).append(',').append(random.nextInt(10)).append(",NORTH\n");
+                } else if (kind < 3) {
+                    input.append("PIT ").append(random.nextInt(12) - 1).append(',').append(random.nextInt(12) - 1).append('\n');
+                } else if (kind < 7) {
+                    IntStream.range(0, random.nextInt(15)).forEach(e -> input.append("MOVE\n"));
+                } else if (kind < 9) {
+                    IntStream.range(0, random.nextInt(6)).forEach(e -> input.append(random.nextBoolean() ? "LEFT\n" : "RIGHT\n"));
+                } else {
+                    input.append("REPORT\n");
+                }
+            }
+            byte[] bytes = input.toString().getBytes();
+
+            //One execute() per line, no merging of MOVEs or turns
+            RobotSimulator singleSteps = new RobotSimulator();
+            ListReportSink expected = new ListReportSink();
+            CommandRecord command = new CommandRecord();
+            try (CommandReader reader = new ByteCommandReader(new ByteArrayInputStream(bytes))) {
+                while (reader.next(command)) singleSteps.execute(command, expected);
+            }
+
+            assertEquals("seed=" + seed, expected.getLines(), robotSimulator.process(new ByteArrayInputStream(bytes)));
+            robotSimulator.reset();
+        }
+    }
+
+    @Test
+    public void testRobotSimulator_LongMoveRunOnHugeBoard_StopsAtPit() {
+        RobotSimulator robotSimulator = new RobotSimulator(1_000_000, 1_000_000, parserEngine);
+        StringBuilder input = new StringBuilder();
+        input.append("DEPLOY 0,0,EAST\n");
+        input.append("PIT 500000,0\n");
+        IntStream.range(0, 500_002).forEach(e -> input.append("MOVE\n"));
+        input.append("REPORT\n");
+
+        List<String> process = robotSimulator.process(new ByteArrayInputStream(input.toString().getBytes()));
+        assertArrayEquals(new String[]{"PIT Detected: Ignored", "PIT Detected: Ignored", "PIT Detected: Ignored", "499999,0,EAST"}, process.toArray(new String[0]));
+    }
+
     private InputStream getImpossibleIS(byte[] repeatingBytes, int maxSize) {
         return new InputStream() {
             int pos = 0;
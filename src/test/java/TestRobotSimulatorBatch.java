@@ -0,0 +1,44 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestRobotSimulatorBatch {
+    @Test
+    public void testRobotSimulatorBatch_ResultsInInputOrder_StateIsolated() {
+        List<RobotSimulatorBatch.Input> inputs = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int x = i % 10, y = (i / 10) % 10;
+            //Every stream places a pit where the next one deploys, which must not be seen across streams
+            String script = "DEPLOY " + x + "," + y + ",NORTH\nPIT " + ((x + 1) % 10) + "," + y + "\nRIGHT\nMOVE\nREPORT\n";
+            inputs.add(() -> new ByteArrayInputStream(script.getBytes()));
+            expected.add(new RobotSimulator().process(new ByteArrayInputStream(script.getBytes())));
+        }
+
+        try (RobotSimulatorBatch batch = new RobotSimulatorBatch(4)) {
+            assertEquals(expected, batch.processInputs(inputs));
+        }
+    }
+
+    @Test
+    public void testRobotSimulatorBatch_FailingInput_Throws() {
+        RobotSimulatorBatch.Input failing = () -> {
+            throw new IOException("broken input");
+        };
+
+        try (RobotSimulatorBatch batch = new RobotSimulatorBatch(2)) {
+            batch.processInputs(Collections.singletonList(failing));
+            fail("Expected the input failure to be reported");
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof IOException)) cause = cause.getCause();
+            assertNotNull("Input failure isn't the cause", cause);
+        }
+    }
+}
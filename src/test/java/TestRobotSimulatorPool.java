@@ -0,0 +1,108 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestRobotSimulatorPool {
+    private static final byte[] SCRIPT = ("DEPLOY 0,0,NORTH\nPIT 0,2\nPIT 1,1\nMOVE\nMOVE\nRIGHT\nMOVE\nREPORT\n"
+            + "DEPLOY 5,5,WEST\nMOVE\nREPORT\n").getBytes();
+
+    @Test
+    public void testRobotSimulator_ResetThenSameScript_IdenticalResults() {
+        RobotSimulator robotSimulator = new RobotSimulator(ParserEngine.BYTE);
+        List<String> first = robotSimulator.process(new ByteArrayInputStream(SCRIPT));
+        robotSimulator.reset();
+        List<String> second = robotSimulator.process(new ByteArrayInputStream(SCRIPT));
+
+        assertArrayEquals(new String[]{"PIT Detected: Ignored", "PIT Detected: Ignored", "0,1,EAST", "4,5,WEST"},
+                first.toArray(new String[0]));
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testRobotSimulator_ResetHugeBoard_ForgetsPits() {
+        RobotSimulator robotSimulator = new RobotSimulator(1_000_000, 1_000_000);
+        robotSimulator.process(new ByteArrayInputStream("DEPLOY 0,0,NORTH\nPIT 0,1\n".getBytes()));
+        robotSimulator.reset();
+
+        List<String> process = robotSimulator.process(new ByteArrayInputStream("MOVE\nDEPLOY 0,0,NORTH\nMOVE\nREPORT\n".getBytes()));
+        assertArrayEquals(new String[]{"0,1,NORTH"}, process.toArray(new String[0]));
+    }
+
+    @Test
+    public void testRobotSimulatorPool_ReusesResetSimulators() {
+        RobotSimulatorPool pool = new RobotSimulatorPool(1);
+        RobotSimulator first = pool.borrow();
+        List<String> expected = first.process(new ByteArrayInputStream(SCRIPT));
+        pool.release(first);
+
+        RobotSimulator second = pool.borrow();
+        assertSame(first, second);
+        assertEquals(0, pool.idleCount());
+        assertEquals(expected, second.process(new ByteArrayInputStream(SCRIPT)));
+
+        pool.release(second);
+        pool.release(new RobotSimulator());
+        assertEquals(1, pool.idleCount());
+    }
+
+    @Test
+    public void testRobotSimulatorPool_RecordedJobClosedThenReleased_Detaches() {
+        RobotSimulatorPool pool = new RobotSimulatorPool(1);
+        RobotSimulator simulator = pool.borrow();
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder()) {
+            simulator.record(recorder);
+            simulator.process(new ByteArrayInputStream(SCRIPT));
+            assertEquals(11, recorder.commands());
+        }
+        pool.release(simulator);
+
+        RobotSimulator reused = pool.borrow();
+        assertSame(simulator, reused);
+        assertEquals(Arrays.asList("PIT Detected: Ignored", "PIT Detected: Ignored", "0,1,EAST", "4,5,WEST"),
+                reused.process(new ByteArrayInputStream(SCRIPT)));
+    }
+
+    @Test
+    public void testRobotSimulatorPool_PooledJob_BarelyAllocates() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        RobotSimulatorPool pool = new RobotSimulatorPool(1, () -> new RobotSimulator(ParserEngine.BYTE));
+        ByteArrayInputStream input = new ByteArrayInputStream(SCRIPT);
+        ReportSink sink = new ReportSink() {
+            @Override
+            public void onPosition(int x, int y, Direction direction) {
+            }
+
+            @Override
+            public void onOutsideZone() {
+            }
+
+            @Override
+            public void onPitDetected() {
+            }
+
+            @Override
+            public void onRobotDetected() {
+            }
+        };
+        int jobs = 10_000;
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            long before = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int job = 0; job < jobs; job++) {
+                input.reset();
+                RobotSimulator simulator = pool.borrow();
+                simulator.process(input, sink);
+                pool.release(simulator);
+            }
+            long perJob = (allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / jobs;
+            if (warmUp == 1) assertTrue("Allocated " + perJob + " bytes per job", perJob < 64);
+        }
+    }
+}
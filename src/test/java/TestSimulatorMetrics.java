@@ -0,0 +1,79 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+
+public class TestSimulatorMetrics {
+    private static final String SCRIPT = "MOVE\nDEPLOY 0,0,NORTH\nPIT 0,1\nPIT 0,0\nPIT 0,1\nMOVE\nRIGHT\nMOVE\nJUMP\n"
+            + "REPORT\nDEPLOY 10,0,EAST\nLEFT\nDEPLOY 1,0,SOUTH\nMOVE\n";
+
+    @Test
+    public void testSimulatorMetrics_CountsCommandsAndErrors() {
+        SimulatorMetrics metrics = new SimulatorMetrics(1, false);
+        byte[] input = SCRIPT.getBytes(StandardCharsets.US_ASCII);
+        new RobotSimulator(10, 10, ParserEngine.BYTE, metrics, DiagnosticLog.discarding()).process(new ByteArrayInputStream(input));
+
+        assertEquals(4, metrics.getCommandCount(Command.MOVE));
+        assertEquals(3, metrics.getCommandCount(Command.DEPLOY));
+        assertEquals(3, metrics.getCommandCount(Command.PIT));
+        assertEquals(1, metrics.getCommandCount(Command.RIGHT));
+        assertEquals(1, metrics.getCommandCount(Command.LEFT));
+        assertEquals(1, metrics.getCommandCount(Command.REPORT));
+        assertEquals(1, metrics.getUnparseableLines());
+        assertEquals(2, metrics.getOutsideZoneErrors());
+        assertEquals(1, metrics.getPitDetectedErrors());
+        assertEquals(1, metrics.getRobotDetectedErrors());
+        assertEquals(1, metrics.getPitsAdded());
+        assertEquals(input.length, metrics.getBytesRead());
+        assertEquals(1, metrics.getRuns());
+        //Every line is sampled
+        assertEquals(14, sum(metrics.getParseLatencyHistogram()));
+        assertEquals(14, sum(metrics.getExecuteLatencyHistogram()));
+        assertTrue(metrics.getParseLatencyP99Nanos() >= metrics.getParseLatencyP50Nanos());
+    }
+
+    @Test
+    public void testSimulatorMetrics_SharedAndSampled() {
+        SimulatorMetrics metrics = new SimulatorMetrics(64, false);
+        byte[] input = TestBinaryScript.randomScript(new Random(42), 10_000).getBytes(StandardCharsets.US_ASCII);
+        for (ParserEngine engine : ParserEngine.values()) {
+            new RobotSimulator(10, 10, engine, metrics, DiagnosticLog.discarding()).process(new ByteArrayInputStream(input));
+        }
+
+        long lines = metrics.getUnparseableLines();
+        for (Command command : Command.values()) lines += metrics.getCommandCount(command);
+        int runs = ParserEngine.values().length;
+        assertEquals(runs * 10_000, lines);
+        assertEquals(runs, metrics.getRuns());
+        //Lines 0, 64, 128... of each run
+        assertEquals(runs * 157, sum(metrics.getParseLatencyHistogram()));
+    }
+
+    @Test
+    public void testSimulatorMetrics_RegisteredOverJmx() throws Exception {
+        SimulatorMetrics metrics = new SimulatorMetrics();
+        ObjectName name = metrics.register("test-" + System.nanoTime());
+        new RobotSimulator(10, 10, ParserEngine.BYTE, metrics, DiagnosticLog.discarding()).process(new ByteArrayInputStream(SCRIPT.getBytes(StandardCharsets.US_ASCII)));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(2L, server.getAttribute(name, "OutsideZoneErrors"));
+            assertEquals(1L, server.getAttribute(name, "Runs"));
+            assertNotNull(server.getAttribute(name, "CommandCounts"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) sum += count;
+        return sum;
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestSpeculativeSimulator {
+
+    @Test
+    public void testSpeculativeSimulator_RandomScripts_MatchProcess() {
+        for (int parallelism : new int[]{1, 2, 4}) {
+            try (SpeculativeSimulator speculative = new SpeculativeSimulator(10, 10, parallelism, DiagnosticLog.discarding())) {
+                for (long seed = 0; seed < 10; seed++) {
+                    String script = TestBinaryScript.randomScript(new Random(seed), 20_000);
+
+                    speculative.reset();
+                    assertEquals("parallelism=" + parallelism + " seed=" + seed, process(script), speculative.process(input(script)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpeculativeSimulator_IndependentSegments_NoRerun() {
+        //Every robot stays in its own column, below the pit it adds at the top of it
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            int column = i % 100;
+            script.append("DEPLOY ").append(column).append(",0,NORTH\n");
+            script.append("PIT ").append(column).append(",99\n");
+            script.append("MOVE\nMOVE\nMOVE\nREPORT\nRIGHT\nREPORT\n");
+        }
+        try (SpeculativeSimulator speculative = new SpeculativeSimulator(100, 100, 4)) {
+            List<String> process = new RobotSimulator(100, 100, ParserEngine.BYTE).process(input(script.toString()));
+            assertEquals(process, speculative.process(input(script.toString())));
+            assertEquals(10_000, speculative.speculatedSegments());
+            assertEquals(0, speculative.rerunSegments());
+        }
+    }
+
+    @Test
+    public void testSpeculativeSimulator_EarlierPitInTheWay_Reruns() {
+        String script = "DEPLOY 0,0,NORTH\nPIT 0,3\nPIT 5,5\n"
+                //Blocked by 0,3 of the first segment
+                + "DEPLOY 0,1,NORTH\nMOVE\nMOVE\nMOVE\nREPORT\n"
+                //Deployed onto 5,5: the robot stays at 0,2 facing NORTH
+                + "DEPLOY 5,5,EAST\nREPORT\n"
+                + "DEPLOY 9,9,SOUTH\nMOVE\nREPORT\n";
+        List<String> expected = Arrays.asList("PIT Detected: Ignored", "PIT Detected: Ignored", "0,2,NORTH",
+                "PIT Detected: Ignored", "0,2,NORTH", "9,8,SOUTH");
+        assertEquals(expected, process(script));
+        try (SpeculativeSimulator speculative = new SpeculativeSimulator(10, 10, 2)) {
+            assertEquals(expected, speculative.process(input(script)));
+            assertEquals(4, speculative.speculatedSegments());
+            assertEquals(2, speculative.rerunSegments());
+        }
+    }
+
+    @Test
+    public void testSpeculativeSimulator_ManyBatches_MatchProcess() {
+        //More segments than a batch holds, and one segment bigger than a batch
+        StringBuilder script = new StringBuilder(TestBinaryScript.randomScript(new Random(3), 3 * 12 * SpeculativeSimulator.BATCH_SEGMENTS));
+        script.append("DEPLOY 0,0,EAST\n");
+        for (int i = 0; i < SpeculativeSimulator.BATCH_BYTES + 100_000; i++) script.append(i % 2 == 0 ? "MOVE\n" : "LEFT\n");
+        script.append("REPORT\n");
+        script.append(TestBinaryScript.randomScript(new Random(4), 10_000));
+
+        try (SpeculativeSimulator speculative = new SpeculativeSimulator(10, 10, 3, DiagnosticLog.discarding())) {
+            assertEquals(process(script.toString()), speculative.process(input(script.toString())));
+        }
+    }
+
+    private static List<String> process(String script) {
+        return new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()).process(input(script));
+    }
+
+    private static ByteArrayInputStream input(String script) {
+        return new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII));
+    }
+}
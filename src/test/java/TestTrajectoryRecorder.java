@@ -0,0 +1,123 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestTrajectoryRecorder {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTrajectoryRecorder_RandomScripts_MatchReports() {
+        for (long seed = 0; seed < 5; seed++) {
+            //Past KEYFRAME_INTERVAL, so lookups start from periodic keyframes too
+            String[] lines = TestBinaryScript.randomScript(new Random(seed), 1_500).split("\n");
+            try (TrajectoryRecorder recorder = new TrajectoryRecorder()) {
+                RobotSimulator simulator = new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding());
+                simulator.record(recorder);
+                simulator.process(input(String.join("\n", lines)));
+                assertEquals(lines.length, recorder.commands());
+
+                StringBuilder prefix = new StringBuilder();
+                for (int i = 0; i < lines.length; i++) {
+                    prefix.append(lines[i]).append('\n');
+                    assertEquals("seed=" + seed + " line=" + i, reportAfter(prefix), String.valueOf(recorder.positionAt(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTrajectoryRecorder_DeployAndReset() {
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder()) {
+            RobotSimulator simulator = new RobotSimulator(5, 5, ParserEngine.BYTE);
+            simulator.record(recorder);
+            simulator.process(input("MOVE\nDEPLOY 1,1,NORTH\nMOVE\nDEPLOY 3,3,WEST\n"));
+            simulator.reset();
+            simulator.process(input("REPORT\nDEPLOY 0,0,EAST\nLEFT\n"));
+
+            assertEquals(7, recorder.commands());
+            assertNull(recorder.positionAt(0));
+            assertEquals("1,1,NORTH", recorder.positionAt(1).toString());
+            assertEquals("1,2,NORTH", recorder.positionAt(2).toString());
+            //The last command before the reset still finds the robot where it was
+            assertEquals("3,3,WEST", recorder.positionAt(3).toString());
+            assertNull(recorder.positionAt(4));
+            assertEquals("0,0,EAST", recorder.positionAt(5).toString());
+            assertEquals("0,0,NORTH", recorder.positionAt(6).toString());
+
+            try {
+                recorder.positionAt(7);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testTrajectoryRecorder_BinaryScript_TurnRunIsOneCommand() {
+        String script = "DEPLOY 2,2,NORTH\nRIGHT\nRIGHT\nMOVE\nMOVE\nLEFT\nREPORT\n";
+        ByteBuffer compiled = BinaryScript.compile(input(script));
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder()) {
+            RobotSimulator simulator = new RobotSimulator(5, 5, ParserEngine.BYTE);
+            simulator.record(recorder);
+            simulator.replay(compiled);
+
+            //DEPLOY, the 2 RIGHTs, 2 MOVEs, LEFT, REPORT
+            assertEquals(6, recorder.commands());
+            assertEquals("2,2,SOUTH", recorder.positionAt(1).toString());
+            assertEquals("2,0,SOUTH", recorder.positionAt(3).toString());
+            assertEquals("2,0,EAST", recorder.positionAt(5).toString());
+        }
+    }
+
+    @Test
+    public void testTrajectoryRecorder_Spilled_MatchesHeap() throws Exception {
+        File spillDirectory = folder.newFolder();
+        WorkloadGenerator generator = new WorkloadGenerator(5, 64, 64, WorkloadGenerator.DEFAULT_MIX, 0.05, 0.01);
+        long lines = 300_000;
+        try (TrajectoryRecorder onHeap = new TrajectoryRecorder()) {
+            try (TrajectoryRecorder spilled = new TrajectoryRecorder(1024, spillDirectory.toPath())) {
+                RobotSimulator simulator = new RobotSimulator(64, 64, ParserEngine.BYTE, null, DiagnosticLog.discarding());
+                simulator.record(onHeap);
+                simulator.process(generator.open(lines), new ListReportSink());
+                simulator.reset();
+                simulator.record(spilled);
+                simulator.process(generator.open(lines), new ListReportSink());
+
+                assertFalse(onHeap.isSpilled());
+                assertTrue(spilled.isSpilled());
+                assertEquals(2, spillDirectory.list().length);
+                assertEquals(lines, spilled.commands());
+                Random random = new Random(1);
+                for (int i = 0; i < 20_000; i++) {
+                    long index = i < 5_000 ? lines - 1 - i : (long) (random.nextDouble() * lines);
+                    assertEquals("index=" + index, onHeap.positionAt(index), spilled.positionAt(index));
+                }
+            }
+            //Closed: the spill files are gone
+            assertEquals(0, spillDirectory.list().length);
+        }
+    }
+
+    /**
+     * @return what a REPORT right after the script says, "null" if the robot isn't deployed.
+     */
+    private static String reportAfter(CharSequence script) {
+        List<String> before = new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()).process(input(script.toString()));
+        List<String> after = new RobotSimulator(10, 10, ParserEngine.BYTE, null, DiagnosticLog.discarding()).process(input(script + "REPORT\n"));
+        return after.size() > before.size() ? after.get(after.size() - 1) : "null";
+    }
+
+    private static ByteArrayInputStream input(String script) {
+        return new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TestWorkloadGenerator {
+
+    @Test
+    public void testWorkloadGenerator_SameSeed_SameBytes() throws IOException {
+        byte[] first = generate(new WorkloadGenerator(7), 50_000);
+        assertArrayEquals(first, generate(new WorkloadGenerator(7), 50_000));
+        assertFalse(new String(first, StandardCharsets.US_ASCII).equals(
+                new String(generate(new WorkloadGenerator(8), 50_000), StandardCharsets.US_ASCII)));
+
+        //Streamed or written, the same bytes
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        new WorkloadGenerator(7).write(written, 50_000);
+        assertArrayEquals(first, written.toByteArray());
+    }
+
+    @Test
+    public void testWorkloadGenerator_FollowsTheMix() throws IOException {
+        int lines = 200_000;
+        //DEPLOY, PIT, MOVE, RIGHT, LEFT, REPORT
+        WorkloadGenerator generator = new WorkloadGenerator(1, 100, 100, new int[]{1, 2, 3, 0, 0, 4}, 0.01, 0.05);
+        int[] counts = new int[Command.values().length];
+        int malformed = 0;
+        for (String line : lines(generator, lines)) {
+            CommandRecord command = new CommandRecord();
+            LineCommandReader.parse(line, command);
+            if (command.command == null || !command.hasValidArgs) {
+                malformed++;
+                continue;
+            }
+            counts[command.command.ordinal()]++;
+            if (command.command == Command.PIT) {
+                assertTrue(line, command.x >= 0 && command.x < 100 && command.y >= 0 && command.y < 100);
+            }
+        }
+
+        assertEquals(0.05, malformed / (double) lines, 0.005);
+        int wellFormed = lines - malformed;
+        assertEquals(0.1, counts[Command.DEPLOY.ordinal()] / (double) wellFormed, 0.01);
+        assertEquals(0.2, counts[Command.PIT.ordinal()] / (double) wellFormed, 0.01);
+        assertEquals(0.3, counts[Command.MOVE.ordinal()] / (double) wellFormed, 0.01);
+        assertEquals(0, counts[Command.RIGHT.ordinal()] + counts[Command.LEFT.ordinal()]);
+        assertEquals(0.4, counts[Command.REPORT.ordinal()] / (double) wellFormed, 0.01);
+
+        //The PITs follow a DEPLOY, so the simulator takes them: 1% of 10 000 cells, less any under the robot
+        SimulatorMetrics metrics = new SimulatorMetrics();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(new ByteArrayOutputStream()));
+        new RobotSimulator(100, 100, ParserEngine.BYTE, metrics, diagnostics).process(generator.open(lines), new CountingReportSink());
+        diagnostics.close();
+        assertEquals(0, diagnostics.count(DiagnosticLog.Kind.PIT_NOT_ALLOWED));
+        assertTrue("pits=" + metrics.getPitsAdded(), metrics.getPitsAdded() <= 100 && metrics.getPitsAdded() > 95);
+    }
+
+    @Test
+    public void testWorkloadGenerator_DefaultDensity_PitsAreTaken() {
+        SimulatorMetrics metrics = new SimulatorMetrics();
+        DiagnosticLog diagnostics = new DiagnosticLog(new PrintStream(new ByteArrayOutputStream()));
+        WorkloadGenerator generator = new WorkloadGenerator(2, 1024, 1024, WorkloadGenerator.DEFAULT_MIX,
+                WorkloadGenerator.DEFAULT_PIT_DENSITY, 0);
+        new RobotSimulator(1024, 1024, ParserEngine.BYTE, metrics, diagnostics).process(generator.open(1_000_000), new CountingReportSink());
+        diagnostics.close();
+
+        long pitLines = metrics.getCommandCount(Command.PIT);
+        assertEquals(0.1, pitLines / 1_000_000.0, 0.005);
+        for (DiagnosticLog.Kind kind : DiagnosticLog.Kind.values()) {
+            assertEquals(kind.name(), 0, diagnostics.count(kind));
+        }
+        //Only PITs on a cell that already has one, or under the robot, aren't added
+        long cells = (long) Math.ceil(WorkloadGenerator.DEFAULT_PIT_DENSITY * 1024 * 1024);
+        double expected = cells * (1 - Math.exp(-pitLines / (double) cells));
+        assertEquals(expected, metrics.getPitsAdded(), expected * 0.02);
+    }
+
+    @Test
+    public void testWorkloadGenerator_StreamsLazily() {
+        //Far more than the test heap could hold at once
+        long lines = 20_000_000;
+        RobotSimulator simulator = new RobotSimulator(1024, 1024, ParserEngine.BYTE, null, DiagnosticLog.discarding());
+        CountingReportSink outputs = new CountingReportSink();
+        simulator.process(new WorkloadGenerator(3, 1024, 1024, WorkloadGenerator.DEFAULT_MIX, 0.01, 0.01).open(lines), outputs);
+        assertTrue(outputs.events > 0);
+    }
+
+    private static byte[] generate(WorkloadGenerator generator, long lines) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = generator.open(lines)) {
+            byte[] buffer = new byte[1000];
+            for (int read; (read = input.read(buffer)) >= 0; ) output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private static String[] lines(WorkloadGenerator generator, int lines) throws IOException {
+        String[] split = new String(generate(generator, lines), StandardCharsets.US_ASCII).split("\n", -1);
+        //The last line break leaves an empty string after it
+        assertEquals(lines + 1, split.length);
+        String[] result = new String[lines];
+        System.arraycopy(split, 0, result, 0, lines);
+        return result;
+    }
+}
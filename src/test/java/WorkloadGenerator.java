@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Seedable generator of command streams for tests and load tests, see LoadTestRunner. Streams of any number of lines
+ * are generated as they are read, in CHUNK_SIZE blocks, so the size of a workload isn't bounded by memory.
+ * <p>
+ * The same seed and settings always give the same bytes. Lines are drawn one after the other:
+ * - commands follow the weights of the mix, indexed by {@link Command#ordinal()};
+ * - a DEPLOY goes to a random cell of the board, facing a random direction;
+ * - PITs only come in bursts right after a DEPLOY, where the simulator takes them, as many on average as the mix has
+ * PITs per DEPLOY. Each goes to one of the pit cells, a fixed random share pitDensity of the board, so the pits pile up
+ * to that density rather than spreading over the whole board. A mix without DEPLOY gets its PITs anywhere, ignored;
+ * - with probability malformedRate the line is broken instead: misspelt, lower case, blank, or with missing, invalid
+ * or overflowing arguments. A broken line ends a burst of PITs.
+ */
+class WorkloadGenerator {
+    //DEPLOY, PIT, MOVE, RIGHT, LEFT, REPORT: mostly moving about, as a robot exploring would
+    static final int[] DEFAULT_MIX = {5, 10, 60, 10, 10, 5};
+    static final double DEFAULT_PIT_DENSITY = 0.05;
+    static final double DEFAULT_MALFORMED_RATE = 0.01;
+    static final int CHUNK_SIZE = 8 * 1024;
+    //Longest generated line, with its line break
+    private static final int MAX_LINE_SIZE = 64;
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final byte[][] COMMAND_NAMES = new byte[COMMANDS.length][];
+    private static final byte[][] DIRECTION_NAMES = new byte[RobotSimulator.DIRECTION_SEQUENCE.length][];
+    private static final byte[][] MALFORMED_LINES = bytes("MOVEE", "move", "RIHGT", "LEFT,", "", "DEPLOY 1,2",
+            "DEPLOY a,1,NORTH", "DEPLOY 1,1,UP", "PIT 1", "PIT 99999999999,0", "REPORT;");
+
+    static {
+        for (Command command : COMMANDS) COMMAND_NAMES[command.ordinal()] = bytes(command.name())[0];
+        for (int i = 0; i < DIRECTION_NAMES.length; i++) {
+            DIRECTION_NAMES[i] = bytes(RobotSimulator.DIRECTION_SEQUENCE[i].name())[0];
+        }
+    }
+
+    private final long seed;
+    private final int boardWidth, boardHeight;
+    //Running totals of the weights, a line's command is the first whose total is above a draw. Without PIT when PITs
+    //come in bursts
+    private final int[] cumulativeWeights = new int[COMMANDS.length];
+    //Chance that a burst of PITs goes on for one more line, 0 when PITs are drawn like other commands
+    private final double pitBurstRate;
+    private final long pitCells;
+    private final double malformedRate;
+
+    WorkloadGenerator(long seed) {
+        this(seed, RobotSimulator.DEFAULT_BOARD_DIMENSION, RobotSimulator.DEFAULT_BOARD_DIMENSION, DEFAULT_MIX,
+                DEFAULT_PIT_DENSITY, DEFAULT_MALFORMED_RATE);
+    }
+
+    /**
+     * @param seed          the same seed gives the same stream.
+     * @param boardWidth    DEPLOY and PIT coordinates are on a board this wide...
+     * @param boardHeight   ...and this high.
+     * @param mix           relative weight of each command, by {@link Command#ordinal()}.
+     * @param pitDensity    share of the board's cells PITs go to, from 0 to 1.
+     * @param malformedRate share of lines that are broken, from 0 to 1.
+     */
+    WorkloadGenerator(long seed, int boardWidth, int boardHeight, int[] mix, double pitDensity, double malformedRate) {
+        if (boardWidth <= 0 || boardHeight <= 0 || mix.length != COMMANDS.length
+                || !(pitDensity >= 0 && pitDensity <= 1) || !(malformedRate >= 0 && malformedRate <= 1)) {
+            throw new IllegalArgumentException("Invalid workload settings");
+        }
+        int total = 0;
+        for (int i = 0; i < mix.length; i++) {
+            if (mix[i] < 0) throw new IllegalArgumentException("Negative weight for " + COMMANDS[i]);
+            total += mix[i];
+        }
+        if (total == 0) throw new IllegalArgumentException("Empty mix");
+
+        int deploys = mix[Command.DEPLOY.ordinal()], pits = mix[Command.PIT.ordinal()];
+        boolean isBursting = deploys > 0 && pits > 0;
+        //Each line of a burst is one more PIT with chance c = pits / (pits + deploys), broken lines included, so a burst
+        //holds c / (1 - c) = pits / deploys PITs on average, as the mix asks
+        double goesOn = pits / (double) (pits + deploys);
+        this.pitBurstRate = isBursting ? Math.min(1, goesOn / (1 - malformedRate)) : 0;
+        int cumulative = 0;
+        for (int i = 0; i < mix.length; i++) {
+            if (!isBursting || i != Command.PIT.ordinal()) cumulative += mix[i];
+            cumulativeWeights[i] = cumulative;
+        }
+
+        this.seed = seed;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.pitCells = Math.max(1, (long) Math.ceil(pitDensity * boardWidth * boardHeight));
+        this.malformedRate = malformedRate;
+    }
+
+    /**
+     * @return a stream of that many lines, generated as it is read.
+     */
+    InputStream open(long lines) {
+        return new WorkloadInputStream(new Lines(), lines);
+    }
+
+    /**
+     * Writes that many lines to the output, which is neither flushed nor closed.
+     */
+    void write(OutputStream output, long lines) throws IOException {
+        Lines generator = new Lines();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (lines > 0) {
+            int size = 0;
+            for (; lines > 0 && size <= CHUNK_SIZE - MAX_LINE_SIZE; lines--) {
+                size = generator.next(chunk, size);
+            }
+            output.write(chunk, 0, size);
+        }
+    }
+
+    /**
+     * Writes that many lines to a new or truncated file.
+     */
+    void write(Path file, long lines) {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            write(output, lines);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[][] bytes(String... values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) bytes[i] = values[i].getBytes(StandardCharsets.US_ASCII);
+        return bytes;
+    }
+
+    /**
+     * The random state of one stream.
+     */
+    private class Lines {
+        private final SplittableRandom random = new SplittableRandom(seed);
+        //Whether the last line was a DEPLOY or a PIT after one, so a PIT would be taken
+        private boolean isInPitBurst;
+
+        /**
+         * Writes the next line, with its line break, at the position, at most MAX_LINE_SIZE bytes.
+         *
+         * @return the position after it.
+         */
+        int next(byte[] buffer, int position) {
+            if (malformedRate > 0 && random.nextDouble() < malformedRate) {
+                isInPitBurst = false;
+                byte[] line = MALFORMED_LINES[random.nextInt(MALFORMED_LINES.length)];
+                position = put(buffer, position, line);
+                buffer[position++] = '\n';
+                return position;
+            }
+
+            int commandIndex;
+            if (isInPitBurst && random.nextDouble() < pitBurstRate) {
+                commandIndex = Command.PIT.ordinal();
+            } else {
+                int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+                commandIndex = 0;
+                while (draw >= cumulativeWeights[commandIndex]) commandIndex++;
+                isInPitBurst = pitBurstRate > 0 && COMMANDS[commandIndex] == Command.DEPLOY;
+            }
+            position = put(buffer, position, COMMAND_NAMES[commandIndex]);
+            if (COMMANDS[commandIndex] == Command.DEPLOY) {
+                position = putCoordinates(buffer, position, random.nextInt(boardWidth), random.nextInt(boardHeight));
+                buffer[position++] = ',';
+                position = put(buffer, position, DIRECTION_NAMES[random.nextInt(DIRECTION_NAMES.length)]);
+            } else if (COMMANDS[commandIndex] == Command.PIT) {
+                //The same pit cell for the same index, a random cell of the board for each
+                long cell = Long.remainderUnsigned(Cells.mix(seed + random.nextLong(pitCells)), (long) boardWidth * boardHeight);
+                position = putCoordinates(buffer, position, (int) (cell % boardWidth), (int) (cell / boardWidth));
+            }
+            buffer[position++] = '\n';
+            return position;
+        }
+
+        private int putCoordinates(byte[] buffer, int position, int x, int y) {
+            buffer[position++] = ' ';
+            position = ReportEncoder.putInt(buffer, position, x);
+            buffer[position++] = ',';
+            return ReportEncoder.putInt(buffer, position, y);
+        }
+
+        private int put(byte[] buffer, int position, byte[] bytes) {
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            return position + bytes.length;
+        }
+    }
+
+    private static class WorkloadInputStream extends InputStream {
+        private final Lines lines;
+        private long remaining;
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private int position, limit;
+
+        WorkloadInputStream(Lines lines, long remaining) {
+            this.lines = lines;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) return -1;
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            if (!fill()) return -1;
+
+            int read = Math.min(length, limit - position);
+            System.arraycopy(chunk, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        /**
+         * @return false at the end of the stream.
+         */
+        private boolean fill() {
+            if (position < limit) return true;
+
+            position = limit = 0;
+            for (; remaining > 0 && limit <= CHUNK_SIZE - MAX_LINE_SIZE; remaining--) {
+                limit = lines.next(chunk, limit);
+            }
+            return limit > 0;
+        }
+    }
+}